@@ -23,6 +23,11 @@ import org.dashee.remote.exception.OutOfRange;
 public class DrawHud 
     extends View
 {
+    /**
+     * Battery level when the server has not told us one.
+     */
+    public static final int BATTERY_UNKNOWN = -1;
+
     Context context;
 
     /**
@@ -73,6 +78,7 @@ public class DrawHud
      */
     float tilt = 50.0f;
     int throttle = 128;
+    int battery = BATTERY_UNKNOWN;
     
     /**
      * Paint for general items
@@ -863,17 +869,35 @@ public class DrawHud
     /**
      * Draw battery bars.
      *
+     * One bar is active for every 12th of the battery level. When the level
+     * is unknown all bars are inactive.
+     *
      * @param canvas where to draw
      */
     public void drawBatteryBars(Canvas canvas)
     {
+        int cutOff = 0;
+        if (this.battery != BATTERY_UNKNOWN)
+            cutOff = Math.round(this.battery / 100.0f * 12);
+
     	for (int count = 0; count < 12; count++)
         {
-            canvas.drawPath(this.batteryPaths[count], activeBatteryBar);
-            canvas.drawPath(
-                    this.batteryPathsInner[count], 
-                    activeBatteryBarInset
-                );
+            if (count >= cutOff)
+            {
+                canvas.drawPath(this.batteryPaths[count], inactiveBar);
+                canvas.drawPath(
+                        this.batteryPathsInner[count], 
+                        inactiveBarInset
+                    );
+            }
+            else
+            {
+                canvas.drawPath(this.batteryPaths[count], activeBatteryBar);
+                canvas.drawPath(
+                        this.batteryPathsInner[count], 
+                        activeBatteryBarInset
+                    );
+            }
         }
     }
 
@@ -908,6 +932,16 @@ public class DrawHud
         this.throttle = throttle;
     }
 
+    /**
+     * Set the battery level as received from the server.
+     *
+     * @param battery The level from 0-100, or BATTERY_UNKNOWN
+     */
+    public void setBattery(int battery)
+    {
+        this.battery = battery;
+    }
+
     public double getPowerGaugeBottomY()
     {
         return this.powerGaugeBottomY;
@@ -21,8 +21,13 @@ import org.dashee.remote.exception.OutOfRange;
 
 import org.dashee.remote.fragment.Hud;
 import org.dashee.remote.model.Config;
+import org.dashee.remote.model.Curve;
+import org.dashee.remote.model.Mixer;
 import org.dashee.remote.model.Vehicle;
 import org.dashee.remote.model.vehicle.Car;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Transport;
+import org.dashee.remote.thread.Scheduler;
 
 /**
  * The main activity that the program will run.
@@ -49,6 +54,16 @@ public class MainActivity
      * Thread to send commands to the server.
      */
     private org.dashee.remote.thread.SendCommands threadSendCommand;
+
+    /**
+     * Thread to receive replies from the server.
+     */
+    private org.dashee.remote.thread.ReceiveReplies threadReceiveReplies;
+
+    /**
+     * Shows the traffic counters of our threads on the HUD.
+     */
+    private org.dashee.remote.thread.ReportStatistics reportStatistics;
     
     /**
      * Hold the state of our Server. This will notify our
@@ -140,7 +155,20 @@ public class MainActivity
                 this.vehicle,
                 this.hud
             );
+        this.hud.setLatencyTrace(threadSendCommand.getLatencyTrace());
+        this.hud.setPing(threadSendCommand.getPing());
         threadSendCommand.start();
+
+        threadReceiveReplies = new org.dashee.remote.thread.ReceiveReplies(
+                threadSendCommand,
+                this.hud
+            );
+        threadReceiveReplies.start();
+
+        reportStatistics = new org.dashee.remote.thread.ReportStatistics(
+                threadSendCommand,
+                this.hud
+            );
     }
 
     /**
@@ -183,12 +211,121 @@ public class MainActivity
                     )
                 );
 
+            else if (key.equals("pref_send_period"))
+                this.config.setSendPeriod(
+                    Integer.parseInt(
+                        prefs.getString("pref_send_period", "30")
+                    )
+                );
+
+            else if (key.equals("pref_send_policy"))
+                this.config.setSendPolicy(
+                    Scheduler.Policy.valueOf(
+                        prefs.getString("pref_send_policy", "SKIP")
+                    )
+                );
+
+            else if (key.equals("pref_transport"))
+                this.config.setTransport(
+                    Transport.Type.valueOf(
+                        prefs.getString("pref_transport", "CHANNEL")
+                    )
+                );
+
+            else if (key.equals("pref_send_mode"))
+                this.config.setSendMode(
+                    Config.SendMode.valueOf(
+                        prefs.getString("pref_send_mode", "PERIODIC")
+                    )
+                );
+
+            else if (key.equals("pref_adaptive_rate"))
+                this.config.setAdaptiveRate(
+                        prefs.getBoolean("pref_adaptive_rate", false)
+                    );
+
+            else if (key.equals("pref_send_period_min"))
+                this.config.setSendPeriodMin(
+                    Integer.parseInt(
+                        prefs.getString("pref_send_period_min", "10")
+                    )
+                );
+
+            else if (key.equals("pref_send_period_max"))
+                this.config.setSendPeriodMax(
+                    Integer.parseInt(
+                        prefs.getString("pref_send_period_max", "100")
+                    )
+                );
+
+            else if (key.equals("pref_send_gap"))
+                this.config.setSendGap(
+                    Integer.parseInt(
+                        prefs.getString("pref_send_gap", "10")
+                    )
+                );
+
+            else if (key.equals("pref_heartbeat"))
+                this.config.setHeartbeat(
+                    Integer.parseInt(
+                        prefs.getString("pref_heartbeat", "250")
+                    )
+                );
+
+            else if (key.equals("pref_failsafe_timeout"))
+                this.readFailsafeTimeout(prefs);
+
+            else if (key.equals("pref_packet_format"))
+                this.config.setPacketFormat(
+                    Encoder.Format.valueOf(
+                        prefs.getString("pref_packet_format", "LEGACY")
+                    )
+                );
+
+            else if (key.equals("pref_redundancy"))
+                this.config.setRedundancy(
+                    Integer.parseInt(
+                        prefs.getString("pref_redundancy", "0")
+                    )
+                );
+
+            else if (key.equals("pref_resolution"))
+                this.config.setResolution(
+                    Integer.parseInt(
+                        prefs.getString("pref_resolution", "8")
+                    )
+                );
+
             // Roll
             else if (key.equals("roll_invert"))
                 this.vehicle.setRollInverted(
                         prefs.getBoolean("roll_invert", false)
                     );
 
+            else if (
+                    key.equals("roll_expo") ||
+                    key.equals("roll_rate") ||
+                    key.equals("roll_low_rate") ||
+                    key.equals("roll_curve")
+                )
+                this.vehicle.setRollCurve(this.readCurve(prefs, "roll"));
+            else if (key.equals("roll_failsafe"))
+                this.vehicle.setRollFailsafe(
+                        this.readFailsafe(prefs, "roll")
+                    );
+            else if (
+                    key.equals("roll_slew_up") || 
+                    key.equals("roll_slew_down")
+                )
+                this.readSlew(prefs, "roll", Vehicle.CHANNEL_ROLL);
+
+            // Mixing
+            else if (
+                    key.equals("pref_mixer") || 
+                    key.equals("pref_mixer_amount")
+                )
+                this.vehicle.setMixer(this.readMixer(prefs));
+
             // Throttle Values
             else if (key.equals("throttle_invert"))
                 this.vehicle.setThrottleInverted(
@@ -198,10 +335,28 @@ public class MainActivity
                 this.vehicle.setThrottleMaxPerc(
                         prefs.getInt("throttle_max", 100)
                     );
+            else if (
+                    key.equals("throttle_expo") ||
+                    key.equals("throttle_rate") ||
+                    key.equals("throttle_low_rate") ||
+                    key.equals("throttle_curve")
+                )
+                this.vehicle.setThrottleCurve(
+                        this.readCurve(prefs, "throttle")
+                    );
+            else if (key.equals("throttle_failsafe"))
+                this.vehicle.setThrottleFailsafe(
+                        this.readFailsafe(prefs, "throttle")
+                    );
+            else if (
+                    key.equals("throttle_slew_up") || 
+                    key.equals("throttle_slew_down")
+                )
+                this.readSlew(prefs, "throttle", Vehicle.CHANNEL_THROTTLE);
 
-            // Change the hud values for the IP Address
+            // Change the hud values for the IP Address. The connection 
+            // status follows the replies to our pings
             this.hud.setIp(this.config.getIp().toString().substring(1));
-            this.hud.setConnection(Hud.CONNECTION_STATUS.FAIL);
         }
         catch (UnknownHostException e)
         {
@@ -223,6 +378,146 @@ public class MainActivity
         }
     }
     
+    /**
+     * Build the response curve of a channel from its preferences. A rate of
+     * 0 on the seek bar is taken as 1.
+     *
+     * @param prefs The SharedPreferences
+     * @param channel The prefix of the channel preferences
+     *
+     * @return The curve
+     *
+     * @throws InvalidValue if the curve is not valid
+     */
+    private Curve readCurve(SharedPreferences prefs, String channel)
+    {
+        try
+        {
+            return new Curve(
+                    prefs.getInt(channel + "_expo", 0),
+                    Math.max(prefs.getInt(channel + "_rate", 100), 1),
+                    Math.max(prefs.getInt(channel + "_low_rate", 50), 1),
+                    Curve.parsePoints(prefs.getString(channel + "_curve", ""))
+                );
+        }
+        catch (OutOfRange e)
+        {
+            throw new InvalidValue(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the failsafe value of a channel from its preferences, where it
+     * is a percentage of the range with 50 in the middle.
+     *
+     * @param prefs The SharedPreferences
+     * @param channel The prefix of the channel preferences
+     *
+     * @return The value from MIN to MAX
+     */
+    private int readFailsafe(SharedPreferences prefs, String channel)
+    {
+        return Math.round(
+                RangeMapping.mapValue(
+                    prefs.getInt(channel + "_failsafe", 50), 
+                    0, 
+                    100, 
+                    Vehicle.MIN, 
+                    Vehicle.MAX
+                )
+            );
+    }
+
+    /**
+     * Set the slew rates of a channel from its preferences.
+     *
+     * @param prefs The SharedPreferences
+     * @param channel The prefix of the channel preferences
+     * @param index The channel index
+     *
+     * @throws InvalidValue if a rate is not valid
+     */
+    private void readSlew(SharedPreferences prefs, String channel, int index)
+    {
+        try
+        {
+            this.vehicle.setChannelSlew(
+                    index,
+                    Integer.parseInt(
+                        prefs.getString(channel + "_slew_up", "0")
+                    ),
+                    Integer.parseInt(
+                        prefs.getString(channel + "_slew_down", "0")
+                    )
+                );
+        }
+        catch (NumberFormatException e)
+        {
+            throw new InvalidValue("Slew rate must be a number", e);
+        }
+        catch (OutOfRange e)
+        {
+            throw new InvalidValue(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Set the failsafe timeout from the preferences.
+     *
+     * @param prefs The SharedPreferences
+     *
+     * @throws InvalidValue if the timeout is not valid
+     */
+    private void readFailsafeTimeout(SharedPreferences prefs)
+    {
+        try
+        {
+            this.config.setFailsafeTimeout(
+                    Integer.parseInt(
+                        prefs.getString("pref_failsafe_timeout", "500")
+                    )
+                );
+        }
+        catch (NumberFormatException e)
+        {
+            throw new InvalidValue("Failsafe timeout must be a number", e);
+        }
+        catch (OutOfRange e)
+        {
+            throw new InvalidValue(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Build the mixer from the preferences.
+     *
+     * @param prefs The SharedPreferences
+     *
+     * @return The mixer, or null for none
+     *
+     * @throws InvalidValue if the amount is not valid
+     */
+    private Mixer readMixer(SharedPreferences prefs)
+    {
+        try
+        {
+            return Mixer.create(
+                    Mixer.Type.valueOf(prefs.getString("pref_mixer", "NONE")),
+                    Integer.parseInt(
+                        prefs.getString("pref_mixer_amount", "20")
+                    )
+                );
+        }
+        catch (NumberFormatException e)
+        {
+            throw new InvalidValue("Mixer amount must be a number", e);
+        }
+        catch (OutOfRange e)
+        {
+            throw new InvalidValue(e.getMessage(), e);
+        }
+    }
+
     /**
      * App is Resumed from a pause state.
      */
@@ -231,6 +526,8 @@ public class MainActivity
     {
         super.onResume();
         threadSendCommand.onResume();
+        threadReceiveReplies.onResume();
+        reportStatistics.start();
     }
     
     /**
@@ -241,6 +538,8 @@ public class MainActivity
     {
         super.onPause();
         threadSendCommand.onPause();
+        threadReceiveReplies.onPause();
+        reportStatistics.stop();
     }
 
     /**
@@ -2,6 +2,11 @@ package org.dashee.remote.fragment;
 
 import android.support.v4.app.Fragment;
 
+import org.dashee.remote.model.LatencyTrace;
+import org.dashee.remote.network.Ping;
+import org.dashee.remote.network.Telemetry;
+import org.dashee.remote.thread.RateControl;
+
 /**
  * FragmentHud abstract class. Create the functions
  * that mainActivity can refer to without using this class
@@ -17,6 +22,16 @@ public abstract class Hud
      */
     protected org.dashee.remote.model.Vehicle vehicle;
 
+    /**
+     * The latency trace the input stages of the HUD are added to, null 
+     * until set.
+     */
+    protected LatencyTrace trace;
+
+    /**
+     * The round trip estimates of the control loop, null until set.
+     */
+    protected Ping ping;
 
     public enum CONNECTION_STATUS {
         CONNECTED,
@@ -61,6 +76,39 @@ public abstract class Hud
      */
     public abstract void setBps(int bps);
 
+    /**
+     * Set the send rate, and why it was last changed.
+     *
+     * @param period - The time between two packets in milliseconds
+     * @param reason - Why the rate changed, NONE when it is not adapted
+     */
+    public abstract void setRate(int period, RateControl.Reason reason);
+
+    /**
+     * Show the latest telemetry from the server. Called on the UI thread, 
+     * at most a few times a second.
+     *
+     * @param telemetry - The telemetry, check isFresh() before showing it
+     */
+    public abstract void setTelemetry(Telemetry telemetry);
+
+    /**
+     * Set the packet rates.
+     *
+     * @param sent - The packets sent per second
+     * @param received - The packets received per second
+     * @param errors - The send and receive errors in the last second
+     */
+    public abstract void setPackets(int sent, int received, int errors);
+
+    /**
+     * Set the time the send call takes.
+     *
+     * @param mean - The mean time in the last second in microseconds
+     * @param max - The longest time in the last second in microseconds
+     */
+    public abstract void setSendLatency(int mean, int max);
+
     /**
      * Set the Connection Status
      *
@@ -77,4 +125,25 @@ public abstract class Hud
     {
         this.vehicle = vehicle;
     }
+
+    /**
+     * Assign the latency trace of the control loop to the hud
+     *
+     * @param trace The latency trace
+     */
+    public void setLatencyTrace(LatencyTrace trace)
+    {
+        this.trace = trace;
+    }
+
+    /**
+     * Assign the ping tracker of the control loop to the hud, so input can
+     * allow for the round trip
+     *
+     * @param ping The ping tracker
+     */
+    public void setPing(Ping ping)
+    {
+        this.ping = ping;
+    }
 }
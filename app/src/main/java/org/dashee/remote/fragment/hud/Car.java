@@ -1,12 +1,15 @@
 package org.dashee.remote.fragment.hud;
 
+import android.app.AlertDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.graphics.Color;
 import android.media.AudioManager;
 import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.media.ToneGenerator;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Vibrator;
 import android.preference.PreferenceManager;
@@ -22,19 +25,28 @@ import android.graphics.Typeface;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
+import android.widget.Toast;
 import android.text.Html;
 
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import android.widget.TextView;
 
+import org.dashee.remote.exception.InvalidValue;
 import org.dashee.remote.exception.OutOfRange;
 import org.dashee.remote.DrawHud;
 import org.dashee.remote.R;
 import org.dashee.remote.RangeMapping;
+import org.dashee.remote.model.Filter;
+import org.dashee.remote.model.LatencyTrace;
+import org.dashee.remote.model.Orientation;
 import org.dashee.remote.model.PhoneSensors;
+import org.dashee.remote.model.Predictor;
 import org.dashee.remote.fragment.Hud;
+import org.dashee.remote.network.Ping;
+import org.dashee.remote.network.Telemetry;
+import org.dashee.remote.thread.RateControl;
 
 /**
  * This is our HUD Fragment. which controls, sending and receiving controls
@@ -45,7 +57,7 @@ import org.dashee.remote.fragment.Hud;
  */
 public class Car 
     extends Hud
-    implements Observer
+    implements PhoneSensors.OnOrientationListener
 {
     /**
      * Draw our Hud object.
@@ -63,7 +75,10 @@ public class Car
      */
     private TextView tvIp;
     private TextView tvStatus;
+    private TextView tvTelemetry;
     private TextView tvBPS;
+    private TextView tvPackets;
+    private TextView tvRate;
 
     /**
      * Throttle TextView handlers.
@@ -78,11 +93,55 @@ public class Car
     private TextView tvRollText;
 
     /**
-     * Handle to our Phone schematics. This will return
-     * our phones roll, pitch state, by notifying the observer
+     * Handle to our Phone schematics. This will pass
+     * our phones roll, pitch state to onOrientationChanged
      */
     private PhoneSensors phoneSensors;
 
+    /**
+     * The filter on the roll in degrees, or null for none. Set from the 
+     * preferences on resume and only run on the sensor thread.
+     */
+    private volatile Filter rollFilter = null;
+
+    /**
+     * The predictors of the roll and throttle, or null for none. Set from 
+     * the preferences on resume, the roll is only predicted on the sensor 
+     * thread and the throttle on the UI thread.
+     */
+    private volatile Predictor rollPredictor = null;
+    private volatile Predictor throttlePredictor = null;
+
+    /**
+     * The send period last shown, the sensors sample to match it. -1 until
+     * the control loop tells us. Read on the sensor thread to predict.
+     */
+    private volatile int sendPeriod = -1;
+
+    /**
+     * Whether a redraw of the roll is posted and not run yet, and whether 
+     * the last roll was in range. Roll is set on the sensor thread, these 
+     * make sure the UI redraws it at most once a frame.
+     */
+    private final AtomicBoolean rollPosted = new AtomicBoolean(false);
+    private volatile boolean rollValid = true;
+    private final Runnable showRoll = new Runnable() {
+        public void run()
+        {
+            Car.this.rollPosted.set(false);
+            Car.this.showRoll();
+        }
+    };
+
+    /**
+     * The packet rates and send latency last set, shown together.
+     */
+    private int packetsSent = 0;
+    private int packetsReceived = 0;
+    private int packetErrors = 0;
+    private int latencyMean = 0;
+    private int latencyMax = 0;
+
     private int colorRed = Color.parseColor("#A60000");
     private int colorGreen = Color.parseColor("#00A600");
 
@@ -113,6 +172,8 @@ public class Car
         this.initThrottleListener();
         this.initOptionsButtonListener();
         this.initTextViews();
+        this.initRateListener();
+        this.initLatencyListener();
 
 
         return view;
@@ -134,10 +195,13 @@ public class Car
      */
     private void initModels()
     {
-        // This will initialise our PhonePosition Observer,
-        // So our this.update function can handle updates 
+        // This will initialise our PhonePosition listener,
+        // So our this.onOrientationChanged function can handle updates 
         this.phoneSensors = new PhoneSensors(this.getActivity());
-        this.phoneSensors.addObserver(this);
+        this.phoneSensors.setAxes(Orientation.ROLL);
+        this.phoneSensors.addOrientationListener(this);
+        if (this.sendPeriod >= 0)
+            this.phoneSensors.setSendPeriod(this.sendPeriod);
     }
 
     /**
@@ -155,11 +219,13 @@ public class Car
             @Override
             public boolean onTouch(View v, MotionEvent event) 
             {
-                float mapVal = (float)org.dashee.remote.model.vehicle.Car.MID;
+                float mapVal 
+                    = (float)org.dashee.remote.model.vehicle.Car.HIRES_MID;
+                int action = event.getAction();
 
                 // Only if the user is still touching the screen
                 // will the mapValue change
-                if (event.getAction() != MotionEvent.ACTION_UP) 
+                if (action != MotionEvent.ACTION_UP) 
                 {
                     // Reverse mode
                     if (event.getY() > Math.round(Car.this.hud.getPowerGaugeBottomY()))
@@ -168,7 +234,7 @@ public class Car
                             event.getY(), 
                             Math.round(Car.this.hud.getPowerGaugeBottomY()), 
                             Math.round(Car.this.hud.getReverseGaugeBottomY()), 
-                            org.dashee.remote.model.vehicle.Car.MID-1,
+                            org.dashee.remote.model.vehicle.Car.HIRES_MID-1,
                             org.dashee.remote.model.vehicle.Car.MIN
                         );
                     }
@@ -178,13 +244,37 @@ public class Car
                             event.getY(), 
                             Math.round(Car.this.hud.getPowerGaugeTopY()),
                             Math.round(Car.this.hud.getPowerGaugeBottomY()),
-                            org.dashee.remote.model.vehicle.Car.MAX,
-                            org.dashee.remote.model.vehicle.Car.MID
+                            org.dashee.remote.model.vehicle.Car.HIRES_MAX,
+                            org.dashee.remote.model.vehicle.Car.HIRES_MID
                         );
                     }
                 }
 
-                Car.this.setThrottle((int)mapVal);
+                // Event times are on the uptime clock, as System.nanoTime()
+                long time = event.getEventTime() * 1000000L;
+
+                // Every touch is predicted on its own, and letting go 
+                // centres the stick at once
+                Predictor predictor = Car.this.throttlePredictor;
+                if (predictor != null)
+                {
+                    if (
+                            action == MotionEvent.ACTION_DOWN ||
+                            action == MotionEvent.ACTION_UP
+                        )
+                        predictor.reset();
+
+                    if (action != MotionEvent.ACTION_UP)
+                        mapVal = Car.this.predict(
+                                predictor,
+                                mapVal,
+                                time,
+                                org.dashee.remote.model.vehicle.Car.MIN,
+                                org.dashee.remote.model.vehicle.Car.HIRES_MAX
+                            );
+                }
+
+                Car.this.setThrottle((int)mapVal, time);
 
                 return true;
             }
@@ -210,6 +300,96 @@ public class Car
         });
     }
 
+    /**
+     * Switch dual rate every time the roll label is tapped. The label shows
+     * which rate is in use.
+     */
+    private void initRateListener()
+    {
+        this.tvRollText.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) 
+            {
+                if (Car.this.vehicle == null)
+                    return;
+
+                boolean low = !Car.this.vehicle.getLowRate();
+                Car.this.vehicle.setLowRate(low);
+                Car.this.tvRollText.setText(
+                        low ? R.string.hud_roll_low : R.string.hud_roll
+                    );
+            }
+        });
+    }
+
+    /**
+     * Show the latency trace when the send rate is held down.
+     */
+    private void initLatencyListener()
+    {
+        this.tvRate.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) 
+            {
+                if (Car.this.trace == null)
+                    return false;
+
+                Car.this.showLatency();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Show the latency of each stage from the event to the wire, with the 
+     * choice to export the histograms as CSV or start them again.
+     */
+    private void showLatency()
+    {
+        new AlertDialog.Builder(this.getActivity())
+            .setTitle(R.string.hud_latency)
+            .setMessage(this.trace.getSummary())
+            .setPositiveButton(
+                R.string.hud_latency_export,
+                new DialogInterface.OnClickListener() 
+                {
+                    public void onClick(DialogInterface dialog, int id) 
+                    {
+                        Car.this.exportLatency();
+                    }
+                }
+            )
+            .setNegativeButton(
+                R.string.hud_latency_reset,
+                new DialogInterface.OnClickListener() 
+                {
+                    public void onClick(DialogInterface dialog, int id) 
+                    {
+                        Car.this.trace.reset();
+                    }
+                }
+            )
+            .show();
+    }
+
+    /**
+     * Hand the latency histograms as CSV to whichever app the user picks,
+     * to mail or save them for analysis.
+     */
+    private void exportLatency()
+    {
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType("text/csv");
+        intent.putExtra(Intent.EXTRA_SUBJECT, "dashee latency");
+        intent.putExtra(Intent.EXTRA_TEXT, this.trace.toCsv());
+        startActivity(
+                Intent.createChooser(
+                    intent, 
+                    this.getString(R.string.hud_latency_export)
+                )
+            );
+    }
+
     /**
      * Set the Aliasing and fonts on all listeners.
      *
@@ -243,10 +423,22 @@ public class Car
         tvStatus.getPaint().setAntiAlias(false);
         tvStatus.setTypeface(visitorFont);
 
+        tvTelemetry = (TextView)view.findViewById(R.id.telemetry);
+        tvTelemetry.getPaint().setAntiAlias(false);
+        tvTelemetry.setTypeface(visitorFont);
+
         tvBPS = (TextView)view.findViewById(R.id.BPS_value);
         tvBPS.getPaint().setAntiAlias(false);
         tvBPS.setTypeface(visitorFont);
 
+        tvPackets = (TextView)view.findViewById(R.id.packets);
+        tvPackets.getPaint().setAntiAlias(false);
+        tvPackets.setTypeface(visitorFont);
+
+        tvRate = (TextView)view.findViewById(R.id.rate);
+        tvRate.getPaint().setAntiAlias(false);
+        tvRate.setTypeface(visitorFont);
+
         // Throttle
         tvThrottle = (TextView)view.findViewById(R.id.throttle);
         tvThrottle.setTypeface(visitor2Font);
@@ -318,80 +510,228 @@ public class Car
         if (bps < 0)
             this.tvBPS.setText("Negative?");
         else
-            this.tvBPS.setText(Integer.toString(bps));
+            this.tvBPS.setText(bps + " B/s");
     }
 
     /**
-     * Set the roll value of our view. This will change the value's of the text
-     * box and also update the rotation of the steering value
+     * Set the packet rates
      *
-     * @param roll the pitch value
+     * @param sent - packets sent per second
+     * @param received - packets received per second
+     * @param errors - errors in the last second
      */
-    public void setRoll(float roll)
+    public void setPackets(int sent, int received, int errors)
     {
-        try
-        {
-            // This is important, as the sensor calls this before the OS can 
-            // call setVehicle method
-            if (this.vehicle == null)
-                return;
+        this.packetsSent = sent;
+        this.packetsReceived = received;
+        this.packetErrors = errors;
+        this.showPackets();
+    }
 
-            // Set the vehicle value
-            this.vehicle.setRoll(
-                    Math.round(
-                        RangeMapping.mapValue(roll, -0.5f, 0.5f, 255.0f, 0.0f)
-                    )
-                );
+    /**
+     * Set the time the send call takes
+     *
+     * @param mean - the mean time in microseconds
+     * @param max - the longest time in microseconds
+     */
+    public void setSendLatency(int mean, int max)
+    {
+        this.latencyMean = mean;
+        this.latencyMax = max;
+        this.showPackets();
+    }
 
-            // Vibrate and print the text in a color, when min or max is hit
-            if (
-                    this.vehicle.getActualRoll() == 0 ||
-                    this.vehicle.getActualRoll() == 255
-                )
+    /**
+     * Show the packet rates and send latency in one line.
+     */
+    private void showPackets()
+    {
+        if (this.tvPackets == null)
+            return;
 
-            {
-                // Get instance of Vibrator from current Context
-                //Vibrator v = (Vibrator) getActivity().getSystemService(
-                //        Context.VIBRATOR_SERVICE
-                //    );
-                // Vibrate for 30 milliseconds
-                //v.vibrate(30);
-            }
+        this.tvPackets.setText(
+                this.packetsSent + "/" + this.packetsReceived + " pps " +
+                this.packetErrors + " err " +
+                this.latencyMean + "/" + this.latencyMax + "us"
+            );
+    }
+
+    /**
+     * Set our textbox send rate value, and match the sensor sampling to it.
+     * The reason is only shown when the rate is adapted
+     *
+     * @param period - the time between two packets in milliseconds
+     * @param reason - why the rate last changed
+     */
+    public void setRate(int period, RateControl.Reason reason)
+    {
+        this.sendPeriod = period;
+        if (this.phoneSensors != null)
+            this.phoneSensors.setSendPeriod(period);
+
+        if (this.tvRate == null)
+            return;
+
+        if (reason == RateControl.Reason.NONE)
+            this.tvRate.setText(period + "ms");
+        else
+            this.tvRate.setText(period + "ms " + reason);
+    }
 
-            // Convert the roll value from the vehicle, so min, max is 
-            // compensated
-            float mapped = RangeMapping.mapValue(
-                    this.vehicle.getActualRoll(), 
-                    0,
-                    255,
-                    0.0f,
-                    100.0f
+    /**
+     * Show the battery level on its gauge, the speed under the throttle and
+     * the voltage and signal under the connection status. Stale telemetry 
+     * is shown as unknown, rather than as the last values
+     *
+     * @param telemetry - the latest telemetry
+     */
+    public void setTelemetry(Telemetry telemetry)
+    {
+        if (this.tvThrottleKPH == null)
+            return;
+
+        if (telemetry.isFresh(System.nanoTime()))
+        {
+            int speed = telemetry.getSpeed();
+            this.tvThrottleKPH.setText(
+                    (speed / 10) + "." + (speed % 10) + " KPH"
                 );
+            this.hud.setBattery(telemetry.getBattery());
+            this.tvTelemetry.setText(
+                    String.format(
+                        Locale.US,
+                        "%.2fV %ddBm",
+                        telemetry.getVoltage() / 1000.0f,
+                        telemetry.getSignal()
+                    )
+                );
+        }
+        else
+        {
+            this.tvThrottleKPH.setText(R.string.hud_throttle_kph);
+            this.hud.setBattery(DrawHud.BATTERY_UNKNOWN);
+            this.tvTelemetry.setText(R.string.hud_telemetry);
+        }
+    }
 
+    /**
+     * Set the roll value of our vehicle, and post a redraw of the text box
+     * and the rotation of the steering value. Can be called on any thread, 
+     * the redraw is only posted if none is waiting.
+     *
+     * @param roll the roll value
+     * @param event the time of the sensor event in nanoseconds on the
+     *              System.nanoTime() clock, 0 if not known
+     */
+    public void setRoll(float roll, long event)
+    {
+        // This is important, as the sensor calls this before the OS can 
+        // call setVehicle method
+        if (this.vehicle == null)
+            return;
 
-            this.tvRoll.setText(Math.round(mapped)-50+"");
-            hud.setTilt(mapped);
+        try
+        {
+            // Set the vehicle value, at full resolution so the encoder can 
+            // send as many bits as the server takes
+            this.vehicle.setRollHires(
+                    Math.round(
+                        RangeMapping.mapValue(
+                            roll, 
+                            -0.5f, 
+                            0.5f, 
+                            org.dashee.remote.model.Vehicle.HIRES_MAX, 
+                            0.0f
+                        )
+                    ),
+                    event
+                );
+            this.trace(LatencyTrace.Stage.VEHICLE, event);
+            this.rollValid = true;
         }
         catch (OutOfRange e)    
+        {
+            this.rollValid = false;
+        }
+
+        if (this.rollPosted.compareAndSet(false, true))
+            this.postFrame(this.showRoll);
+    }
+
+    /**
+     * Run on the UI thread before the next frame is drawn, or as soon as 
+     * possible on phones without frame callbacks.
+     *
+     * @param runnable What to run
+     */
+    private void postFrame(Runnable runnable)
+    {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+            this.view.postOnAnimation(runnable);
+        else
+            this.view.post(runnable);
+    }
+
+    /**
+     * Show the roll of our vehicle. This will change the value's of the 
+     * text box and also update the rotation of the steering value. Runs on
+     * the UI thread.
+     */
+    private void showRoll()
+    {
+        if (!this.rollValid)
         {
             this.tvRoll.setText(
-                        Html.fromHtml("<font color='#D93600'>---</font>")
-                    );
+                    Html.fromHtml("<font color='#D93600'>---</font>")
+                );
+            return;
         }
+
+        // Vibrate and print the text in a color, when min or max is hit
+        if (
+                this.vehicle.getActualRoll() == 0 ||
+                this.vehicle.getActualRoll() == 255
+            )
+
+        {
+            // Get instance of Vibrator from current Context
+            //Vibrator v = (Vibrator) getActivity().getSystemService(
+            //        Context.VIBRATOR_SERVICE
+            //    );
+            // Vibrate for 30 milliseconds
+            //v.vibrate(30);
+        }
+
+        // Convert the roll value from the vehicle, so min, max is 
+        // compensated
+        float mapped = RangeMapping.mapValue(
+                this.vehicle.getActualRoll(), 
+                0,
+                255,
+                0.0f,
+                100.0f
+            );
+
+
+        this.tvRoll.setText(Math.round(mapped)-50+"");
+        hud.setTilt(mapped);
     }
 
     /**
      * Set our Throttle value. Update the button values and also update the 
      * throttle applied in the hud view
      *
-     * @param throttle The value of throttle applied
+     * @param throttle The value of throttle applied, at full resolution
+     * @param event The time of the touch event in nanoseconds on the
+     *              System.nanoTime() clock, 0 if not known
      */
-    public void setThrottle(int throttle)
+    public void setThrottle(int throttle, long event)
     {
         try
         {
             // Set the throttle value
-            this.vehicle.setThrottle(throttle);
+            this.vehicle.setThrottleHires(throttle, event);
+            this.trace(LatencyTrace.Stage.VEHICLE, event);
 
             float mapped 
                 = RangeMapping.mapValue(
@@ -418,19 +758,174 @@ public class Car
     /**
      *  Update our view and model. Given the phone's roll
      *  we update our server/model using our thread and we also
-     *  update the HUD rotational value
+     *  post an update of the HUD rotational value. Called on the 
+     *  sensor thread, the roll is filtered first
      *  
-     *  @param o The observer handler
-     *  @param arg The arguments to the Observer
+     *  @param yaw The yaw of the phone in radians
+     *  @param pitch The pitch of the phone in radians
+     *  @param roll The roll of the phone in radians
+     *  @param time The time of the sensor event in nanoseconds
+     */
+    public void onOrientationChanged(
+            float yaw, 
+            float pitch, 
+            float roll, 
+            long time
+        )
+    {
+        Filter filter = this.rollFilter;
+        if (filter != null)
+            roll = (float)Math.toRadians(
+                    filter.apply((float)Math.toDegrees(roll), time)
+                );
+        this.trace(LatencyTrace.Stage.FILTER, time);
+
+        Predictor predictor = this.rollPredictor;
+        if (predictor != null)
+            roll = this.predict(predictor, roll, time, -0.5f, 0.5f);
+
+        this.setRoll(roll, time);
+    }
+
+    /**
+     * Predict the value of an axis when it reaches the server, from the 
+     * time since the event, the send period and the round trip. A value in
+     * range is kept in range, one out of range is passed on as it is so it
+     * is still shown as out of range.
+     *
+     * @param predictor The predictor of the axis
+     * @param value The value of the axis
+     * @param time The time of the event in nanoseconds
+     * @param min The lowest value in range
+     * @param max The highest value in range
+     *
+     * @return The predicted value
+     */
+    private float predict(
+            Predictor predictor, 
+            float value, 
+            long time, 
+            float min, 
+            float max
+        )
+    {
+        Ping ping = this.ping;
+        long lead = Predictor.lead(
+                System.nanoTime() - time,
+                this.sendPeriod,
+                ping == null ? -1 : ping.getMean()
+            );
+
+        float predicted = predictor.apply(value, time, lead);
+        if (value < min || value > max)
+            return value;
+
+        return Math.min(Math.max(predicted, min), max);
+    }
+
+    /**
+     * Add the latency of an event at the end of a stage to the trace, if
+     * there is one.
+     *
+     * @param stage The stage just finished
+     * @param event The time of the event in nanoseconds
      */
-    public void update(Observable o, Object arg)
+    private void trace(LatencyTrace.Stage stage, long event)
     {
-        if (o instanceof PhoneSensors)
+        LatencyTrace trace = this.trace;
+        if (trace != null)
+            trace.record(stage, event, System.nanoTime());
+    }
+
+    /**
+     * Set the filter on the roll from its text. The new filter starts from 
+     * the next sample, a filter which is not valid is shown and not used.
+     *
+     * @param text The filter as text, empty for none
+     */
+    private void setRollFilter(String text)
+    {
+        try
+        {
+            this.rollFilter = Filter.parse(text);
+        }
+        catch (InvalidValue e)
+        {
+            this.rollFilter = null;
+            this.showError(e.getMessage());
+        }
+    }
+
+    /**
+     * Set the predictors of the roll and throttle from their settings. 
+     * Predictors start from the next sample, settings which are not valid 
+     * are shown and nothing is predicted.
+     *
+     * @param horizon The longest lead in milliseconds as text, 0 for none
+     * @param damping How fast the speed dies away each second as text
+     */
+    private void setPredictor(String horizon, String damping)
+    {
+        this.rollPredictor = null;
+        this.throttlePredictor = null;
+
+        try
+        {
+            int lead = Integer.parseInt(horizon.trim());
+            float rate = Float.parseFloat(damping.trim());
+            if (lead == 0)
+                return;
+
+            this.rollPredictor = new Predictor(lead, rate);
+            this.throttlePredictor = new Predictor(lead, rate);
+        }
+        catch (NumberFormatException e)
+        {
+            this.showError(this.getString(R.string.predict_invalid));
+        }
+        catch (OutOfRange e)
         {
-            this.setRoll(phoneSensors.getRoll());
+            this.showError(e.getMessage());
         }
     }
 
+    /**
+     * Let the sensors know the failsafe timeout, so they deliver samples
+     * well inside it. Invalid values are shown by the activity, here they
+     * leave the sampling as it is.
+     *
+     * @param timeout The timeout in milliseconds, as set
+     */
+    private void setFailsafeTimeout(String timeout)
+    {
+        try
+        {
+            this.phoneSensors.setFailsafeTimeout(
+                    Integer.parseInt(timeout.trim())
+                );
+        }
+        catch (NumberFormatException e)
+        {
+        }
+        catch (OutOfRange e)
+        {
+        }
+    }
+
+    /**
+     * Show a setting which is not valid.
+     *
+     * @param message Why it is not valid
+     */
+    private void showError(String message)
+    {
+        Toast.makeText(
+                this.getActivity(), 
+                message, 
+                Toast.LENGTH_SHORT
+            ).show();
+    }
+
     /**
      * Pause our values
      */
@@ -445,7 +940,31 @@ public class Car
      */
     public void onResume()
     {
+        SharedPreferences prefs 
+            = PreferenceManager.getDefaultSharedPreferences(
+                    this.getActivity()
+                );
+        this.phoneSensors.setBackground(
+                prefs.getBoolean("pref_sensor_thread", true)
+            );
+        this.setRollFilter(prefs.getString("roll_filter", ""));
+        this.setPredictor(
+                prefs.getString("pref_predict_horizon", "0"),
+                prefs.getString("pref_predict_damping", "0")
+            );
+        this.setFailsafeTimeout(
+                prefs.getString("pref_failsafe_timeout", "500")
+            );
         this.phoneSensors.onResume();
         super.onResume();
     }
+
+    /**
+     * Stop the sensor thread with the view it draws to
+     */
+    public void onDestroyView()
+    {
+        this.phoneSensors.close();
+        super.onDestroyView();
+    }
 }
@@ -3,6 +3,12 @@ package org.dashee.remote.model;
 import java.net.InetAddress;
 
 import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.network.Transport;
+import org.dashee.remote.thread.Scheduler;
+import org.dashee.remote.thread.Trigger;
+import org.dashee.remote.thread.Watchdog;
 
 /**
  * This class holds all the values associated with our application.
@@ -16,15 +22,82 @@ import org.dashee.remote.exception.OutOfRange;
  */
 public class Config
 {
+    /**
+     * When commands are sent. PERIODIC sends a frame on every deadline of
+     * the send period, ON_CHANGE sends as soon as the vehicle changes and a
+     * heartbeat otherwise.
+     */
+    public enum SendMode {
+        PERIODIC,
+        ON_CHANGE
+    };
+
     /**
      * The server port.
      */
-    private int port = 2047;
+    private volatile int port = 2047;
     
     /**
      * This is the server's IP Address.
      */
-    private InetAddress ip;
+    private volatile InetAddress ip;
+
+    /**
+     * The time between two command packets in milliseconds.
+     */
+    private volatile int sendPeriod = 30;
+
+    /**
+     * Whether the send period adapts to the link, and the bounds it adapts
+     * between, in milliseconds.
+     */
+    private volatile boolean adaptiveRate = false;
+    private volatile int sendPeriodMin = 10;
+    private volatile int sendPeriodMax = 100;
+
+    /**
+     * What the control loop does when it misses a deadline.
+     */
+    private volatile Scheduler.Policy sendPolicy = Scheduler.Policy.SKIP;
+
+    /**
+     * The transport used to talk to the server.
+     */
+    private volatile Transport.Type transport = Transport.Type.CHANNEL;
+
+    /**
+     * When commands are sent.
+     */
+    private volatile SendMode sendMode = SendMode.PERIODIC;
+
+    /**
+     * In ON_CHANGE mode, the minimum time between two packets and the time
+     * between heartbeats, in milliseconds.
+     */
+    private volatile int sendGap = 10;
+    private volatile int heartbeat = 250;
+
+    /**
+     * How long the input may stop before failsafe is sent, in milliseconds,
+     * 0 for never.
+     */
+    private volatile int failsafeTimeout = 500;
+
+    /**
+     * The format of our command packets.
+     */
+    private volatile Encoder.Format packetFormat = Encoder.Format.LEGACY;
+
+    /**
+     * The number of earlier frames each sequenced packet repeats.
+     */
+    private volatile int redundancy = 0;
+
+    /**
+     * The highest resolution to send channels at, in bits. The server may 
+     * take less.
+     */
+    private volatile int resolution = Packet.MIN_RESOLUTION;
 
     /**
      * Initialise our variables
@@ -76,4 +149,342 @@ public class Config
     {
         return this.ip;
     }
+
+    /**
+     * Set the time between two command packets.
+     *
+     * @param period The period in milliseconds
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public void setSendPeriod(int period)
+    {
+        this.validateSendPeriod(period);
+        this.sendPeriod = period;
+    }
+
+    /**
+     * Get the time between two command packets.
+     *
+     * @return The period in milliseconds
+     */
+    public int getSendPeriod()
+    {
+        return this.sendPeriod;
+    }
+
+    /**
+     * Set whether the send period adapts to the round trip and loss 
+     * measured on the link.
+     *
+     * @param adaptive true to adapt the period
+     */
+    public void setAdaptiveRate(boolean adaptive)
+    {
+        this.adaptiveRate = adaptive;
+    }
+
+    /**
+     * Check if the send period adapts to the link.
+     *
+     * @return true if the period adapts
+     */
+    public boolean isAdaptiveRate()
+    {
+        return this.adaptiveRate;
+    }
+
+    /**
+     * Set the shortest period the adaptive rate can go down to.
+     *
+     * @param period The period in milliseconds
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public void setSendPeriodMin(int period)
+    {
+        this.validateSendPeriod(period);
+        this.sendPeriodMin = period;
+    }
+
+    /**
+     * Get the shortest period the adaptive rate can go down to.
+     *
+     * @return The period in milliseconds
+     */
+    public int getSendPeriodMin()
+    {
+        return this.sendPeriodMin;
+    }
+
+    /**
+     * Set the longest period the adaptive rate can back off to.
+     *
+     * @param period The period in milliseconds
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public void setSendPeriodMax(int period)
+    {
+        this.validateSendPeriod(period);
+        this.sendPeriodMax = period;
+    }
+
+    /**
+     * Get the longest period the adaptive rate can back off to.
+     *
+     * @return The period in milliseconds
+     */
+    public int getSendPeriodMax()
+    {
+        return this.sendPeriodMax;
+    }
+
+    /**
+     * Set the policy used when the control loop misses a deadline.
+     *
+     * @param policy The policy to use
+     */
+    public void setSendPolicy(Scheduler.Policy policy)
+    {
+        this.sendPolicy = policy;
+    }
+
+    /**
+     * Get the policy used when the control loop misses a deadline.
+     *
+     * @return The policy
+     */
+    public Scheduler.Policy getSendPolicy()
+    {
+        return this.sendPolicy;
+    }
+
+    /**
+     * Set the transport used to talk to the server.
+     *
+     * @param transport The transport type
+     */
+    public void setTransport(Transport.Type transport)
+    {
+        this.transport = transport;
+    }
+
+    /**
+     * Get the transport used to talk to the server.
+     *
+     * @return The transport type
+     */
+    public Transport.Type getTransport()
+    {
+        return this.transport;
+    }
+
+    /**
+     * Set when commands are sent.
+     *
+     * @param mode The send mode
+     */
+    public void setSendMode(SendMode mode)
+    {
+        this.sendMode = mode;
+    }
+
+    /**
+     * Get when commands are sent.
+     *
+     * @return The send mode
+     */
+    public SendMode getSendMode()
+    {
+        return this.sendMode;
+    }
+
+    /**
+     * Set the minimum time between two packets in ON_CHANGE mode.
+     *
+     * @param gap The gap in milliseconds
+     *
+     * @throws OutOfRange if the gap is not valid
+     */
+    public void setSendGap(int gap)
+    {
+        if (gap < Trigger.MIN_GAP || gap > Trigger.MAX_GAP)
+            throw new OutOfRange(
+                    "Send gap must be between " + Trigger.MIN_GAP + "-" + 
+                    Trigger.MAX_GAP
+                );
+
+        this.sendGap = gap;
+    }
+
+    /**
+     * Get the minimum time between two packets in ON_CHANGE mode.
+     *
+     * @return The gap in milliseconds
+     */
+    public int getSendGap()
+    {
+        return this.sendGap;
+    }
+
+    /**
+     * Set the time between heartbeats in ON_CHANGE mode.
+     *
+     * @param heartbeat The heartbeat period in milliseconds
+     *
+     * @throws OutOfRange if the heartbeat is not valid
+     */
+    public void setHeartbeat(int heartbeat)
+    {
+        if (
+                heartbeat < Trigger.MIN_HEARTBEAT || 
+                heartbeat > Trigger.MAX_HEARTBEAT
+            )
+            throw new OutOfRange(
+                    "Heartbeat must be between " + Trigger.MIN_HEARTBEAT + 
+                    "-" + Trigger.MAX_HEARTBEAT
+                );
+
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Get the time between heartbeats in ON_CHANGE mode.
+     *
+     * @return The heartbeat period in milliseconds
+     */
+    public int getHeartbeat()
+    {
+        return this.heartbeat;
+    }
+
+    /**
+     * Set how long the input may stop before failsafe is sent.
+     *
+     * @param timeout The timeout in milliseconds, 0 for never
+     *
+     * @throws OutOfRange if the timeout is not valid
+     */
+    public void setFailsafeTimeout(int timeout)
+    {
+        if (
+                timeout != 0 &&
+                (
+                    timeout < Watchdog.MIN_TIMEOUT || 
+                    timeout > Watchdog.MAX_TIMEOUT
+                )
+            )
+            throw new OutOfRange(
+                    "Failsafe timeout must be 0 or between " + 
+                    Watchdog.MIN_TIMEOUT + "-" + Watchdog.MAX_TIMEOUT
+                );
+
+        this.failsafeTimeout = timeout;
+    }
+
+    /**
+     * Get how long the input may stop before failsafe is sent.
+     *
+     * @return The timeout in milliseconds, 0 for never
+     */
+    public int getFailsafeTimeout()
+    {
+        return this.failsafeTimeout;
+    }
+
+    /**
+     * Set the format of our command packets. Servers which do not understand
+     * the newer formats need LEGACY.
+     *
+     * @param format The packet format
+     */
+    public void setPacketFormat(Encoder.Format format)
+    {
+        this.packetFormat = format;
+    }
+
+    /**
+     * Get the format of our command packets.
+     *
+     * @return The packet format
+     */
+    public Encoder.Format getPacketFormat()
+    {
+        return this.packetFormat;
+    }
+
+    /**
+     * Set the number of earlier frames each sequenced packet repeats, so the
+     * server can recover a lost packet from the next one.
+     *
+     * @param frames The number of frames, 0 to turn it off
+     *
+     * @throws OutOfRange if the number is not valid
+     */
+    public void setRedundancy(int frames)
+    {
+        if (frames < 0 || frames > Encoder.MAX_REDUNDANCY)
+            throw new OutOfRange(
+                    "Redundancy must be between 0-" + Encoder.MAX_REDUNDANCY
+                );
+
+        this.redundancy = frames;
+    }
+
+    /**
+     * Get the number of earlier frames each sequenced packet repeats.
+     *
+     * @return The number of frames
+     */
+    public int getRedundancy()
+    {
+        return this.redundancy;
+    }
+
+    /**
+     * Set the highest resolution to send channels at. Higher resolutions 
+     * need the sequenced format, and are only used once the server says it
+     * takes them.
+     *
+     * @param bits The resolution in bits
+     *
+     * @throws OutOfRange if the resolution is not valid
+     */
+    public void setResolution(int bits)
+    {
+        if (bits < Packet.MIN_RESOLUTION || bits > Packet.MAX_RESOLUTION)
+            throw new OutOfRange(
+                    "Resolution must be between " + Packet.MIN_RESOLUTION +
+                    "-" + Packet.MAX_RESOLUTION
+                );
+
+        this.resolution = bits;
+    }
+
+    /**
+     * Get the highest resolution to send channels at.
+     *
+     * @return The resolution in bits
+     */
+    public int getResolution()
+    {
+        return this.resolution;
+    }
+
+    /**
+     * Make sure a send period is one our scheduler can keep.
+     *
+     * @param period The period in milliseconds
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    private void validateSendPeriod(int period)
+    {
+        if (period < Scheduler.MIN_PERIOD || period > Scheduler.MAX_PERIOD)
+            throw new OutOfRange(
+                    "Send period must be between " + Scheduler.MIN_PERIOD +
+                    "-" + Scheduler.MAX_PERIOD
+                );
+    }
 }
@@ -0,0 +1,204 @@
+package org.dashee.remote.model;
+
+import org.dashee.remote.exception.InvalidValue;
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * The response curve of a channel, from how far the control is moved to
+ * how far the channel moves. Both go from -1 at one end, through 0 in the
+ * middle, to 1 at the other end.
+ *
+ * The shape is either expo, which softens the middle so small movements
+ * give finer control, or a custom curve through points spread evenly from
+ * one end to the other. The shape is then scaled by the rate, or by the low
+ * rate when dual rate is switched to low.
+ *
+ * A curve is never changed once created. It is only evaluated when the
+ * vehicle compiles its tables, so none of this runs per value.
+ */
+public final class Curve
+{
+    /**
+     * The straight line at full rate, used until a curve is set.
+     */
+    public static final Curve LINEAR = new Curve(0, 100, 100, null);
+
+    /**
+     * The most points a custom curve can have.
+     */
+    public static final int MAX_POINTS = 17;
+
+    /**
+     * The expo, rate and low rate in percent.
+     */
+    private final int expo;
+    private final int rate;
+    private final int lowRate;
+
+    /**
+     * The points of a custom curve from -1 to 1, or null for expo.
+     */
+    private final float[] points;
+
+    /**
+     * Create a curve.
+     *
+     * @param expo How much to soften the middle, from 0 to 100 percent
+     * @param rate The travel at high rate, from 1 to 100 percent
+     * @param lowRate The travel at low rate, from 1 to 100 percent
+     * @param points The points of a custom curve from -100 to 100 percent,
+     *               at least 2, or null to use expo
+     *
+     * @throws OutOfRange if any value is not valid
+     */
+    public Curve(int expo, int rate, int lowRate, int[] points)
+    {
+        if (expo < 0 || expo > 100)
+            throw new OutOfRange("Expo must be between 0-100");
+
+        if (rate < 1 || rate > 100 || lowRate < 1 || lowRate > 100)
+            throw new OutOfRange("Rate must be between 1-100");
+
+        this.expo = expo;
+        this.rate = rate;
+        this.lowRate = lowRate;
+
+        if (points == null)
+        {
+            this.points = null;
+            return;
+        }
+
+        if (points.length < 2 || points.length > MAX_POINTS)
+            throw new OutOfRange(
+                    "Curve must have between 2-" + MAX_POINTS + " points"
+                );
+
+        this.points = new float[points.length];
+        for (int x = 0; x < points.length; ++x)
+        {
+            if (points[x] < -100 || points[x] > 100)
+                throw new OutOfRange("Curve points must be between -100-100");
+
+            this.points[x] = points[x] / 100.0f;
+        }
+    }
+
+    /**
+     * Read the points of a custom curve, written as percentages separated
+     * by commas, such as "-100, -30, 0, 30, 100".
+     *
+     * @param text The points, or an empty string for none
+     *
+     * @return The points, or null when there are none
+     *
+     * @throws InvalidValue if the text is not a list of numbers
+     */
+    public static int[] parsePoints(String text)
+    {
+        if (text == null || text.trim().length() == 0)
+            return null;
+
+        String[] parts = text.split(",");
+        int[] points = new int[parts.length];
+        try
+        {
+            for (int x = 0; x < parts.length; ++x)
+                points[x] = Integer.parseInt(parts[x].trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new InvalidValue("Curve points must be numbers", e);
+        }
+
+        return points;
+    }
+
+    /**
+     * Get the expo.
+     *
+     * @return The expo in percent
+     */
+    public int getExpo()
+    {
+        return this.expo;
+    }
+
+    /**
+     * Get the high rate.
+     *
+     * @return The rate in percent
+     */
+    public int getRate()
+    {
+        return this.rate;
+    }
+
+    /**
+     * Get the low rate.
+     *
+     * @return The rate in percent
+     */
+    public int getLowRate()
+    {
+        return this.lowRate;
+    }
+
+    /**
+     * Check if this is a custom curve.
+     *
+     * @return true if the shape comes from points rather than expo
+     */
+    public boolean isCustom()
+    {
+        return this.points != null;
+    }
+
+    /**
+     * Work out how far the channel moves.
+     *
+     * @param input How far the control is moved, from -1 to 1
+     * @param low true to use the low rate
+     *
+     * @return How far the channel moves, from -1 to 1
+     */
+    public float apply(float input, boolean low)
+    {
+        float output = this.points == null ?
+            this.expo(input) :
+            this.interpolate(input);
+
+        return output * (low ? this.lowRate : this.rate) / 100.0f;
+    }
+
+    /**
+     * The expo shape, a blend of the straight line and its cube. The slope
+     * in the middle drops with the expo while both ends stay in place.
+     *
+     * @param input From -1 to 1
+     *
+     * @return From -1 to 1
+     */
+    private float expo(float input)
+    {
+        float expo = this.expo / 100.0f;
+        return input * (1.0f - expo) + input * input * input * expo;
+    }
+
+    /**
+     * The custom shape, straight lines between the points.
+     *
+     * @param input From -1 to 1
+     *
+     * @return From -1 to 1
+     */
+    private float interpolate(float input)
+    {
+        float position = (input + 1.0f) / 2.0f * (this.points.length - 1);
+        int x = Math.min(Math.max((int)position, 0), this.points.length - 2);
+        float fraction = position - x;
+
+        return this.points[x] +
+            (this.points[x + 1] - this.points[x]) * fraction;
+    }
+}
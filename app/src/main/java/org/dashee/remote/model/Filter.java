@@ -0,0 +1,153 @@
+package org.dashee.remote.model;
+
+import org.dashee.remote.exception.InvalidValue;
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.filter.Chain;
+import org.dashee.remote.model.filter.Deadband;
+import org.dashee.remote.model.filter.LowPass;
+import org.dashee.remote.model.filter.Median;
+import org.dashee.remote.model.filter.OneEuro;
+
+/**
+ * A filter on one input axis, run on every sample before the value is set
+ * on the vehicle, to keep sensor noise from becoming jitter on the servos
+ * and packets nobody needs.
+ *
+ * Filters keep their state in primitive fields and ring buffers sized when
+ * they are created, so apply() never allocates and costs the same on every
+ * sample. A filter belongs to the one thread feeding it samples. To change
+ * the settings create a new filter and swap it in.
+ *
+ * Filters are written as text, a stage per filter separated by commas, the
+ * name first followed by its settings:
+ *
+ *   median 5, euro 1.0 0.007, deadband 0.5
+ *
+ *   lowpass HZ       Low-pass with the cutoff frequency in Hz
+ *   euro HZ BETA     1 Euro filter, the cutoff when still in Hz and how
+ *                    fast the cutoff rises with speed
+ *   median N         Median of the last N samples
+ *   deadband WIDTH   Hold the value until it moves more than WIDTH
+ *
+ * The stages run in the order written. Settings are in the units of the
+ * axis the filter is used on.
+ */
+public abstract class Filter
+{
+    /**
+     * The most stages a filter can be written with.
+     */
+    public static final int MAX_STAGES = 8;
+
+    /**
+     * The highest cutoff frequency of a filter in Hz.
+     */
+    public static final float MAX_CUTOFF = 1000.0f;
+
+    /**
+     * Samples further apart than this in nanoseconds are taken as a new
+     * start, the input stopped in between.
+     */
+    public static final long MAX_GAP = 1000000000L;
+
+    /**
+     * Filter a sample.
+     *
+     * @param value The sample
+     * @param time The time of the sample in nanoseconds
+     *
+     * @return The filtered value
+     */
+    public abstract float apply(float value, long time);
+
+    /**
+     * Forget the samples so far, the next sample is passed as it is.
+     */
+    public abstract void reset();
+
+    /**
+     * Build a filter from its text.
+     *
+     * @param text The stages separated by commas
+     *
+     * @return The filter, or null if the text is empty
+     *
+     * @throws InvalidValue if the text is not a valid filter
+     */
+    public static Filter parse(String text)
+    {
+        if (text == null || text.trim().length() == 0)
+            return null;
+
+        String[] parts = text.split(",");
+        if (parts.length > MAX_STAGES)
+            throw new InvalidValue(
+                    "Filter can have at most " + MAX_STAGES + " stages"
+                );
+
+        Filter[] stages = new Filter[parts.length];
+        try
+        {
+            for (int x = 0; x < parts.length; ++x)
+                stages[x] = parseStage(parts[x].trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new InvalidValue("Filter settings must be numbers", e);
+        }
+        catch (OutOfRange e)
+        {
+            throw new InvalidValue(e.getMessage(), e);
+        }
+
+        return stages.length == 1 ? stages[0] : new Chain(stages);
+    }
+
+    /**
+     * Get how much of a new sample a first order low-pass takes.
+     *
+     * @param cutoff The cutoff frequency in Hz
+     * @param elapsed The time since the last sample in seconds
+     *
+     * @return The share of the new sample, from 0 to 1
+     */
+    protected static float alpha(float cutoff, float elapsed)
+    {
+        float tau = 1.0f / (2.0f * (float)Math.PI * cutoff);
+        return elapsed / (elapsed + tau);
+    }
+
+    /**
+     * Build one stage of a filter.
+     *
+     * @param stage The name of the stage followed by its settings
+     *
+     * @return The stage
+     *
+     * @throws InvalidValue if the name or the number of settings is wrong
+     * @throws NumberFormatException if a setting is not a number
+     * @throws OutOfRange if a setting is not valid
+     */
+    private static Filter parseStage(String stage)
+    {
+        String[] words = stage.split("\\s+");
+        String name = words[0].toLowerCase();
+
+        if (name.equals("lowpass") && words.length == 2)
+            return new LowPass(Float.parseFloat(words[1]));
+
+        if (name.equals("euro") && words.length == 3)
+            return new OneEuro(
+                    Float.parseFloat(words[1]),
+                    Float.parseFloat(words[2])
+                );
+
+        if (name.equals("median") && words.length == 2)
+            return new Median(Integer.parseInt(words[1]));
+
+        if (name.equals("deadband") && words.length == 2)
+            return new Deadband(Float.parseFloat(words[1]));
+
+        throw new InvalidValue("Filter '" + stage + "' is not valid");
+    }
+}
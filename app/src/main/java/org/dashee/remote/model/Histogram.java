@@ -0,0 +1,227 @@
+package org.dashee.remote.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * A histogram of times in microseconds, with buckets spread on a log
+ * scale so it covers microseconds to seconds in a fixed array.
+ *
+ * Times under SUB_BUCKETS get a bucket each. Above that every power of two
+ * is split into SUB_BUCKETS buckets, so a bucket is at most a quarter of
+ * its lower bound wide. Times past the last bucket count in it.
+ *
+ * Recording is an atomic add to a bucket, so any thread can record at any
+ * time and it never locks or allocates. Reading while others record gives
+ * counts a few records apart, which is fine for latencies.
+ */
+public class Histogram
+{
+    /**
+     * The number of buckets each power of two is split into, and the bits
+     * it takes.
+     */
+    public static final int SUB_BITS = 2;
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The number of buckets, enough for just over 30 seconds.
+     */
+    public static final int BUCKETS = 96;
+
+    /**
+     * The number of times in each bucket.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The number of times, their sum and the longest, in microseconds.
+     */
+    private final AtomicLong count = new AtomicLong(0);
+    private final AtomicLong sum = new AtomicLong(0);
+    private final AtomicLong max = new AtomicLong(0);
+
+    /**
+     * Find the bucket a time goes in.
+     *
+     * @param micros The time in microseconds, 0 or more
+     *
+     * @return The bucket index
+     */
+    public static int bucket(long micros)
+    {
+        if (micros < SUB_BUCKETS)
+            return (int)Math.max(micros, 0);
+
+        int bit = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int)(micros >>> (bit - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return Math.min(
+                (bit - SUB_BITS + 1) * SUB_BUCKETS + sub,
+                BUCKETS - 1
+            );
+    }
+
+    /**
+     * Get the lowest time in a bucket.
+     *
+     * @param index The bucket index
+     *
+     * @return The time in microseconds
+     *
+     * @throws OutOfRange if the index is not valid
+     */
+    public static long getLow(int index)
+    {
+        checkIndex(index);
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int shift = index / SUB_BUCKETS - 1;
+        return (long)(SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Get the time just past a bucket.
+     *
+     * @param index The bucket index
+     *
+     * @return The time in microseconds
+     *
+     * @throws OutOfRange if the index is not valid
+     */
+    public static long getHigh(int index)
+    {
+        checkIndex(index);
+        if (index < SUB_BUCKETS)
+            return index + 1;
+
+        return getLow(index) + (1L << (index / SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Make sure a bucket index is valid.
+     *
+     * @param index The bucket index
+     *
+     * @throws OutOfRange if the index is not valid
+     */
+    private static void checkIndex(int index)
+    {
+        if (index < 0 || index >= BUCKETS)
+            throw new OutOfRange(
+                    "Bucket must be between 0-" + (BUCKETS - 1)
+                );
+    }
+
+    /**
+     * Add a time.
+     *
+     * @param micros The time in microseconds
+     */
+    public void record(long micros)
+    {
+        micros = Math.max(micros, 0);
+        this.counts.incrementAndGet(bucket(micros));
+        this.count.incrementAndGet();
+        this.sum.addAndGet(micros);
+
+        long max = this.max.get();
+        while (micros > max && !this.max.compareAndSet(max, micros))
+            max = this.max.get();
+    }
+
+    /**
+     * Get the number of times in a bucket.
+     *
+     * @param index The bucket index
+     *
+     * @return The count
+     *
+     * @throws OutOfRange if the index is not valid
+     */
+    public long get(int index)
+    {
+        checkIndex(index);
+        return this.counts.get(index);
+    }
+
+    /**
+     * Get the number of times added.
+     *
+     * @return The count
+     */
+    public long getCount()
+    {
+        return this.count.get();
+    }
+
+    /**
+     * Get the mean time.
+     *
+     * @return The mean in microseconds, 0 if there are none
+     */
+    public long getMean()
+    {
+        long count = this.count.get();
+        return count == 0 ? 0 : this.sum.get() / count;
+    }
+
+    /**
+     * Get the longest time.
+     *
+     * @return The time in microseconds, 0 if there are none
+     */
+    public long getMax()
+    {
+        return this.max.get();
+    }
+
+    /**
+     * Get the time a share of the times are under, to the resolution of
+     * the buckets. The top of the bucket is given, but never more than the
+     * longest time.
+     *
+     * @param percent The share, from 0 to 100
+     *
+     * @return The time in microseconds, 0 if there are none
+     *
+     * @throws OutOfRange if the share is not valid
+     */
+    public long getPercentile(float percent)
+    {
+        if (!(percent >= 0.0f && percent <= 100.0f))
+            throw new OutOfRange("Percentile must be between 0-100");
+
+        long total = 0;
+        for (int x = 0; x < BUCKETS; ++x)
+            total += this.counts.get(x);
+        if (total == 0)
+            return 0;
+
+        long wanted = Math.max((long)Math.ceil(total * percent / 100.0), 1);
+        long seen = 0;
+        for (int x = 0; x < BUCKETS; ++x)
+        {
+            seen += this.counts.get(x);
+            if (seen >= wanted)
+                return Math.min(getHigh(x) - 1, this.max.get());
+        }
+
+        return this.max.get();
+    }
+
+    /**
+     * Forget all the times.
+     */
+    public void reset()
+    {
+        for (int x = 0; x < BUCKETS; ++x)
+            this.counts.set(x, 0);
+
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+}
@@ -0,0 +1,186 @@
+package org.dashee.remote.model;
+
+import java.util.Locale;
+
+/**
+ * Traces how long input takes from the event behind it to the wire.
+ *
+ * Every input carries the time of its event, SensorEvent.timestamp or
+ * MotionEvent.getEventTime(), moved to the System.nanoTime() clock. The
+ * vehicle keeps the time of the event behind its newest change, so it
+ * travels with the value into the control loop. At the end of each stage
+ * the time since the event is added to the histogram of that stage, so a
+ * stage shows the latency up to and including it:
+ *
+ *   FILTER   the roll is worked out and filtered, sensor input only
+ *   VEHICLE  the value is set on the vehicle
+ *   ENCODE   the control loop has encoded a frame holding it
+ *   SEND     the transport has sent that frame
+ *
+ * Each event is counted once at each stage, frames sent again with the
+ * same input are not. Latencies which can not be right, from a clock going
+ * back or an event older than MAX_LATENCY, are dropped.
+ */
+public class LatencyTrace
+{
+    /**
+     * The stages traced, in the order the input goes through them.
+     */
+    public enum Stage {
+        FILTER,
+        VEHICLE,
+        ENCODE,
+        SEND
+    };
+
+    /**
+     * The longest latency believed, in nanoseconds.
+     */
+    public static final long MAX_LATENCY = 10000000000L;
+
+    /**
+     * The percentiles shown in the summary.
+     */
+    private static final float[] PERCENTILES = { 50.0f, 90.0f, 99.0f };
+
+    /**
+     * A histogram for each stage, in the order of Stage.
+     */
+    private final Histogram[] histograms;
+
+    /**
+     * Create an empty trace.
+     */
+    public LatencyTrace()
+    {
+        Stage[] stages = Stage.values();
+        this.histograms = new Histogram[stages.length];
+        for (int x = 0; x < stages.length; ++x)
+            this.histograms[x] = new Histogram();
+    }
+
+    /**
+     * Add the latency of an event at the end of a stage. Can be called on
+     * any thread, and does not allocate.
+     *
+     * @param stage The stage just finished
+     * @param event The time of the event in nanoseconds, 0 if not known
+     * @param time The time now in nanoseconds
+     */
+    public void record(Stage stage, long event, long time)
+    {
+        if (event == 0)
+            return;
+
+        long latency = time - event;
+        if (latency < 0 || latency > MAX_LATENCY)
+            return;
+
+        this.histograms[stage.ordinal()].record(latency / 1000L);
+    }
+
+    /**
+     * Get the histogram of a stage.
+     *
+     * @param stage The stage
+     *
+     * @return The histogram, in microseconds
+     */
+    public Histogram getHistogram(Stage stage)
+    {
+        return this.histograms[stage.ordinal()];
+    }
+
+    /**
+     * Forget all the latencies.
+     */
+    public void reset()
+    {
+        for (int x = 0; x < this.histograms.length; ++x)
+            this.histograms[x].reset();
+    }
+
+    /**
+     * Describe each stage in a line, with the number of events, the mean,
+     * the percentiles and the longest latency in milliseconds.
+     *
+     * @return The summary
+     */
+    public String getSummary()
+    {
+        StringBuilder summary = new StringBuilder();
+        Stage[] stages = Stage.values();
+
+        for (int x = 0; x < stages.length; ++x)
+        {
+            Histogram histogram = this.histograms[x];
+            summary.append(
+                    String.format(
+                        Locale.US,
+                        "%-8s n=%d mean %s",
+                        stages[x],
+                        histogram.getCount(),
+                        millis(histogram.getMean())
+                    )
+                );
+
+            for (int p = 0; p < PERCENTILES.length; ++p)
+                summary.append(
+                        String.format(
+                            Locale.US,
+                            " p%.0f %s",
+                            PERCENTILES[p],
+                            millis(histogram.getPercentile(PERCENTILES[p]))
+                        )
+                    );
+
+            summary.append(" max ")
+                .append(millis(histogram.getMax()))
+                .append('\n');
+        }
+
+        return summary.toString();
+    }
+
+    /**
+     * Write the histograms as CSV, a row for each bucket of each stage
+     * which holds any events, for analysis elsewhere.
+     *
+     * @return The CSV, with a header row
+     */
+    public String toCsv()
+    {
+        StringBuilder csv = new StringBuilder("stage,low_us,high_us,count\n");
+        Stage[] stages = Stage.values();
+
+        for (int x = 0; x < stages.length; ++x)
+        {
+            Histogram histogram = this.histograms[x];
+            for (int bucket = 0; bucket < Histogram.BUCKETS; ++bucket)
+            {
+                long count = histogram.get(bucket);
+                if (count == 0)
+                    continue;
+
+                csv.append(stages[x]).append(',')
+                    .append(Histogram.getLow(bucket)).append(',')
+                    .append(Histogram.getHigh(bucket)).append(',')
+                    .append(count).append('\n');
+            }
+        }
+
+        return csv.toString();
+    }
+
+    /**
+     * Format a time in milliseconds.
+     *
+     * @param micros The time in microseconds
+     *
+     * @return The time with one decimal and ms
+     */
+    private static String millis(long micros)
+    {
+        return String.format(Locale.US, "%.1fms", micros / 1000.0f);
+    }
+}
@@ -0,0 +1,191 @@
+package org.dashee.remote.model;
+
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * Mixes the channels of a vehicle into the channels sent, for vehicles
+ * where one control moves more than one servo, such as elevons, a V-tail
+ * or tank steering.
+ *
+ * Every channel sent is the middle plus a weighted sum of how far each
+ * channel is from the middle, held between MIN and HIRES_MAX. The weights
+ * are a matrix with a row per channel sent and a column per channel read,
+ * kept in fixed point with ONE as 100%, so mixing is only integer multiply
+ * and add. Channels no row is given for are passed through.
+ *
+ * A mixer is never changed once created, so it can be swapped in while
+ * the vehicle is being sent. mix() does not allocate.
+ */
+public final class Mixer
+{
+    /**
+     * The mixes we know how to set up.
+     */
+    public enum Type {
+        NONE,
+        ELEVON,
+        VTAIL,
+        TANK,
+        THROTTLE_STEER
+    };
+
+    /**
+     * A weight of 100% in fixed point, and the shift to divide by it.
+     */
+    public static final int SHIFT = 8;
+    public static final int ONE = 1 << SHIFT;
+
+    /**
+     * The largest weight, in percent either way.
+     */
+    public static final int MAX_WEIGHT = 200;
+
+    /**
+     * The weights, row by row, MAX_CHANNELS columns per row.
+     */
+    private final int[] weights;
+
+    /**
+     * Create a mixer from a matrix of weights.
+     *
+     * @param percent A row per channel sent, holding the weight of each
+     *                channel read in percent. Missing rows and columns are
+     *                the same as no mixer.
+     *
+     * @throws OutOfRange if the matrix is too large or a weight is not valid
+     */
+    public Mixer(int[][] percent)
+    {
+        int size = Vehicle.MAX_CHANNELS;
+        if (percent.length > size)
+            throw new OutOfRange("Mixer can have at most 16 rows");
+
+        this.weights = new int[size * size];
+        for (int x = 0; x < size; ++x)
+            this.weights[x * size + x] = ONE;
+
+        for (int row = 0; row < percent.length; ++row)
+        {
+            if (percent[row].length > size)
+                throw new OutOfRange("Mixer can have at most 16 columns");
+
+            this.weights[row * size + row] = 0;
+            for (int column = 0; column < percent[row].length; ++column)
+            {
+                int weight = percent[row][column];
+                if (weight < -MAX_WEIGHT || weight > MAX_WEIGHT)
+                    throw new OutOfRange(
+                            "Mix weights must be between -200-200"
+                        );
+
+                this.weights[row * size + column]
+                    = Math.round(weight * ONE / 100.0f);
+            }
+        }
+    }
+
+    /**
+     * Create one of the mixes we know. The channels sent take the place of
+     * the channels they are mixed from:
+     *
+     *   ELEVON          pitch is the left elevon and roll the right one,
+     *                   each half pitch and half roll
+     *   VTAIL           pitch is the left ruddervator and yaw the right
+     *                   one, each half pitch and half yaw
+     *   TANK            throttle is the left track and roll the right one,
+     *                   each half throttle and half roll
+     *   THROTTLE_STEER  roll is steered against the throttle by amount, to
+     *                   hold a straight line under power
+     *
+     * @param type The mix
+     * @param amount The amount of throttle to steer with, in percent, only
+     *               used by THROTTLE_STEER
+     *
+     * @return The mixer, or null for NONE
+     *
+     * @throws OutOfRange if the amount is not valid
+     */
+    public static Mixer create(Type type, int amount)
+    {
+        int pitch = Vehicle.CHANNEL_PITCH;
+        int roll = Vehicle.CHANNEL_ROLL;
+        int yaw = Vehicle.CHANNEL_YAW;
+        int throttle = Vehicle.CHANNEL_THROTTLE;
+
+        int[][] percent = new int[Vehicle.CHANNEL_COUNT][];
+        for (int x = 0; x < percent.length; ++x)
+        {
+            percent[x] = new int[Vehicle.CHANNEL_COUNT];
+            percent[x][x] = 100;
+        }
+
+        switch (type)
+        {
+            case ELEVON:
+                percent[pitch][pitch] = 50;
+                percent[pitch][roll] = 50;
+                percent[roll][pitch] = 50;
+                percent[roll][roll] = -50;
+                break;
+            case VTAIL:
+                percent[pitch][pitch] = 50;
+                percent[pitch][yaw] = 50;
+                percent[yaw][pitch] = 50;
+                percent[yaw][yaw] = -50;
+                break;
+            case TANK:
+                percent[throttle][throttle] = 50;
+                percent[throttle][roll] = 50;
+                percent[roll][throttle] = 50;
+                percent[roll][roll] = -50;
+                break;
+            case THROTTLE_STEER:
+                percent[roll][throttle] = -amount;
+                break;
+            default:
+                return null;
+        }
+
+        return new Mixer(percent);
+    }
+
+    /**
+     * Get the weight of a channel read in a channel sent.
+     *
+     * @param output The channel sent
+     * @param input The channel read
+     *
+     * @return The weight, with ONE as 100%
+     */
+    public int getWeight(int output, int input)
+    {
+        return this.weights[output * Vehicle.MAX_CHANNELS + input];
+    }
+
+    /**
+     * Mix hires values.
+     *
+     * @param input The channels read, from MIN to HIRES_MAX
+     * @param output The array to write the channels sent to, not input
+     * @param count The number of channels
+     */
+    public void mix(int[] input, int[] output, int count)
+    {
+        int size = Vehicle.MAX_CHANNELS;
+        for (int row = 0, base = 0; row < count; ++row, base += size)
+        {
+            int sum = 0;
+            for (int column = 0; column < count; ++column)
+                sum += this.weights[base + column] *
+                    (input[column] - Vehicle.HIRES_MID);
+
+            int value = Vehicle.HIRES_MID + (sum >> SHIFT);
+            if (value < Vehicle.MIN)
+                value = Vehicle.MIN;
+            else if (value > Vehicle.HIRES_MAX)
+                value = Vehicle.HIRES_MAX;
+
+            output[row] = value;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.dashee.remote.model;
+
+/**
+ * Works out the angles of the phone straight from a rotation vector, the
+ * unit quaternion given by the ROTATION_VECTOR sensor.
+ *
+ * SensorManager builds a full rotation matrix from the quaternion and then
+ * takes all three angles from it. Each angle only needs two or three terms
+ * of that matrix, so here every axis is worked out on its own from the
+ * quaternion, and axes nobody asked for cost nothing. The angles are the
+ * ones SensorManager.getOrientation() returns, named the way the phone is
+ * held, on its side:
+ *
+ *   yaw    getOrientation()[0], the azimuth
+ *   roll   getOrientation()[1], which SensorManager calls pitch
+ *   pitch  getOrientation()[2], which SensorManager calls roll
+ *
+ * Plain Java with no state, so it runs on the JVM and never allocates.
+ */
+public final class Orientation
+{
+    /**
+     * The axes, to be or-ed together when asking for more than one.
+     */
+    public static final int YAW = 0x01;
+    public static final int PITCH = 0x02;
+    public static final int ROLL = 0x04;
+    public static final int ALL = YAW | PITCH | ROLL;
+
+    /**
+     * Nothing to create, all methods are static.
+     */
+    private Orientation()
+    {
+    }
+
+    /**
+     * Get the scalar part of the quaternion. Older phones only give the
+     * vector part, the scalar then follows from it being a unit quaternion.
+     *
+     * @param vector The values of the rotation vector event
+     *
+     * @return The scalar part
+     */
+    public static float scalar(float[] vector)
+    {
+        if (vector.length >= 4)
+            return vector[3];
+
+        float w = 1.0f - vector[0] * vector[0] - vector[1] * vector[1] -
+            vector[2] * vector[2];
+        return w > 0.0f ? (float)Math.sqrt(w) : 0.0f;
+    }
+
+    /**
+     * Get the yaw, the azimuth around the axis out of the ground.
+     *
+     * @param vector The values of the rotation vector event
+     *
+     * @return The yaw in radians, from -PI to PI
+     */
+    public static float yaw(float[] vector)
+    {
+        float x = vector[0];
+        float y = vector[1];
+        float z = vector[2];
+        float w = scalar(vector);
+
+        return (float)Math.atan2(
+                2.0f * (x * y - z * w),
+                1.0f - 2.0f * (x * x + z * z)
+            );
+    }
+
+    /**
+     * Get the roll, the tilt around the long side of a phone on its side.
+     *
+     * @param vector The values of the rotation vector event
+     *
+     * @return The roll in radians, from -PI/2 to PI/2
+     */
+    public static float roll(float[] vector)
+    {
+        float x = vector[0];
+        float y = vector[1];
+        float z = vector[2];
+        float w = scalar(vector);
+
+        // Rounding can take the sine just past 1, asin would give NaN
+        float sine = -2.0f * (y * z + x * w);
+        return (float)Math.asin(Math.max(-1.0f, Math.min(1.0f, sine)));
+    }
+
+    /**
+     * Get the pitch, the tilt around the short side of a phone on its side.
+     *
+     * @param vector The values of the rotation vector event
+     *
+     * @return The pitch in radians, from -PI to PI
+     */
+    public static float pitch(float[] vector)
+    {
+        float x = vector[0];
+        float y = vector[1];
+        float z = vector[2];
+        float w = scalar(vector);
+
+        return (float)Math.atan2(
+                -2.0f * (x * z - y * w),
+                1.0f - 2.0f * (x * x + y * y)
+            );
+    }
+}
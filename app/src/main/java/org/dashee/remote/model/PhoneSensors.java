@@ -5,20 +5,54 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.hardware.Sensor;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 
-import java.util.Observable;
+import org.dashee.remote.BuildConfig;
+import org.dashee.remote.exception.OutOfRange;
 
 /**
  * This Class allows monitoring of various user phone movements.
- * yaw, pitch and roll are calculated and updated to the observer
+ * yaw, pitch and roll are calculated and passed to the listeners
+ *
+ * The sensor samples at a rate matched to the rate we send at, see 
+ * SamplingPolicy, which can still be hundreds of events a second, so 
+ * passing them on must be cheap. The listeners are held in an array which
+ * is replaced, never changed, when a listener is added or removed. Passing
+ * an event on reads the array once and calls each listener with the 
+ * angles, so it neither locks nor allocates.
+ *
+ * The events are delivered on a thread of our own, so working out the
+ * orientation never waits behind drawing on the UI thread. Listeners are 
+ * called on that thread. How long an event takes from the sensor to the
+ * end of the listeners is measured, and logged once a second with the rate
+ * the events arrive at.
  *
  * @author David Buttar
  * @author Shahmir Javaid
  */
 public class PhoneSensors
-    extends Observable 
     implements SensorEventListener 
 {
+    /**
+     * Listener interface for the orientation of the phone, called on the 
+     * thread the sensor events are delivered on. The time is that of the
+     * sensor event in nanoseconds, moved to the System.nanoTime() clock.
+     */
+    public interface OnOrientationListener
+    {
+        public void onOrientationChanged(
+                float yaw, 
+                float pitch, 
+                float roll, 
+                long time
+            );
+    }
+
     /**
      * required Sensors.
      */
@@ -30,16 +64,86 @@ public class PhoneSensors
     private Sensor rotationSensor;
 
     /**
-     * Holds the rotation Matrix array of floats.
-     * Used by the onSensorChanged to update our orientation
+     * How often the sensor samples, and whether we are registered with it.
+     * Only used on the UI thread.
      */
-    private float[] rotationMatrix = new float[16];
+    private final SamplingPolicy sampling;
+    private boolean registered = false;
+
+    /**
+     * The axes worked out on every event, see Orientation. Axes not asked
+     * for read as 0.
+     */
+    private volatile int axes = Orientation.ALL;
 
     /**
      * An array of orientation of the phone. Updated by the
-     * onSensorChanged event, holds yaw, pitch and roll
+     * onSensorChanged event, holds yaw, roll and pitch in the order of
+     * SensorManager.getOrientation()
+     */
+    private float[] orientation = new float[3];
+
+    /**
+     * The listeners told about every change, copied on write.
+     */
+    private volatile OnOrientationListener[] listeners 
+        = new OnOrientationListener[0];
+
+    /**
+     * Time between two latency reports, and the longest latency believed,
+     * in nanoseconds. Phones whose sensor clock is not the clock we read 
+     * give nonsense, which is not counted.
+     */
+    public static final long REPORT_PERIOD = 1000000000L;
+    public static final long MAX_LATENCY = 1000000000L;
+
+    /**
+     * The thread the sensor events are delivered on, and a Handler on it.
+     */
+    private final HandlerThread sensorThread;
+    private final Handler sensorHandler;
+
+    /**
+     * Whether the events are delivered on our thread, rather than the UI
+     * thread. Only read when the listener is registered.
+     */
+    private volatile boolean background = true;
+
+    /**
+     * The latencies since the last report, only used on the thread the
+     * events are delivered on.
+     */
+    private long latencyCount = 0;
+    private long latencySum = 0;
+    private long latencyMax = 0;
+    private long lastReport = 0;
+
+    /**
+     * The events since the last report, and the rate they arrived at over
+     * the last report in events a second.
+     */
+    private long eventCount = 0;
+    private volatile float eventRate = 0.0f;
+
+    /**
+     * How far the sensor clock is ahead of System.nanoTime(), and when we
+     * last worked it out. Only used on the thread the events are delivered
+     * on.
+     */
+    private long clockOffset = 0;
+    private long clockChecked = 0;
+
+    /**
+     * The mean and worst latency of the last report, in nanoseconds.
+     */
+    private volatile long meanLatency = 0;
+    private volatile long maxLatency = 0;
+
+    /**
+     * Guards adding and removing listeners, so two changes at once can not
+     * lose one. Passing events on does not take it.
      */
-    private float[] orientation = new float[4];
+    private final Object lockListeners = new Object();
     
     /**
      * Initialise our variables
@@ -52,8 +156,198 @@ public class PhoneSensors
             = (SensorManager)cont.getSystemService(Context.SENSOR_SERVICE);
         this.rotationSensor 
             = sensorManager.getDefaultSensor(Sensor.TYPE_ROTATION_VECTOR);
+
+        // Batching is only there from KitKat, and only with a FIFO
+        this.sampling = new SamplingPolicy(
+                this.rotationSensor == null ? 
+                    0 : 
+                    this.rotationSensor.getMinDelay(),
+                this.rotationSensor != null &&
+                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT &&
+                    this.rotationSensor.getFifoMaxEventCount() > 0
+            );
+
+        this.sensorThread = new HandlerThread(
+                "dashee-sensors", 
+                Process.THREAD_PRIORITY_DISPLAY
+            );
+        this.sensorThread.start();
+        this.sensorHandler = new Handler(this.sensorThread.getLooper());
+    }
+
+    /**
+     * Choose the axes worked out on every event, the fewer the cheaper.
+     *
+     * @param axes Any of Orientation.YAW, PITCH and ROLL or-ed together
+     */
+    public void setAxes(int axes)
+    {
+        this.axes = axes;
+    }
+
+    /**
+     * Choose the thread the events are delivered on. Takes effect the next
+     * time we resume.
+     *
+     * @param background true for our own thread, false for the UI thread
+     */
+    public void setBackground(boolean background)
+    {
+        this.background = background;
+    }
+
+    /**
+     * Check which thread the events are delivered on.
+     *
+     * @return true for our own thread
+     */
+    public boolean getBackground()
+    {
+        return this.background;
+    }
+
+    /**
+     * Match the sampling to the period the vehicle is sent at. The sensor
+     * is registered again straight away if the sampling changes. Call on 
+     * the UI thread.
+     *
+     * @param period The send period in milliseconds, 0 when every change 
+     *               is sent straight away
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public void setSendPeriod(int period)
+    {
+        if (this.sampling.setSendPeriod(period) && this.registered)
+        {
+            this.sensorManager.unregisterListener(this);
+            this.register();
+        }
+    }
+
+    /**
+     * Keep the samples coming well inside the failsafe timeout, however
+     * slow the sends are. The sensor is registered again straight away if
+     * the sampling changes. Call on the UI thread.
+     *
+     * @param timeout The failsafe timeout in milliseconds, 0 when off
+     *
+     * @throws OutOfRange if the timeout is not valid
+     */
+    public void setFailsafeTimeout(int timeout)
+    {
+        if (this.sampling.setFailsafeTimeout(timeout) && this.registered)
+        {
+            this.sensorManager.unregisterListener(this);
+            this.register();
+        }
+    }
+
+    /**
+     * Get the sampling the sensor is registered with.
+     *
+     * @return The sampling policy
+     */
+    public SamplingPolicy getSampling()
+    {
+        return this.sampling;
+    }
+
+    /**
+     * Get the rate the events arrived at, over the last report.
+     *
+     * @return The rate in events a second
+     */
+    public float getEventRate()
+    {
+        return this.eventRate;
+    }
+
+    /**
+     * Get the mean time from a sensor event to the end of the listeners,
+     * over the last report.
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getMeanLatency()
+    {
+        return this.meanLatency;
+    }
+
+    /**
+     * Get the worst time from a sensor event to the end of the listeners,
+     * over the last report.
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getMaxLatency()
+    {
+        return this.maxLatency;
+    }
+
+    /**
+     * Stop our thread, no events are delivered after this.
+     */
+    public void close()
+    {
+        this.registered = false;
+        sensorManager.unregisterListener(this);
+        this.sensorThread.quit();
     }
     
+    /**
+     * Add a listener told about every change of the orientation.
+     *
+     * @param listener The listener to add
+     */
+    public void addOrientationListener(OnOrientationListener listener)
+    {
+        synchronized (this.lockListeners)
+        {
+            OnOrientationListener[] listeners = this.listeners;
+            for (int x = 0; x < listeners.length; ++x)
+                if (listeners[x] == listener)
+                    return;
+
+            OnOrientationListener[] copy 
+                = new OnOrientationListener[listeners.length + 1];
+            System.arraycopy(listeners, 0, copy, 0, listeners.length);
+            copy[listeners.length] = listener;
+            this.listeners = copy;
+        }
+    }
+
+    /**
+     * Remove a listener, it is not told about changes from then on.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeOrientationListener(OnOrientationListener listener)
+    {
+        synchronized (this.lockListeners)
+        {
+            OnOrientationListener[] listeners = this.listeners;
+            for (int x = 0; x < listeners.length; ++x)
+            {
+                if (listeners[x] != listener)
+                    continue;
+
+                OnOrientationListener[] copy 
+                    = new OnOrientationListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, copy, 0, x);
+                System.arraycopy(
+                        listeners, 
+                        x + 1, 
+                        copy, 
+                        x, 
+                        listeners.length - x - 1
+                    );
+                this.listeners = copy;
+                return;
+            }
+        }
+    }
+
     /**
      * Return current Pitch value
      * 
@@ -100,12 +394,48 @@ public class PhoneSensors
      */
     public void onResume()
     {
-        sensorManager.registerListener(
-            this,
-            rotationSensor,
-            //Important, use the highest value possible
-            SensorManager.SENSOR_DELAY_FASTEST 
-        );
+        this.register();
+    }
+
+    /**
+     * Register with the sensor at the sampling of the policy, batching the
+     * samples where the policy says to.
+     */
+    private void register()
+    {
+        Handler handler = this.background ? this.sensorHandler : null;
+
+        if (this.sampling.isBatching())
+            this.sensorManager.registerListener(
+                    this,
+                    this.rotationSensor,
+                    this.sampling.getSamplingPeriod(),
+                    this.sampling.getReportLatency(),
+                    handler
+                );
+        else
+            this.sensorManager.registerListener(
+                    this,
+                    this.rotationSensor,
+                    this.sampling.getSamplingPeriod(),
+                    handler
+                );
+
+        this.registered = true;
+
+        // The adaptive rate can register us again and again
+        if (BuildConfig.DEBUG)
+            Log.d(
+                    "dashee", 
+                    "Sensor sampling every " + 
+                    this.sampling.getSamplingPeriod() + "us" +
+                    (
+                        this.sampling.isBatching() ? 
+                            ", batched up to " + 
+                            this.sampling.getReportLatency() + "us" :
+                            ""
+                    )
+                );
     }
     
     /**
@@ -113,30 +443,124 @@ public class PhoneSensors
      */
     public void onPause()
     {
+        this.registered = false;
         sensorManager.unregisterListener(this);
     }
     
     /**
-     * When ever our sensor is changed notify the Observer.
+     * When ever our sensor is changed tell the listeners.
      *
-     * This function will notifyObservers of the change of value
-     * This object can then access the get function to determine new values
+     * The listeners are given yaw, pitch and roll in radians and the time 
+     * of the event, the getters return the same values
      *
      * @param event The sensor values when changed
      */
     @Override
     public void onSensorChanged(SensorEvent event) 
     {
-        SensorManager.getRotationMatrixFromVector(
-                this.rotationMatrix, 
-                event.values
-            );
-        SensorManager.getOrientation(
-                this.rotationMatrix, 
-                this.orientation
-            );
+        // Straight from the quaternion, only the axes asked for
+        float[] vector = event.values;
+        int axes = this.axes;
+        this.orientation[0] = (axes & Orientation.YAW) == 0 ?
+            0.0f :
+            Orientation.yaw(vector);
+        this.orientation[1] = (axes & Orientation.ROLL) == 0 ?
+            0.0f :
+            Orientation.roll(vector);
+        this.orientation[2] = (axes & Orientation.PITCH) == 0 ?
+            0.0f :
+            Orientation.pitch(vector);
+
+        long time = this.toNanoTime(event.timestamp);
+        OnOrientationListener[] listeners = this.listeners;
+        for (int x = 0; x < listeners.length; ++x)
+            listeners[x].onOrientationChanged(
+                    this.orientation[0], 
+                    this.orientation[2], 
+                    this.orientation[1],
+                    time
+                );
+
+        this.measure(time);
+    }
+
+    /**
+     * Move the time of a sensor event to the System.nanoTime() clock. Most
+     * phones stamp events with elapsedRealtimeNanos(), which runs ahead of
+     * System.nanoTime() by the time spent asleep, some with the same clock.
+     * Which one is checked once a REPORT_PERIOD, the offset kept in between
+     * so the time between events is not changed.
+     *
+     * @param timestamp The time of the event in nanoseconds
+     *
+     * @return The time on the System.nanoTime() clock
+     */
+    private long toNanoTime(long timestamp)
+    {
+        long now = System.nanoTime();
+        if (now - this.clockChecked >= REPORT_PERIOD)
+        {
+            this.clockChecked = now;
+            this.clockOffset = 0;
+            if (
+                    Math.abs(now - timestamp) > MAX_LATENCY &&
+                    Build.VERSION.SDK_INT >= 
+                        Build.VERSION_CODES.JELLY_BEAN_MR1
+                )
+                this.clockOffset = SystemClock.elapsedRealtimeNanos() - now;
+        }
+
+        return timestamp - this.clockOffset;
+    }
+
+    /**
+     * Add the latency of an event, and log the latencies and the rate of
+     * the events once a second.
+     *
+     * @param time The time of the event on the System.nanoTime() clock
+     */
+    private void measure(long time)
+    {
+        long now = System.nanoTime();
+
+        this.eventCount++;
+        long latency = now - time;
+        if (latency >= 0 && latency <= MAX_LATENCY)
+        {
+            this.latencyCount++;
+            this.latencySum += latency;
+            this.latencyMax = Math.max(this.latencyMax, latency);
+        }
+
+        if (now - this.lastReport < REPORT_PERIOD)
+            return;
+
+        // The first report has no start to count the events from
+        if (this.lastReport != 0)
+            this.eventRate 
+                = this.eventCount * 1000000000.0f / (now - this.lastReport);
+
+        if (this.latencyCount > 0)
+        {
+            this.meanLatency = this.latencySum / this.latencyCount;
+            this.maxLatency = this.latencyMax;
+
+            // Release builds read the getters, rather than building the
+            // message on the sensor thread
+            if (BuildConfig.DEBUG)
+                Log.d(
+                        "dashee", 
+                        "Sensor to vehicle " + this.meanLatency / 1000L + 
+                        "us mean, " + this.maxLatency / 1000L + "us max, " +
+                        Math.round(this.eventRate) + " events/s, " +
+                        (this.background ? "sensor" : "UI") + " thread"
+                    );
+        }
 
-        setChanged();
-        notifyObservers();
+        this.eventCount = 0;
+        this.latencyCount = 0;
+        this.latencySum = 0;
+        this.latencyMax = 0;
+        this.lastReport = now;
     }
 }
@@ -0,0 +1,221 @@
+package org.dashee.remote.model;
+
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * Predicts where an input axis will be when the value reaches the server,
+ * so the vehicle follows where the phone is rather than where it was.
+ *
+ * The speed of the axis is the least squares slope of the last HISTORY
+ * samples. The value is carried on at that speed for the lead, the time
+ * from the sample until the server gets it, which is never more than the
+ * horizon. With damping the speed dies away exponentially over the lead,
+ * so long leads and sudden stops overshoot less:
+ *
+ *   predicted = value + speed * (1 - e^(-damping * lead)) / damping
+ *
+ * A damping of 0 carries the value on in a straight line. Samples further
+ * apart than Filter.MAX_GAP start again, with nothing predicted.
+ *
+ * The prediction only depends on the samples, their times and the lead
+ * given, never on the clock, so a recorded trace always gives the same
+ * values. Like a Filter, a predictor belongs to the one thread feeding it
+ * samples and apply() never allocates.
+ */
+public class Predictor
+{
+    /**
+     * The number of samples the speed is worked out from.
+     */
+    public static final int HISTORY = 6;
+
+    /**
+     * The longest horizon in milliseconds.
+     */
+    public static final int MAX_HORIZON = 500;
+
+    /**
+     * The highest damping, a second to the power of -1.
+     */
+    public static final float MAX_DAMPING = 100.0f;
+
+    /**
+     * The longest lead in nanoseconds, and how fast the speed dies away.
+     */
+    private final long horizon;
+    private final float damping;
+
+    /**
+     * The last samples and their times in nanoseconds, oldest at head.
+     */
+    private final float[] values = new float[HISTORY];
+    private final long[] times = new long[HISTORY];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Create a predictor.
+     *
+     * @param horizon The longest lead in milliseconds, 0 predicts nothing
+     * @param damping How fast the speed dies away each second, 0 for none
+     *
+     * @throws OutOfRange if a setting is not valid
+     */
+    public Predictor(int horizon, float damping)
+    {
+        if (horizon < 0 || horizon > MAX_HORIZON)
+            throw new OutOfRange(
+                    "Horizon must be between 0-" + MAX_HORIZON + "ms"
+                );
+
+        if (!(damping >= 0.0f && damping <= MAX_DAMPING))
+            throw new OutOfRange(
+                    "Damping must be between 0-" + MAX_DAMPING
+                );
+
+        this.horizon = horizon * 1000000L;
+        this.damping = damping;
+    }
+
+    /**
+     * Work out the lead of a sample, the time from the sample until the
+     * server gets the value. That is the time it took to get here, half a
+     * send period waiting for the next packet on average, and half the
+     * round trip on the network.
+     *
+     * @param age How long ago the sample was taken in nanoseconds
+     * @param period The send period in milliseconds, 0 if not known
+     * @param roundTrip The round trip in nanoseconds, -1 if not known
+     *
+     * @return The lead in nanoseconds
+     */
+    public static long lead(long age, int period, long roundTrip)
+    {
+        long lead = Math.max(age, 0) + Math.max(period, 0) * 500000L;
+        if (roundTrip > 0)
+            lead += roundTrip / 2;
+
+        return lead;
+    }
+
+    /**
+     * Get the longest lead.
+     *
+     * @return The horizon in milliseconds
+     */
+    public int getHorizon()
+    {
+        return (int)(this.horizon / 1000000L);
+    }
+
+    /**
+     * Get how fast the speed dies away.
+     *
+     * @return The damping a second
+     */
+    public float getDamping()
+    {
+        return this.damping;
+    }
+
+    /**
+     * Add a sample and predict the value it will have a lead later.
+     *
+     * @param value The sample
+     * @param time The time of the sample in nanoseconds
+     * @param lead How far past the sample to predict in nanoseconds, cut
+     *             to the horizon
+     *
+     * @return The predicted value
+     */
+    public float apply(float value, long time, long lead)
+    {
+        if (this.size > 0)
+        {
+            int newest = (this.head + this.size - 1) % HISTORY;
+            long elapsed = time - this.times[newest];
+
+            if (elapsed < 0 || elapsed > Filter.MAX_GAP)
+                this.reset();
+
+            // Same time, the newer sample replaces the one before it
+            else if (elapsed == 0)
+                this.size--;
+        }
+
+        this.push(value, time);
+
+        lead = Math.min(Math.max(lead, 0), this.horizon);
+        if (this.size < 2 || lead == 0)
+            return value;
+
+        float seconds = lead * 1e-9f;
+        float reach = this.damping == 0.0f
+            ? seconds
+            : (1.0f - (float)Math.exp(-this.damping * seconds))
+                / this.damping;
+
+        return value + this.getSpeed() * reach;
+    }
+
+    /**
+     * Add a sample, pushing out the oldest once full.
+     *
+     * @param value The sample
+     * @param time The time of the sample in nanoseconds
+     */
+    private void push(float value, long time)
+    {
+        int index = (this.head + this.size) % HISTORY;
+        if (this.size == HISTORY)
+            this.head = (this.head + 1) % HISTORY;
+        else
+            this.size++;
+
+        this.values[index] = value;
+        this.times[index] = time;
+    }
+
+    /**
+     * Work out the least squares slope of the samples held. Times are
+     * taken from the newest sample, so they stay small enough for floats.
+     *
+     * @return The speed in units a second
+     */
+    private float getSpeed()
+    {
+        long newest = this.times[(this.head + this.size - 1) % HISTORY];
+
+        float meanTime = 0.0f;
+        float meanValue = 0.0f;
+        for (int x = 0; x < this.size; ++x)
+        {
+            int index = (this.head + x) % HISTORY;
+            meanTime += (this.times[index] - newest) * 1e-9f;
+            meanValue += this.values[index];
+        }
+        meanTime /= this.size;
+        meanValue /= this.size;
+
+        float covariance = 0.0f;
+        float variance = 0.0f;
+        for (int x = 0; x < this.size; ++x)
+        {
+            int index = (this.head + x) % HISTORY;
+            float dt = (this.times[index] - newest) * 1e-9f - meanTime;
+            covariance += dt * (this.values[index] - meanValue);
+            variance += dt * dt;
+        }
+
+        return variance == 0.0f ? 0.0f : covariance / variance;
+    }
+
+    /**
+     * Forget the samples so far, the next sample is passed as it is.
+     */
+    public void reset()
+    {
+        this.head = 0;
+        this.size = 0;
+    }
+}
@@ -0,0 +1,191 @@
+package org.dashee.remote.model;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.thread.Scheduler;
+import org.dashee.remote.thread.Watchdog;
+
+/**
+ * Picks how often the phone sensors sample from how often the control loop
+ * sends. Samples taken faster than they are sent only burn the CPU and the
+ * battery.
+ *
+ * The sensor samples OVERSAMPLE times a send period, never faster than it
+ * can, so every send has a sample at most half a period old and the input
+ * filters have more than one sample a send to work with.
+ *
+ * Where the sensor has a hardware FIFO the samples are batched, and the
+ * phone only wakes to take them once every report latency. The latency is
+ * the send period less a sample period, so at each send deadline the
+ * newest sample is at most a period old, still taken after the last send.
+ *
+ * The samples feed the watchdog, so however slow the sends are, samples
+ * are delivered at least twice a failsafe timeout. Sends slower than that
+ * get more than one delivery a period.
+ *
+ * The sensor is only registered again when the period moves by more than
+ * a quarter, so the adaptive rate does not keep doing it.
+ */
+public final class SamplingPolicy
+{
+    /**
+     * The number of samples taken a send period.
+     */
+    public static final int OVERSAMPLE = 2;
+
+    /**
+     * The shortest time between samples the sensor takes in microseconds,
+     * and whether it can batch them.
+     */
+    private final int minDelay;
+    private final boolean batching;
+
+    /**
+     * Whether the send period was set, and the period in milliseconds.
+     */
+    private boolean matched = false;
+    private int sendPeriod = 0;
+
+    /**
+     * The longest time from one delivery of samples to the next, half the
+     * failsafe timeout, in microseconds. 0 when there is no timeout.
+     */
+    private int maxDelivery = 0;
+
+    /**
+     * The time between samples and the longest a sample may wait in the
+     * FIFO, in microseconds. No latency means no batching.
+     */
+    private int samplingPeriod;
+    private int reportLatency = 0;
+
+    /**
+     * Create a policy for a sensor. Until the send period is set the sensor
+     * samples as fast as it can.
+     *
+     * @param minDelay The shortest time between samples of the sensor in
+     *                 microseconds, 0 if not known
+     * @param batching true if the sensor can batch samples in a FIFO
+     */
+    public SamplingPolicy(int minDelay, boolean batching)
+    {
+        this.minDelay = Math.max(minDelay, 0);
+        this.batching = batching;
+        this.samplingPeriod = this.minDelay;
+    }
+
+    /**
+     * Set the period the control loop sends at, and work out the sampling
+     * to go with it.
+     *
+     * @param period The send period in milliseconds, 0 when every change
+     *               is sent straight away
+     *
+     * @return true if the sensor has to be registered again
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public boolean setSendPeriod(int period)
+    {
+        if (period < 0 || period > Scheduler.MAX_PERIOD)
+            throw new OutOfRange(
+                    "Period value must be between 0-" + Scheduler.MAX_PERIOD
+                );
+
+        int delivery = period * 1000;
+        if (this.maxDelivery > 0)
+            delivery = Math.min(delivery, this.maxDelivery);
+
+        int sampling = Math.max(delivery / OVERSAMPLE, this.minDelay);
+        if (
+                this.matched &&
+                Math.abs(sampling - this.samplingPeriod) * 4 <=
+                    this.samplingPeriod
+            )
+            return false;
+
+        this.matched = true;
+        this.sendPeriod = period;
+        this.samplingPeriod = sampling;
+        this.reportLatency = this.batching ?
+            Math.max(delivery - sampling, 0) :
+            0;
+        return true;
+    }
+
+    /**
+     * Set the failsafe timeout, so the samples reach the watchdog well
+     * inside it, and work the sampling out again if the period was set.
+     *
+     * @param timeout The timeout in milliseconds, 0 when failsafe is off
+     *
+     * @return true if the sensor has to be registered again
+     *
+     * @throws OutOfRange if the timeout is not valid
+     */
+    public boolean setFailsafeTimeout(int timeout)
+    {
+        if (
+                timeout != 0 && 
+                (
+                    timeout < Watchdog.MIN_TIMEOUT || 
+                    timeout > Watchdog.MAX_TIMEOUT
+                )
+            )
+            throw new OutOfRange(
+                    "Timeout must be 0 or between " + Watchdog.MIN_TIMEOUT + 
+                    "-" + Watchdog.MAX_TIMEOUT
+                );
+
+        int maxDelivery = timeout * 1000 / 2;
+        if (maxDelivery == this.maxDelivery)
+            return false;
+
+        this.maxDelivery = maxDelivery;
+        if (!this.matched)
+            return false;
+
+        // Past the hysteresis, the timeout is not something that jitters
+        this.matched = false;
+        return this.setSendPeriod(this.sendPeriod);
+    }
+
+    /**
+     * Get the send period the sampling was worked out for.
+     *
+     * @return The period in milliseconds, 0 if not set
+     */
+    public int getSendPeriod()
+    {
+        return this.sendPeriod;
+    }
+
+    /**
+     * Get the time between samples to register the sensor with.
+     *
+     * @return The period in microseconds
+     */
+    public int getSamplingPeriod()
+    {
+        return this.samplingPeriod;
+    }
+
+    /**
+     * Get the longest a sample may wait in the FIFO before it is delivered.
+     *
+     * @return The latency in microseconds, 0 to deliver every sample
+     */
+    public int getReportLatency()
+    {
+        return this.reportLatency;
+    }
+
+    /**
+     * Check if the samples are batched.
+     *
+     * @return true if samples wait in the FIFO
+     */
+    public boolean isBatching()
+    {
+        return this.reportLatency > 0;
+    }
+}
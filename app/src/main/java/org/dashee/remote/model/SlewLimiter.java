@@ -0,0 +1,131 @@
+package org.dashee.remote.model;
+
+/**
+ * Limits how fast the channels sent can move, so a jump of the throttle
+ * stick becomes a ramp the motor can follow.
+ *
+ * The limiter runs on the clock of the control loop. Every tick it moves
+ * each channel from where it was sent last towards where the vehicle wants
+ * it, by no more than the rate of the channel allows for the time since
+ * the last tick. Moving away from the middle uses the up rate, moving back
+ * towards it the down rate, so both directions of a car throttle ramp up
+ * the same way.
+ *
+ * The time is always passed in, so the limiter is deterministic and can be
+ * driven by a fake clock. Positions keep 16 bits below the hires value, so
+ * slow rates on short ticks do not round away. Only the control loop uses
+ * a limiter, it does not lock or allocate.
+ */
+public class SlewLimiter
+{
+    /**
+     * The longest time one tick may move by, in nanoseconds. A loop which
+     * was paused or stalled still ramps rather than jumps.
+     */
+    public static final long MAX_TICK = 100000000L;
+
+    /**
+     * Bits kept below a hires value.
+     */
+    private static final int FRACTION = 16;
+
+    /**
+     * Where each channel was sent last, in hires values shifted up by
+     * FRACTION.
+     */
+    private final long[] positions = new long[Vehicle.MAX_CHANNELS];
+
+    /**
+     * When we last ran, and whether there is a position to ramp from.
+     */
+    private long last = 0;
+    private boolean started = false;
+
+    /**
+     * Forget where the channels are, the next tick sends them as they are.
+     */
+    public void reset()
+    {
+        this.started = false;
+    }
+
+    /**
+     * Move the channels to hires values at once, the next tick ramps from
+     * there.
+     *
+     * @param values The hires values sent
+     * @param count The number of channels
+     * @param time The time now in nanoseconds
+     */
+    public void set(int[] values, int count, long time)
+    {
+        for (int x = 0; x < count; ++x)
+            this.positions[x] = (long)values[x] << FRACTION;
+
+        this.started = true;
+        this.last = time;
+    }
+
+    /**
+     * Limit hires values in place.
+     *
+     * @param vehicle The vehicle holding the rates of each channel
+     * @param values The hires values the vehicle wants, replaced by the
+     *               values to send
+     * @param count The number of channels
+     * @param time The time now in nanoseconds
+     *
+     * @return true if any channel is still ramping towards its value
+     */
+    public boolean apply(Vehicle vehicle, int[] values, int count, long time)
+    {
+        if (!this.started)
+        {
+            this.set(values, count, time);
+            return false;
+        }
+
+        // Microseconds keep the step below from overflowing
+        long elapsed = Math.min(Math.max(time - this.last, 0), MAX_TICK);
+        long micros = elapsed / 1000;
+        this.last = time;
+
+        long mid = (long)Vehicle.HIRES_MID << FRACTION;
+        boolean ramping = false;
+        for (int x = 0; x < count; ++x)
+        {
+            long target = (long)values[x] << FRACTION;
+            long position = this.positions[x];
+            if (position == target)
+                continue;
+
+            boolean away = target > position ? 
+                position >= mid : 
+                position <= mid;
+            int rate = away ?
+                vehicle.getChannelSlewUp(x) :
+                vehicle.getChannelSlewDown(x);
+
+            if (rate == 0)
+                position = target;
+
+            else
+            {
+                // Rate is in percent of the full range per second
+                long step = ((long)Vehicle.HIRES_MAX << FRACTION) / 100 *
+                    rate / 1000 * micros / 1000;
+
+                if (target > position)
+                    position = Math.min(position + step, target);
+                else
+                    position = Math.max(position - step, target);
+            }
+
+            this.positions[x] = position;
+            values[x] = (int)(position >> FRACTION);
+            ramping |= position != target;
+        }
+
+        return ramping;
+    }
+}
@@ -1,13 +1,38 @@
 package org.dashee.remote.model;
 
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.dashee.remote.exception.OutOfRange;
 import org.dashee.remote.RangeMapping;
 
 /**
  * This class holds all the values used for all vehicles. A nice way to 
- * encapsulate the properties of pitch, roll, yaw and throttle. With an
+ * encapsulate the channels of a vehicle, pitch, roll, yaw and throttle 
+ * followed by any aux channels such as lights, gear or camera pan. With an
  * added functionality to provide Trim, Min, Max and Invert behavior to
- * all of the flight controls.
+ * all of the channels.
+ *
+ * Channels are kept in primitive arrays indexed by channel. The pitch, roll,
+ * yaw and throttle methods are wrappers around the channel methods.
+ *
+ * The values are set on the UI thread but sent from the network thread. So
+ * every change also publishes the values as sent, after trim, min, max and
+ * invert, behind a sequence lock. getSnapshot() copies all channels without
+ * a lock, and can never see half of an update.
+ *
+ * Values go from MIN to MAX, but are kept and sent at HIRES_BITS of 
+ * resolution. The hires methods set and get every bit, the others only the
+ * top BITS, so a value set with setChannel() is a hires value with the low
+ * bits clear.
+ *
+ * Each channel has a response curve, applied to the value set before trim,
+ * min, max and invert. Both the high and low rate of the curve are compiled
+ * into tables, so switching dual rate only changes which table is read.
+ *
+ * A mixer can then turn the channels into the channels sent, for vehicles
+ * where one control moves more than one servo. The channel getters return
+ * the values before mixing, getSnapshot() the values sent.
  */
 public abstract class Vehicle
 {
@@ -16,58 +41,878 @@ public abstract class Vehicle
     public static final int MIN = 0;
 
     /**
-     * Main flight control sets.
+     * Resolution of the values from MIN to MAX, and of the values kept. 
+     * HIRES_MAX is MAX with all the extra bits set.
+     */
+    public static final int BITS = 8;
+    public static final int HIRES_BITS = 16;
+    public static final int HIRES_MAX = (1 << HIRES_BITS) - 1;
+    public static final int HIRES_MID = MID << (HIRES_BITS - BITS);
+
+    /**
+     * Shift from a value to a hires value, and the bits it adds.
+     */
+    private static final int SHIFT = HIRES_BITS - BITS;
+    private static final int LOW_MASK = (1 << SHIFT) - 1;
+
+    /**
+     * The named channels, any channel after them is an aux channel.
+     */
+    public static final int CHANNEL_PITCH = 0;
+    public static final int CHANNEL_ROLL = 1;
+    public static final int CHANNEL_YAW = 2;
+    public static final int CHANNEL_THROTTLE = 3;
+    public static final int CHANNEL_COUNT = 4;
+
+    /**
+     * The most channels a vehicle can have.
+     */
+    public static final int MAX_CHANNELS = 16;
+
+    /**
+     * The fastest slew rate, in percent of the range per second.
+     */
+    public static final int MAX_SLEW = 10000;
+
+    /**
+     * Error messages per named channel, aux channels share the last one.
+     */
+    private static final String[] RANGE_MESSAGES = {
+        "Invalid range of Pitch",
+        "Invalid range of Roll",
+        "Invalid range of Yaw",
+        "Invalid range of Throttle",
+        "Invalid range of Aux channel"
+    };
+    private static final String[] TRIM_MESSAGES = {
+        "Invalid range value for Pitch trim",
+        "Invalid range value for Roll trim",
+        "Invalid range value for Yaw trim",
+        "Invalid range value for Throttle trim",
+        "Invalid range value for Aux channel trim"
+    };
+
+    /**
+     * The number of channels of this vehicle.
      */
-    private int pitch = MIN;
-    private int roll = MIN;
-    private int yaw = MIN;
-    private int throttle = MIN;
+    private final int channelCount;
+
+    /**
+     * The value set on each channel, at HIRES_BITS.
+     */
+    private final int[] values;
  
     /**
-     * The trim values for the vehicle
+     * The trim, min and max values and the invert flag of each channel.
      */    
-    private int pitchTrim = MIN;
-    private int rollTrim = MIN;
-    private int yawTrim = MIN;
-    private int throttleTrim = MIN;
+    private final int[] trims;
+    private final int[] mins;
+    private final int[] maxes;
+    private final boolean[] inverted;
 
     /**
-     * The max value for flight controls
+     * The response curve of each channel.
      */
-    private int pitchMin = MIN;
-    private int rollMin = MIN;
-    private int yawMin = MIN;
-    private int throttleMin = MIN;
+    private final Curve[] curves;
 
     /**
-     * The max value for flight controls
+     * How fast each channel may move away from and back to the middle, in
+     * percent of the range per second, 0 for as fast as it is set.
      */
-    private int pitchMax = MAX;
-    private int rollMax = MAX;
-    private int yawMax = MAX;
-    private int throttleMax = MAX;
+    private final int[] slewUps;
+    private final int[] slewDowns;
 
     /**
-     * Flag to determine the inversion of the flight controls.
+     * The hires value each channel is sent at in failsafe, as sent, so no
+     * trim, curve or mixer applies to it.
      */
-    private boolean pitchInverted = false;
-    private boolean rollInverted = false;
-    private boolean yawInverted = false;
-    private boolean throttleInverted = false;
- 
+    private final AtomicIntegerArray failsafes;
+
+    /**
+     * When a value was last set, changed or not, in nanoseconds. Tells the
+     * watchdog the input is still coming.
+     */
+    private volatile long inputTime = System.nanoTime();
+
+    /**
+     * When the event behind the newest change happened, in nanoseconds on
+     * the System.nanoTime() clock, 0 if not known. Carries the event into
+     * the control loop for the LatencyTrace.
+     */
+    private volatile long eventTime = 0;
+
+    /**
+     * Whether dual rate is switched to the low rates.
+     */
+    private volatile boolean lowRate = false;
+
+    /**
+     * Mixes the channels into the channels sent, or null to send them as 
+     * they are. The buffers it mixes through are only used by publish().
+     */
+    private volatile Mixer mixer = null;
+    private final int[] mixInput;
+    private final int[] mixOutput;
+
+    /**
+     * The hires value sent for every value from MIN to MAX+1, per channel,
+     * hires values between two entries are interpolated. Compiled from the 
+     * trim, min, max and invert of the channel whenever one of them changes,
+     * and swapped in whole, so a reader never sees a half built table.
+     */
+    private final AtomicReferenceArray<int[]> tables;
+    private final AtomicReferenceArray<int[]> lowTables;
+
+    /**
+     * The values as sent, written by publish(). The version is odd while 
+     * they are being written.
+     */
+    private final AtomicIntegerArray published;
+    private volatile int version = 0;
+
+    /**
+     * Guards publish(), so two threads changing values can not publish out
+     * of order and lose a change.
+     */
+    private final Object lockPublish = new Object();
+
+    /**
+     * Listener told about every change to the values we send.
+     */
+    private volatile OnChangeListener changeListener;
+
+    /**
+     * Listener interface to pass changes to the outside world. It is called
+     * on the thread which made the change.
+     */
+    public interface OnChangeListener
+    {
+        public void onVehicleChanged(Vehicle vehicle);
+    }
+
+    /**
+     * Create a vehicle with the named channels only.
+     */
+    public Vehicle()
+    {
+        this(CHANNEL_COUNT);
+    }
+
+    /**
+     * Create a vehicle with the named channels and aux channels after them.
+     *
+     * @param channels The number of channels, including the named ones
+     *
+     * @throws OutOfRange if the number of channels is not valid
+     */
+    public Vehicle(int channels)
+    {
+        if (channels < CHANNEL_COUNT || channels > MAX_CHANNELS)
+            throw new OutOfRange(
+                    "Channels must be between " + CHANNEL_COUNT + "-" +
+                    MAX_CHANNELS
+                );
+
+        this.channelCount = channels;
+        this.values = new int[channels];
+        this.trims = new int[channels];
+        this.mins = new int[channels];
+        this.maxes = new int[channels];
+        this.inverted = new boolean[channels];
+        this.curves = new Curve[channels];
+        this.slewUps = new int[channels];
+        this.slewDowns = new int[channels];
+        this.failsafes = new AtomicIntegerArray(channels);
+        this.tables = new AtomicReferenceArray<int[]>(channels);
+        this.lowTables = new AtomicReferenceArray<int[]>(channels);
+        this.mixInput = new int[channels];
+        this.mixOutput = new int[channels];
+        this.published = new AtomicIntegerArray(channels);
+
+        for (int x = 0; x < channels; ++x)
+        {
+            this.values[x] = MIN;
+            this.mins[x] = MIN;
+            this.maxes[x] = MAX;
+            this.curves[x] = Curve.LINEAR;
+            this.failsafes.set(x, HIRES_MID);
+            this.compile(x);
+        }
+
+        this.publish();
+    }
+
+    /**
+     * Set the listener told about changes.
+     *
+     * @param listener The listener, or null to remove it
+     */
+    public void setOnChangeListener(OnChangeListener listener)
+    {
+        this.changeListener = listener;
+    }
+
+    /**
+     * Publish the values and tell our listener that a value has changed.
+     */
+    protected void changed()
+    {
+        this.publish();
+
+        OnChangeListener listener = this.changeListener;
+        if (listener != null)
+            listener.onVehicleChanged(this);
+    }
+
+    /**
+     * Compile the output of a channel at both rates.
+     *
+     * @param channel The channel to compile
+     */
+    private void compile(int channel)
+    {
+        this.tables.set(channel, this.compile(channel, false));
+        this.lowTables.set(channel, this.compile(channel, true));
+    }
+
+    /**
+     * Compile the output of a channel into a table, holding the hires value
+     * sent for each value from MIN to MAX+1. The value is put through the
+     * curve, trimmed, held between min and max, then reversed when inverted.
+     *
+     * The extra entry is the end of the last step, so every hires value 
+     * falls between two entries.
+     *
+     * @param channel The channel to compile
+     * @param low true to compile the low rate
+     *
+     * @return The table
+     */
+    private int[] compile(int channel, boolean low)
+    {
+        Curve curve = this.curves[channel];
+        int trim = this.trims[channel] << SHIFT;
+        int min = this.mins[channel] << SHIFT;
+        int max = (this.maxes[channel] << SHIFT) | LOW_MASK;
+        boolean inverted = this.inverted[channel];
+
+        int[] table = new int[MAX + 2];
+        for (int x = MIN; x <= MAX + 1; ++x)
+        {
+            float input = ((x << SHIFT) - HIRES_MID) / (float)HIRES_MID;
+            int curved 
+                = HIRES_MID + Math.round(curve.apply(input, low) * HIRES_MID);
+
+            int trimmed = curved + trim;
+
+            // Use the min/max values if the trimmed value is out of range
+            if (trimmed < min)
+                trimmed = min;
+            else if (trimmed > max)
+                trimmed = max;
+
+            // Reverse the value when in invert
+            table[x] = inverted ? HIRES_MAX - trimmed : trimmed;
+        }
+
+        return table;
+    }
+
+    /**
+     * Get the table read for a channel, at the rate switched to.
+     *
+     * @param channel The channel index
+     *
+     * @return The table
+     */
+    private int[] getTable(int channel)
+    {
+        return this.lowRate ? 
+            this.lowTables.get(channel) : 
+            this.tables.get(channel);
+    }
+
+    /**
+     * Look up the hires value sent for a hires value, interpolating between
+     * the two entries around it. Exact for values with the low bits clear.
+     *
+     * @param table The compiled table of the channel
+     * @param value The hires value set
+     *
+     * @return The hires value sent
+     */
+    private static int lookup(int[] table, int value)
+    {
+        int x = value >>> SHIFT;
+        int low = table[x];
+
+        return low + (((table[x + 1] - low) * (value & LOW_MASK)) >> SHIFT);
+    }
+
+    /**
+     * Write the values as sent for readers of getSnapshot(), mixed if we 
+     * have a mixer. Only writers take the lock, readers never wait on it.
+     */
+    private void publish()
+    {
+        synchronized (this.lockPublish)
+        {
+            for (int x = 0; x < this.channelCount; ++x)
+                this.mixInput[x] = lookup(this.getTable(x), this.values[x]);
+
+            int[] sent = this.mixInput;
+            Mixer mixer = this.mixer;
+            if (mixer != null)
+            {
+                mixer.mix(this.mixInput, this.mixOutput, this.channelCount);
+                sent = this.mixOutput;
+            }
+
+            this.version++;
+            for (int x = 0; x < this.channelCount; ++x)
+                this.published.set(x, sent[x]);
+            this.version++;
+        }
+    }
+
+    /**
+     * Copy all the values as sent, from one consistent update.
+     *
+     * @param channels The array to copy to, at least getChannelCount() long
+     *
+     * @return The number of channels copied
+     */
+    public int getSnapshot(int[] channels)
+    {
+        return this.getSnapshot(channels, BITS);
+    }
+
+    /**
+     * Copy all the values as sent at a resolution, from one consistent 
+     * update. The values are cut to the top bits, so they go from 0 to 
+     * 2^bits-1.
+     *
+     * @param channels The array to copy to, at least getChannelCount() long
+     * @param bits The resolution from BITS to HIRES_BITS
+     *
+     * @return The number of channels copied
+     */
+    public int getSnapshot(int[] channels, int bits)
+    {
+        int shift = HIRES_BITS - bits;
+        while (true)
+        {
+            int version = this.version;
+            if ((version & 1) == 0)
+            {
+                for (int x = 0; x < this.channelCount; ++x)
+                    channels[x] = this.published.get(x) >>> shift;
+
+                if (this.version == version)
+                    return this.channelCount;
+            }
+
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Get the number of channels of this vehicle.
+     *
+     * @return The channel count
+     */
+    public int getChannelCount()
+    {
+        return this.channelCount;
+    }
+
+    /**
+     * Make sure a channel exists.
+     *
+     * @param channel The channel index
+     *
+     * @throws OutOfRange if the channel does not exist
+     */
+    private void checkChannel(int channel)
+    {
+        if (channel < 0 || channel >= this.channelCount)
+            throw new OutOfRange("Invalid channel");
+    }
+
+    /**
+     * Set the value of a channel.
+     *
+     * @param channel The channel index
+     * @param value The value to set
+     *
+     * @throws OutOfRange if the channel or the value is not valid
+     */
+    public void setChannel(int channel, int value)
+    {
+        this.checkChannel(channel);
+        if (value < MIN || value > MAX)
+            throw new OutOfRange(
+                    RANGE_MESSAGES[Math.min(channel, CHANNEL_COUNT)]
+                );
+
+        this.setValue(channel, value << SHIFT, 0);
+    }
+
+    /**
+     * Set the value of a channel at full resolution.
+     *
+     * @param channel The channel index
+     * @param value The value from MIN to HIRES_MAX
+     *
+     * @throws OutOfRange if the channel or the value is not valid
+     */
+    public void setChannelHires(int channel, int value)
+    {
+        this.setChannelHires(channel, value, 0);
+    }
+
+    /**
+     * Set the value of a channel at full resolution, with the time of the
+     * event behind it.
+     *
+     * @param channel The channel index
+     * @param value The value from MIN to HIRES_MAX
+     * @param event The time of the event in nanoseconds on the 
+     *              System.nanoTime() clock, 0 if not known
+     *
+     * @throws OutOfRange if the channel or the value is not valid
+     */
+    public void setChannelHires(int channel, int value, long event)
+    {
+        this.checkChannel(channel);
+        if (value < MIN || value > HIRES_MAX)
+            throw new OutOfRange(
+                    RANGE_MESSAGES[Math.min(channel, CHANNEL_COUNT)]
+                );
+
+        this.setValue(channel, value, event);
+    }
+
+    /**
+     * Store a hires value, publishing it if it changed.
+     *
+     * @param channel The channel index
+     * @param value The hires value
+     * @param event The time of the event behind it, 0 if not known
+     */
+    private void setValue(int channel, int value, long event)
+    {
+        this.inputTime = System.nanoTime();
+        if (this.values[channel] == value)
+            return;
+
+        this.eventTime = event;
+        this.values[channel] = value;
+        this.changed();
+    }
+
+    /**
+     * Get the value sent for a channel, after trim, min, max and invert.
+     *
+     * @param channel The channel index
+     *
+     * @return The value from MIN to MAX
+     */
+    public int getChannel(int channel)
+    {
+        return this.getChannelHires(channel) >>> SHIFT;
+    }
+
+    /**
+     * Get the value sent for a channel at full resolution.
+     *
+     * @param channel The channel index
+     *
+     * @return The value from MIN to HIRES_MAX
+     */
+    public int getChannelHires(int channel)
+    {
+        return lookup(this.getTable(channel), this.values[channel]);
+    }
+
+    /**
+     * Get the value of a channel as set.
+     *
+     * @param channel The channel index
+     *
+     * @return The value from MIN to MAX
+     */
+    public int getActualChannel(int channel)
+    {
+        return this.values[channel] >>> SHIFT;
+    }
+
+    /**
+     * Get the value of a channel as set, at full resolution.
+     *
+     * @param channel The channel index
+     *
+     * @return The value from MIN to HIRES_MAX
+     */
+    public int getActualChannelHires(int channel)
+    {
+        return this.values[channel];
+    }
+
+    /**
+     * Get when a value was last set, whether it changed or not.
+     *
+     * @return The time in nanoseconds, from System.nanoTime()
+     */
+    public long getInputTime()
+    {
+        return this.inputTime;
+    }
+
+    /**
+     * Get when the event behind the newest change happened.
+     *
+     * @return The time in nanoseconds on the System.nanoTime() clock, 0 if
+     *         not known
+     */
+    public long getEventTime()
+    {
+        return this.eventTime;
+    }
+
+    /**
+     * Set the values of the named channels at once, so they are published 
+     * as one update.
+     *
+     * @param pitch The pitch value to set
+     * @param roll The roll value to set
+     * @param yaw The yaw value to set
+     * @param throttle The throttle value to set
+     *
+     * @throws OutOfRange if any value is not valid, nothing is set then
+     */
+    public void setChannels(int pitch, int roll, int yaw, int throttle)
+    {
+        if (
+                pitch < MIN || pitch > MAX ||
+                roll < MIN || roll > MAX ||
+                yaw < MIN || yaw > MAX ||
+                throttle < MIN || throttle > MAX
+            )
+            throw new OutOfRange("Invalid range of channels");
+
+        this.values[CHANNEL_PITCH] = pitch << SHIFT;
+        this.values[CHANNEL_ROLL] = roll << SHIFT;
+        this.values[CHANNEL_YAW] = yaw << SHIFT;
+        this.values[CHANNEL_THROTTLE] = throttle << SHIFT;
+        this.inputTime = System.nanoTime();
+        this.eventTime = 0;
+        this.changed();
+    }
+
+    /**
+     * Set the trim of a channel.
+     *
+     * @param channel The channel index
+     * @param trim The value to set
+     *
+     * @throws OutOfRange if the channel or the trim is not valid
+     */
+    public void setChannelTrim(int channel, int trim)
+    {
+        this.checkChannel(channel);
+        if (trim < -MID || trim > MID)
+            throw new OutOfRange(
+                    TRIM_MESSAGES[Math.min(channel, CHANNEL_COUNT)]
+                );
+
+        this.trims[channel] = trim;
+        this.compile(channel);
+        this.changed();
+    }
+
+    /**
+     * Get the trim of a channel.
+     *
+     * @param channel The channel index
+     *
+     * @return The trim
+     */
+    public int getChannelTrim(int channel)
+    {
+        return this.trims[channel];
+    }
+
+    /**
+     * Set the invert flag of a channel.
+     *
+     * @param channel The channel index
+     * @param inverted The value to set
+     *
+     * @throws OutOfRange if the channel is not valid
+     */
+    public void setChannelInverted(int channel, boolean inverted)
+    {
+        this.checkChannel(channel);
+
+        this.inverted[channel] = inverted;
+        this.compile(channel);
+        this.changed();
+    }
+
+    /**
+     * Get the invert flag of a channel.
+     *
+     * @param channel The channel index
+     *
+     * @return the value of the inverted flag 
+     */
+    public boolean getChannelInverted(int channel)
+    {
+        return this.inverted[channel];
+    }
+
+    /**
+     * Set the min value of a channel.
+     *
+     * @param channel The channel index
+     * @param min The value to set it to
+     * 
+     * @throws OutOfRange if the channel or the min value is not valid
+     */
+    public void setChannelMin(int channel, int min)
+    {
+        this.checkChannel(channel);
+        if (min >= this.maxes[channel])
+            throw new OutOfRange("Min value must be less than max");
+
+        this.mins[channel] = min;
+        this.compile(channel);
+        this.changed();
+    }
+
+    /**
+     * Get the min value of a channel.
+     *
+     * @param channel The channel index
+     *
+     * @return the min value
+     */
+    public int getChannelMin(int channel)
+    {
+        return this.mins[channel];
+    }
+
+    /**
+     * Set the max value of a channel.
+     *
+     * @param channel The channel index
+     * @param max The value to set it to
+     * 
+     * @throws OutOfRange if the channel or the max value is not valid
+     */
+    public void setChannelMax(int channel, int max)
+    {
+        this.checkChannel(channel);
+        if (max <= this.mins[channel])
+            throw new OutOfRange("Max value must be less than min");
+
+        this.maxes[channel] = max;
+        this.compile(channel);
+        this.changed();
+    }
+
+    /**
+     * Get the max value of a channel.
+     *
+     * @param channel The channel index
+     *
+     * @return the max value
+     */
+    public int getChannelMax(int channel)
+    {
+        return this.maxes[channel];
+    }
+
+    /**
+     * Set the response curve of a channel.
+     *
+     * @param channel The channel index
+     * @param curve The curve, Curve.LINEAR for none
+     *
+     * @throws OutOfRange if the channel is not valid
+     */
+    public void setChannelCurve(int channel, Curve curve)
+    {
+        this.checkChannel(channel);
+
+        this.curves[channel] = curve;
+        this.compile(channel);
+        this.changed();
+    }
+
+    /**
+     * Get the response curve of a channel.
+     *
+     * @param channel The channel index
+     *
+     * @return The curve
+     */
+    public Curve getChannelCurve(int channel)
+    {
+        return this.curves[channel];
+    }
+
+    /**
+     * Set the value a channel is sent at in failsafe, when the input stops
+     * or the app goes to the background.
+     *
+     * @param channel The channel index
+     * @param value The value from MIN to MAX, as sent
+     *
+     * @throws OutOfRange if the channel or the value is not valid
+     */
+    public void setChannelFailsafe(int channel, int value)
+    {
+        this.checkChannel(channel);
+        if (value < MIN || value > MAX)
+            throw new OutOfRange(
+                    RANGE_MESSAGES[Math.min(channel, CHANNEL_COUNT)]
+                );
+
+        this.failsafes.set(channel, value << SHIFT);
+    }
+
+    /**
+     * Get the value a channel is sent at in failsafe.
+     *
+     * @param channel The channel index
+     *
+     * @return The value from MIN to MAX
+     */
+    public int getChannelFailsafe(int channel)
+    {
+        return this.failsafes.get(channel) >>> SHIFT;
+    }
+
+    /**
+     * Copy the failsafe values of all channels.
+     *
+     * @param channels The array to copy to, at least getChannelCount() long
+     *
+     * @return The number of channels copied, at HIRES_BITS
+     */
+    public int getFailsafeSnapshot(int[] channels)
+    {
+        for (int x = 0; x < this.channelCount; ++x)
+            channels[x] = this.failsafes.get(x);
+
+        return this.channelCount;
+    }
+
+    /**
+     * Set how fast a channel may move. The encoder limits the channels sent
+     * to these rates on every tick, so they do not depend on how often the
+     * channel is set.
+     *
+     * @param channel The channel index
+     * @param up The rate moving away from the middle, in percent of the
+     *           range per second, 0 for no limit
+     * @param down The rate moving back to the middle, 0 for no limit
+     *
+     * @throws OutOfRange if the channel or a rate is not valid
+     */
+    public void setChannelSlew(int channel, int up, int down)
+    {
+        this.checkChannel(channel);
+
+        if (up < 0 || up > MAX_SLEW || down < 0 || down > MAX_SLEW)
+            throw new OutOfRange("Slew rate must be between 0-10000");
+
+        this.slewUps[channel] = up;
+        this.slewDowns[channel] = down;
+    }
+
+    /**
+     * Get the rate a channel may move away from the middle.
+     *
+     * @param channel The channel index
+     *
+     * @return The rate in percent of the range per second, 0 for no limit
+     */
+    public int getChannelSlewUp(int channel)
+    {
+        return this.slewUps[channel];
+    }
+
+    /**
+     * Get the rate a channel may move back to the middle.
+     *
+     * @param channel The channel index
+     *
+     * @return The rate in percent of the range per second, 0 for no limit
+     */
+    public int getChannelSlewDown(int channel)
+    {
+        return this.slewDowns[channel];
+    }
+
+    /**
+     * Set the mixer which turns the channels into the channels sent.
+     *
+     * @param mixer The mixer, or null to send the channels as they are
+     */
+    public void setMixer(Mixer mixer)
+    {
+        this.mixer = mixer;
+        this.changed();
+    }
+
+    /**
+     * Get the mixer in use.
+     *
+     * @return The mixer, or null if there is none
+     */
+    public Mixer getMixer()
+    {
+        return this.mixer;
+    }
+
+    /**
+     * Switch dual rate between the high and low rates of every curve. Both
+     * are compiled ahead, so the next value sent already uses the new rate.
+     *
+     * @param low true for the low rates
+     */
+    public void setLowRate(boolean low)
+    {
+        if (this.lowRate == low)
+            return;
+
+        this.lowRate = low;
+        this.changed();
+    }
+
+    /**
+     * Check if dual rate is switched to the low rates.
+     *
+     * @return true for the low rates
+     */
+    public boolean getLowRate()
+    {
+        return this.lowRate;
+    }
+
     /**
      * Set the value of pitch.
      *
-     * @param value The pitch value to set
+     * @param pitch The pitch value to set
      *
-     * @throws exception.OutOfRange
+     * @throws OutOfRange if the value is not valid
      */ 
     public void setPitch(int pitch)
     {
-        if (pitch < MIN || pitch > MAX)
-            throw new OutOfRange("Invalid range of Pitch");
-
-        this.pitch = pitch;
+        this.setChannel(CHANNEL_PITCH, pitch);
     }
 
     /**
@@ -77,19 +922,7 @@ public abstract class Vehicle
      */
     public int getPitch()
     {
-        int trimmed = this.pitch + this.pitchTrim;
-
-        // Return the min/max values if the actual value is out of range
-        if (trimmed < this.pitchMin)
-           trimmed = this.pitchMin;
-        else if (trimmed > this.pitchMax)
-            trimmed = this.pitchMax;
-
-        // Reverse the value when in invert
-        if (pitchInverted)
-            return MAX - trimmed;
-        
-        return trimmed;
+        return this.getChannel(CHANNEL_PITCH);
     }
 
     /**
@@ -101,10 +934,7 @@ public abstract class Vehicle
      */
     public void setPitchTrim(int trim)
     {
-        if (trim < -MID || trim > MID)
-            throw new OutOfRange("Invalid range value for Pitch trim");
-
-        this.pitchTrim = trim;
+        this.setChannelTrim(CHANNEL_PITCH, trim);
     }
 
     /**
@@ -114,7 +944,7 @@ public abstract class Vehicle
      */
     public void setPitchInverted(boolean inverted)
     {
-        this.pitchInverted = inverted;
+        this.setChannelInverted(CHANNEL_PITCH, inverted);
     }
 
     /**
@@ -124,7 +954,7 @@ public abstract class Vehicle
      */
     public boolean getPitchInverted()
     {
-        return this.pitchInverted;
+        return this.getChannelInverted(CHANNEL_PITCH);
     }
 
     /**
@@ -136,10 +966,7 @@ public abstract class Vehicle
      */
     public void setPitchMin(int min)
     {
-        if (min >= this.pitchMax)
-            throw new OutOfRange("Min value must be less than max");
-
-        this.pitchMin = min;
+        this.setChannelMin(CHANNEL_PITCH, min);
     }
 
     /**
@@ -149,7 +976,7 @@ public abstract class Vehicle
      */
     public int getPitchMin()
     {
-        return this.pitchMin;
+        return this.getChannelMin(CHANNEL_PITCH);
     }
 
     /**
@@ -161,10 +988,7 @@ public abstract class Vehicle
      */
     public void setPitchMax(int max)
     {
-        if (max <= this.pitchMin)
-            throw new OutOfRange("Max value must be less than min");
-
-        this.pitchMax = max;
+        this.setChannelMax(CHANNEL_PITCH, max);
     }
 
     /**
@@ -174,22 +998,19 @@ public abstract class Vehicle
      */
     public int getPitchMax()
     {
-        return this.pitchMax;
+        return this.getChannelMax(CHANNEL_PITCH);
     }
 
     /**
      * Set the value of roll.
      *
-     * @param value The roll value to set
+     * @param roll The roll value to set
      *
-     * @throws OutOfRange
+     * @throws OutOfRange if the value is not valid
      */ 
     public void setRoll(int roll)
     {
-        if (roll < MIN || roll > MAX)
-            throw new OutOfRange("Invalid range of Roll");
-
-        this.roll = roll;
+        this.setChannel(CHANNEL_ROLL, roll);
     }
 
     /**
@@ -199,29 +1020,44 @@ public abstract class Vehicle
      */
     public int getRoll()
     {
-        int trimmed = this.roll + this.rollTrim;
+        return this.getChannel(CHANNEL_ROLL);
+    }
 
-        // Return the min/max values if the actual value is out of range
-        if (trimmed < this.rollMin)
-           trimmed = this.rollMin;
-        else if (trimmed > this.rollMax)
-            trimmed = this.rollMax;
+    /**
+     * Set the value of roll at full resolution.
+     *
+     * @param roll The roll value to set, from MIN to HIRES_MAX
+     *
+     * @throws OutOfRange if the value is not valid
+     */ 
+    public void setRollHires(int roll)
+    {
+        this.setChannelHires(CHANNEL_ROLL, roll);
+    }
 
-        // Reverse the value when in invert
-        if (rollInverted)
-            return MAX - trimmed;
-        
-        return trimmed;
+    /**
+     * Set the value of roll at full resolution, with the time of the event
+     * behind it.
+     *
+     * @param roll The roll value to set, from MIN to HIRES_MAX
+     * @param event The time of the event in nanoseconds on the 
+     *              System.nanoTime() clock, 0 if not known
+     *
+     * @throws OutOfRange if the value is not valid
+     */ 
+    public void setRollHires(int roll, long event)
+    {
+        this.setChannelHires(CHANNEL_ROLL, roll, event);
     }
 
     /**
      * Get the actual roll value
      *
-     * @return roll
+     * @return roll as set by the user
      */ 
     public int getActualRoll()
     {
-        return this.roll;
+        return this.getActualChannel(CHANNEL_ROLL);
     }
 
     /**
@@ -233,10 +1069,7 @@ public abstract class Vehicle
      */
     public void setRollTrim(int trim)
     {
-        if (trim < -MID || trim > MID)
-            throw new OutOfRange("Invalid range value for Roll trim");
-
-        this.rollTrim = trim;
+        this.setChannelTrim(CHANNEL_ROLL, trim);
     }
 
     /**
@@ -246,7 +1079,7 @@ public abstract class Vehicle
      */
     public void setRollInverted(boolean inverted)
     {
-        this.rollInverted = inverted;
+        this.setChannelInverted(CHANNEL_ROLL, inverted);
     }
 
     /**
@@ -256,7 +1089,42 @@ public abstract class Vehicle
      */
     public boolean getRollInverted()
     {
-        return this.rollInverted;
+        return this.getChannelInverted(CHANNEL_ROLL);
+    }
+
+    /**
+     * Set the response curve of roll.
+     *
+     * @param curve The curve, Curve.LINEAR for none
+     */
+    public void setRollCurve(Curve curve)
+    {
+        this.setChannelCurve(CHANNEL_ROLL, curve);
+    }
+
+    /**
+     * Set the value roll is sent at in failsafe.
+     *
+     * @param value The value from MIN to MAX
+     *
+     * @throws OutOfRange if the value is not valid
+     */
+    public void setRollFailsafe(int value)
+    {
+        this.setChannelFailsafe(CHANNEL_ROLL, value);
+    }
+
+    /**
+     * Set how fast roll may move.
+     *
+     * @param up The rate away from the middle, 0 for no limit
+     * @param down The rate back to the middle, 0 for no limit
+     *
+     * @throws OutOfRange if a rate is not valid
+     */
+    public void setRollSlew(int up, int down)
+    {
+        this.setChannelSlew(CHANNEL_ROLL, up, down);
     }
 
     /**
@@ -268,10 +1136,7 @@ public abstract class Vehicle
      */
     public void setRollMin(int min)
     {
-        if (min >= this.rollMax)
-            throw new OutOfRange("Min value must be less than max");
-
-        this.rollMin = min;
+        this.setChannelMin(CHANNEL_ROLL, min);
     }
 
     /**
@@ -281,7 +1146,7 @@ public abstract class Vehicle
      */
     public int getRollMin()
     {
-        return this.rollMin;
+        return this.getChannelMin(CHANNEL_ROLL);
     }
 
     /**
@@ -293,10 +1158,7 @@ public abstract class Vehicle
      */
     public void setRollMax(int max)
     {
-        if (max <= this.rollMin)
-            throw new OutOfRange("Max value must be less than min");
-
-        this.rollMax = max;
+        this.setChannelMax(CHANNEL_ROLL, max);
     }
 
     /**
@@ -306,22 +1168,19 @@ public abstract class Vehicle
      */
     public int getRollMax()
     {
-        return this.rollMax;
+        return this.getChannelMax(CHANNEL_ROLL);
     }
- 
+
     /**
      * Set the value of yaw.
      *
-     * @param value The pitch value to set
+     * @param yaw The yaw value to set
      *
-     * @throws exception.OutOfRange
+     * @throws OutOfRange if the value is not valid
      */ 
     public void setYaw(int yaw)
     {
-        if (yaw < MIN || yaw > MAX)
-            throw new OutOfRange("Invalid range of Yaw");
-
-        this.yaw = yaw;
+        this.setChannel(CHANNEL_YAW, yaw);
     }
 
     /**
@@ -331,19 +1190,7 @@ public abstract class Vehicle
      */
     public int getYaw()
     {
-        int trimmed = this.yaw + this.yawTrim;
-
-        // Return the min/max values if the actual value is out of range
-        if (trimmed < this.yawMin)
-            trimmed = this.yawMin;
-        else if (trimmed > this.yawMax)
-            trimmed = this.yawMax;
-        
-        // Reverse the value when in invert
-        if (yawInverted)
-            return MAX - trimmed;
-        
-        return trimmed;
+        return this.getChannel(CHANNEL_YAW);
     }
 
     /**
@@ -355,12 +1202,9 @@ public abstract class Vehicle
      */
     public void setYawTrim(int trim)
     {
-        if (trim < -MID || trim > MID)
-            throw new OutOfRange("Invalid range value for Yaw trim");
-
-        this.yawTrim = trim;
+        this.setChannelTrim(CHANNEL_YAW, trim);
     }
-    
+
     /**
      * Set the invert flag for yaw.
      *
@@ -368,7 +1212,7 @@ public abstract class Vehicle
      */
     public void setYawInverted(boolean inverted)
     {
-        this.yawInverted = inverted;
+        this.setChannelInverted(CHANNEL_YAW, inverted);
     }
 
     /**
@@ -378,22 +1222,19 @@ public abstract class Vehicle
      */
     public boolean getYawInverted()
     {
-        return this.yawInverted;
+        return this.getChannelInverted(CHANNEL_YAW);
     }
 
     /**
      * Set the min value of yaw.
      *
      * @param min The value to set it to
-     *
+     * 
      * @throws OutOfRange if the min value is not valid
      */
     public void setYawMin(int min)
     {
-        if (min >= this.yawMax)
-            throw new OutOfRange("Min value must be less than max");
-
-        this.yawMin = min;
+        this.setChannelMin(CHANNEL_YAW, min);
     }
 
     /**
@@ -403,22 +1244,19 @@ public abstract class Vehicle
      */
     public int getYawMin()
     {
-        return this.yawMin;
+        return this.getChannelMin(CHANNEL_YAW);
     }
 
     /**
      * Set the max value of yaw.
      *
      * @param max The value to set it to
-     *
+     * 
      * @throws OutOfRange if the max value is not valid
      */
     public void setYawMax(int max)
     {
-        if (max <= this.yawMin)
-            throw new OutOfRange("Max value must be less than min");
-
-        this.yawMax = max;
+        this.setChannelMax(CHANNEL_YAW, max);
     }
 
     /**
@@ -428,22 +1266,19 @@ public abstract class Vehicle
      */
     public int getYawMax()
     {
-        return this.yawMax;
+        return this.getChannelMax(CHANNEL_YAW);
     }
- 
+
     /**
      * Set the value of throttle.
      *
-     * @param value The throttle value to set
+     * @param throttle The throttle value to set
      *
-     * @throws exception.OutOfRange
+     * @throws OutOfRange if the value is not valid
      */ 
     public void setThrottle(int throttle)
     {
-        if (throttle < MIN || throttle > MAX)
-            throw new OutOfRange("Invalid range of Throttle");
-
-        this.throttle = throttle;
+        this.setChannel(CHANNEL_THROTTLE, throttle);
     }
 
     /**
@@ -453,29 +1288,44 @@ public abstract class Vehicle
      */
     public int getThrottle()
     {
-        int trimmed = this.throttle + this.throttleTrim;
+        return this.getChannel(CHANNEL_THROTTLE);
+    }
 
-        // Return the min/max values if the actual value is out of range
-        if (trimmed < this.throttleMin)
-            trimmed = this.throttleMin;
-        else if (trimmed > this.throttleMax)
-            trimmed = this.throttleMax;
+    /**
+     * Set the value of throttle at full resolution.
+     *
+     * @param throttle The throttle value to set, from MIN to HIRES_MAX
+     *
+     * @throws OutOfRange if the value is not valid
+     */ 
+    public void setThrottleHires(int throttle)
+    {
+        this.setChannelHires(CHANNEL_THROTTLE, throttle);
+    }
 
-        // Reverse the value when in invert
-        if (throttleInverted)
-            return MAX - trimmed;
-        
-        return trimmed;
+    /**
+     * Set the value of throttle at full resolution, with the time of the 
+     * event behind it.
+     *
+     * @param throttle The throttle value to set, from MIN to HIRES_MAX
+     * @param event The time of the event in nanoseconds on the 
+     *              System.nanoTime() clock, 0 if not known
+     *
+     * @throws OutOfRange if the value is not valid
+     */ 
+    public void setThrottleHires(int throttle, long event)
+    {
+        this.setChannelHires(CHANNEL_THROTTLE, throttle, event);
     }
 
     /**
-     * Return the value of throttle as set by user.
+     * Get the actual throttle value
      *
-     * @returns the actual value of throttle
+     * @return throttle as set by the user
      */ 
     public int getActualThrottle()
     {
-        return this.throttle;
+        return this.getActualChannel(CHANNEL_THROTTLE);
     }
 
     /**
@@ -487,12 +1337,9 @@ public abstract class Vehicle
      */
     public void setThrottleTrim(int trim)
     {
-        if (trim < -MID || trim > MID)
-            throw new OutOfRange("Invalid range value for Throttle trim");
-
-        this.throttleTrim = trim;
+        this.setChannelTrim(CHANNEL_THROTTLE, trim);
     }
-    
+
     /**
      * Set the invert flag for throttle.
      *
@@ -500,7 +1347,7 @@ public abstract class Vehicle
      */
     public void setThrottleInverted(boolean inverted)
     {
-        this.throttleInverted = inverted;
+        this.setChannelInverted(CHANNEL_THROTTLE, inverted);
     }
 
     /**
@@ -510,22 +1357,54 @@ public abstract class Vehicle
      */
     public boolean getThrottleInverted()
     {
-        return this.throttleInverted;
+        return this.getChannelInverted(CHANNEL_THROTTLE);
+    }
+
+    /**
+     * Set the response curve of throttle.
+     *
+     * @param curve The curve, Curve.LINEAR for none
+     */
+    public void setThrottleCurve(Curve curve)
+    {
+        this.setChannelCurve(CHANNEL_THROTTLE, curve);
+    }
+
+    /**
+     * Set the value throttle is sent at in failsafe.
+     *
+     * @param value The value from MIN to MAX
+     *
+     * @throws OutOfRange if the value is not valid
+     */
+    public void setThrottleFailsafe(int value)
+    {
+        this.setChannelFailsafe(CHANNEL_THROTTLE, value);
+    }
+
+    /**
+     * Set how fast throttle may move.
+     *
+     * @param up The rate away from the middle, 0 for no limit
+     * @param down The rate back to the middle, 0 for no limit
+     *
+     * @throws OutOfRange if a rate is not valid
+     */
+    public void setThrottleSlew(int up, int down)
+    {
+        this.setChannelSlew(CHANNEL_THROTTLE, up, down);
     }
 
     /**
      * Set the min value of throttle.
      *
      * @param min The value to set it to
-     *
+     * 
      * @throws OutOfRange if the min value is not valid
      */
     public void setThrottleMin(int min)
     {
-        if (min >= this.throttleMax)
-            throw new OutOfRange("Min value must be less than max");
-
-        this.throttleMin = min;
+        this.setChannelMin(CHANNEL_THROTTLE, min);
     }
 
     /**
@@ -535,22 +1414,19 @@ public abstract class Vehicle
      */
     public int getThrottleMin()
     {
-        return this.throttleMin;
+        return this.getChannelMin(CHANNEL_THROTTLE);
     }
 
     /**
      * Set the max value of throttle.
      *
      * @param max The value to set it to
-     *
+     * 
      * @throws OutOfRange if the max value is not valid
      */
     public void setThrottleMax(int max)
     {
-        if (max <= this.throttleMin)
-            throw new OutOfRange("Max value must be less than min");
-
-        this.throttleMax = max;
+        this.setChannelMax(CHANNEL_THROTTLE, max);
     }
 
     /**
@@ -575,6 +1451,6 @@ public abstract class Vehicle
      */
     public int getThrottleMax()
     {
-        return this.throttleMax;
+        return this.getChannelMax(CHANNEL_THROTTLE);
     }
 }
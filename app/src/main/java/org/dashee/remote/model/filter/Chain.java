@@ -0,0 +1,78 @@
+package org.dashee.remote.model.filter;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.Filter;
+
+/**
+ * Filters run one after the other, each given what the one before it gave.
+ */
+public class Chain
+    extends Filter
+{
+    /**
+     * The stages in the order they run.
+     */
+    private final Filter[] stages;
+
+    /**
+     * Create a chain.
+     *
+     * @param stages The stages in the order they run
+     *
+     * @throws OutOfRange if there are no stages
+     */
+    public Chain(Filter[] stages)
+    {
+        if (stages.length == 0)
+            throw new OutOfRange("Filter chain must have at least 1 stage");
+
+        this.stages = stages.clone();
+    }
+
+    /**
+     * Get the number of stages.
+     *
+     * @return The number of stages
+     */
+    public int getStageCount()
+    {
+        return this.stages.length;
+    }
+
+    /**
+     * Get a stage.
+     *
+     * @param index The position of the stage in the chain
+     *
+     * @return The stage
+     */
+    public Filter getStage(int index)
+    {
+        return this.stages[index];
+    }
+
+    /**
+     * Run the sample through every stage.
+     *
+     * @param value The sample
+     * @param time The time of the sample in nanoseconds
+     *
+     * @return The value given by the last stage
+     */
+    public float apply(float value, long time)
+    {
+        for (int x = 0; x < this.stages.length; ++x)
+            value = this.stages[x].apply(value, time);
+
+        return value;
+    }
+
+    /**
+     * Forget the samples so far, in every stage.
+     */
+    public void reset()
+    {
+        for (int x = 0; x < this.stages.length; ++x)
+            this.stages[x].reset();
+    }
+}
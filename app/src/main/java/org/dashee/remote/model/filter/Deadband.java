@@ -0,0 +1,76 @@
+package org.dashee.remote.model.filter;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.Filter;
+
+/**
+ * Holds the value until the samples move more than the width away from it,
+ * then jumps to the sample. Noise smaller than the width then gives the
+ * same value every time, which the vehicle does not send again.
+ */
+public class Deadband
+    extends Filter
+{
+    /**
+     * How far the samples must move to change the value.
+     */
+    private final float width;
+
+    /**
+     * Whether a sample was seen, and the value held.
+     */
+    private boolean started = false;
+    private float output = 0.0f;
+
+    /**
+     * Create a deadband.
+     *
+     * @param width How far the samples must move to change the value
+     *
+     * @throws OutOfRange if the width is less than 0
+     */
+    public Deadband(float width)
+    {
+        if (!(width >= 0.0f) || Float.isInfinite(width))
+            throw new OutOfRange("Deadband must be 0 or more");
+
+        this.width = width;
+    }
+
+    /**
+     * Get how far the samples must move to change the value.
+     *
+     * @return The width
+     */
+    public float getWidth()
+    {
+        return this.width;
+    }
+
+    /**
+     * Give the value held, or the sample if it moved far enough.
+     *
+     * @param value The sample
+     * @param time The time of the sample, not used
+     *
+     * @return The value held
+     */
+    public float apply(float value, long time)
+    {
+        if (!this.started || Math.abs(value - this.output) > this.width)
+        {
+            this.started = true;
+            this.output = value;
+        }
+
+        return this.output;
+    }
+
+    /**
+     * Forget the value held.
+     */
+    public void reset()
+    {
+        this.started = false;
+    }
+}
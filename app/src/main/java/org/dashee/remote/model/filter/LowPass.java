@@ -0,0 +1,90 @@
+package org.dashee.remote.model.filter;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.Filter;
+
+/**
+ * A first order low-pass, which smooths out changes faster than the cutoff
+ * frequency. It works on the time between samples, so the smoothing is the
+ * same whatever rate the sensor runs at.
+ */
+public class LowPass
+    extends Filter
+{
+    /**
+     * The cutoff frequency in Hz.
+     */
+    private final float cutoff;
+
+    /**
+     * Whether a sample was seen, the time of the last one in nanoseconds,
+     * and the value given for it.
+     */
+    private boolean started = false;
+    private long last = 0;
+    private float output = 0.0f;
+
+    /**
+     * Create a low-pass.
+     *
+     * @param cutoff The cutoff frequency in Hz
+     *
+     * @throws OutOfRange if the cutoff is not valid
+     */
+    public LowPass(float cutoff)
+    {
+        if (!(cutoff > 0.0f && cutoff <= MAX_CUTOFF))
+            throw new OutOfRange(
+                    "Low-pass cutoff must be between 0-" + MAX_CUTOFF + "Hz"
+                );
+
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * Get the cutoff frequency.
+     *
+     * @return The cutoff in Hz
+     */
+    public float getCutoff()
+    {
+        return this.cutoff;
+    }
+
+    /**
+     * Move part of the way to the sample, further the longer it has been
+     * since the last one.
+     *
+     * @param value The sample
+     * @param time The time of the sample in nanoseconds
+     *
+     * @return The filtered value
+     */
+    public float apply(float value, long time)
+    {
+        long elapsed = time - this.last;
+        if (!this.started || elapsed < 0 || elapsed > MAX_GAP)
+        {
+            this.started = true;
+            this.last = time;
+            this.output = value;
+            return value;
+        }
+
+        if (elapsed == 0)
+            return this.output;
+
+        this.last = time;
+        this.output += alpha(this.cutoff, elapsed * 1e-9f) *
+            (value - this.output);
+        return this.output;
+    }
+
+    /**
+     * Forget the samples so far.
+     */
+    public void reset()
+    {
+        this.started = false;
+    }
+}
@@ -0,0 +1,120 @@
+package org.dashee.remote.model.filter;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.Filter;
+
+/**
+ * The median of the last samples, which drops single spikes without
+ * smoothing out steps.
+ *
+ * The samples are kept in order of arrival in a ring buffer and in order of
+ * value in a sorted array. Each sample takes out the oldest and puts in the
+ * new one, at most the window size of moves each, so the cost only depends
+ * on the window. Until the window is full the median is of the samples so
+ * far.
+ */
+public class Median
+    extends Filter
+{
+    /**
+     * The largest window.
+     */
+    public static final int MAX_SIZE = 15;
+
+    /**
+     * The samples in order of arrival.
+     */
+    private final RingBuffer window;
+
+    /**
+     * The same samples in order of value.
+     */
+    private final float[] sorted;
+
+    /**
+     * Create a median filter.
+     *
+     * @param size The number of samples to take the median of
+     *
+     * @throws OutOfRange if the size is not valid
+     */
+    public Median(int size)
+    {
+        if (size < 1 || size > MAX_SIZE)
+            throw new OutOfRange(
+                    "Median size must be between 1-" + MAX_SIZE
+                );
+
+        this.window = new RingBuffer(size);
+        this.sorted = new float[size];
+    }
+
+    /**
+     * Get the number of samples the median is of.
+     *
+     * @return The size of the window
+     */
+    public int getSize()
+    {
+        return this.sorted.length;
+    }
+
+    /**
+     * Add the sample to the window, and give the median. Samples which are
+     * not a number are skipped.
+     *
+     * @param value The sample
+     * @param time The time of the sample, not used
+     *
+     * @return The median of the window
+     */
+    public float apply(float value, long time)
+    {
+        if (Float.isNaN(value))
+            return this.window.size() == 0 ? value : this.median();
+
+        int size = this.window.size();
+        if (this.window.isFull())
+        {
+            // Take the oldest out, closing the gap
+            float oldest = this.window.get(0);
+            int x = 0;
+            while (x < size - 1 && this.sorted[x] != oldest)
+                ++x;
+            for (; x < size - 1; ++x)
+                this.sorted[x] = this.sorted[x + 1];
+            --size;
+        }
+        this.window.push(value);
+
+        // Put the new one in, moving the larger ones up
+        int x = size;
+        while (x > 0 && this.sorted[x - 1] > value)
+        {
+            this.sorted[x] = this.sorted[x - 1];
+            --x;
+        }
+        this.sorted[x] = value;
+
+        return this.median();
+    }
+
+    /**
+     * Get the middle of the sorted samples, the upper one of the two in the
+     * middle when there is an even number.
+     *
+     * @return The median
+     */
+    private float median()
+    {
+        return this.sorted[this.window.size() / 2];
+    }
+
+    /**
+     * Forget the samples so far.
+     */
+    public void reset()
+    {
+        this.window.clear();
+    }
+}
@@ -0,0 +1,126 @@
+package org.dashee.remote.model.filter;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.Filter;
+
+/**
+ * The 1 Euro filter of Casiez, Roussel and Vogel. A low-pass whose cutoff
+ * rises with how fast the value moves, so holding still is smooth and
+ * quick moves are followed with little lag.
+ *
+ * The speed is itself smoothed with a low-pass at DERIVATIVE_CUTOFF, and
+ * the cutoff is the minimum cutoff plus beta times the speed. Raise the
+ * minimum cutoff for less lag when still, and beta for less lag moving.
+ */
+public class OneEuro
+    extends Filter
+{
+    /**
+     * The cutoff of the low-pass on the speed in Hz.
+     */
+    public static final float DERIVATIVE_CUTOFF = 1.0f;
+
+    /**
+     * The highest beta.
+     */
+    public static final float MAX_BETA = 1000.0f;
+
+    /**
+     * The cutoff when still in Hz, and how much it rises with speed.
+     */
+    private final float minCutoff;
+    private final float beta;
+
+    /**
+     * Whether a sample was seen, the time of the last one in nanoseconds,
+     * the value given for it and the smoothed speed in units a second.
+     */
+    private boolean started = false;
+    private long last = 0;
+    private float output = 0.0f;
+    private float speed = 0.0f;
+
+    /**
+     * Create a 1 Euro filter.
+     *
+     * @param minCutoff The cutoff when still in Hz
+     * @param beta How much the cutoff rises with speed, 0 for a low-pass
+     *
+     * @throws OutOfRange if a setting is not valid
+     */
+    public OneEuro(float minCutoff, float beta)
+    {
+        if (!(minCutoff > 0.0f && minCutoff <= MAX_CUTOFF))
+            throw new OutOfRange(
+                    "1 Euro cutoff must be between 0-" + MAX_CUTOFF + "Hz"
+                );
+
+        if (!(beta >= 0.0f && beta <= MAX_BETA))
+            throw new OutOfRange("1 Euro beta must be between 0-" + MAX_BETA);
+
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+    }
+
+    /**
+     * Get the cutoff when still.
+     *
+     * @return The cutoff in Hz
+     */
+    public float getMinCutoff()
+    {
+        return this.minCutoff;
+    }
+
+    /**
+     * Get how much the cutoff rises with speed.
+     *
+     * @return The beta
+     */
+    public float getBeta()
+    {
+        return this.beta;
+    }
+
+    /**
+     * Low-pass the sample, at a cutoff worked out from the speed.
+     *
+     * @param value The sample
+     * @param time The time of the sample in nanoseconds
+     *
+     * @return The filtered value
+     */
+    public float apply(float value, long time)
+    {
+        long elapsed = time - this.last;
+        if (!this.started || elapsed < 0 || elapsed > MAX_GAP)
+        {
+            this.started = true;
+            this.last = time;
+            this.output = value;
+            this.speed = 0.0f;
+            return value;
+        }
+
+        if (elapsed == 0)
+            return this.output;
+
+        this.last = time;
+        float seconds = elapsed * 1e-9f;
+
+        float speed = (value - this.output) / seconds;
+        this.speed += alpha(DERIVATIVE_CUTOFF, seconds) * (speed - this.speed);
+
+        float cutoff = this.minCutoff + this.beta * Math.abs(this.speed);
+        this.output += alpha(cutoff, seconds) * (value - this.output);
+        return this.output;
+    }
+
+    /**
+     * Forget the samples so far.
+     */
+    public void reset()
+    {
+        this.started = false;
+    }
+}
@@ -0,0 +1,118 @@
+package org.dashee.remote.model.filter;
+
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * A fixed number of floats, the oldest pushed out by the newest once full.
+ * The array is created with the buffer, so pushing never allocates.
+ */
+public final class RingBuffer
+{
+    /**
+     * The values, and where the oldest is.
+     */
+    private final float[] values;
+    private int head = 0;
+
+    /**
+     * How many values are held.
+     */
+    private int size = 0;
+
+    /**
+     * Create an empty buffer.
+     *
+     * @param capacity The most values held
+     *
+     * @throws OutOfRange if the capacity is less than 1
+     */
+    public RingBuffer(int capacity)
+    {
+        if (capacity < 1)
+            throw new OutOfRange("Ring buffer must hold at least 1 value");
+
+        this.values = new float[capacity];
+    }
+
+    /**
+     * Get the most values held.
+     *
+     * @return The capacity
+     */
+    public int getCapacity()
+    {
+        return this.values.length;
+    }
+
+    /**
+     * Get how many values are held.
+     *
+     * @return The size, from 0 to the capacity
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Check if pushing will push out the oldest value.
+     *
+     * @return true if the buffer is full
+     */
+    public boolean isFull()
+    {
+        return this.size == this.values.length;
+    }
+
+    /**
+     * Add a value, pushing out the oldest if full.
+     *
+     * @param value The value to add
+     *
+     * @return The value pushed out, or NaN if the buffer was not full
+     */
+    public float push(float value)
+    {
+        float oldest = Float.NaN;
+        int index = this.head + this.size;
+
+        if (this.size == this.values.length)
+        {
+            oldest = this.values[this.head];
+            this.head = (this.head + 1) % this.values.length;
+        }
+        else
+            this.size++;
+
+        this.values[index % this.values.length] = value;
+        return oldest;
+    }
+
+    /**
+     * Get a value held.
+     *
+     * @param index 0 for the oldest up to size() - 1 for the newest
+     *
+     * @return The value
+     *
+     * @throws OutOfRange if the index is not held
+     */
+    public float get(int index)
+    {
+        if (index < 0 || index >= this.size)
+            throw new OutOfRange(
+                    "Index must be between 0-" + (this.size - 1)
+                );
+
+        return this.values[(this.head + index) % this.values.length];
+    }
+
+    /**
+     * Drop all the values.
+     */
+    public void clear()
+    {
+        this.head = 0;
+        this.size = 0;
+    }
+}
@@ -7,11 +7,20 @@ public class Car extends Vehicle
 {
     public Car()
     {
-        super();
-        this.setPitch(128);
-        this.setRoll(128);
-        this.setYaw(128);
-        this.setThrottle(128);
+        this(CHANNEL_COUNT);
+    }
+
+    /**
+     * Create a car with aux channels. Every channel starts in the middle.
+     *
+     * @param channels The number of channels, including the named ones
+     */
+    public Car(int channels)
+    {
+        super(channels);
+
+        for (int x = 0; x < channels; ++x)
+            this.setChannel(x, MID);
     }
 
     /**
@@ -0,0 +1,164 @@
+package org.dashee.remote.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Traffic counters of the send and receive paths.
+ *
+ * Every counter has a single writer, the send counters are only written by
+ * the control loop and the receive counters by the receive thread, so plain
+ * volatile fields are enough and counting never locks or allocates. The
+ * totals only grow, readers take the difference between two reads to get a
+ * rate.
+ *
+ * The slowest send is the one counter with two writers, it is cleared by
+ * whoever reads it, so it uses an atomic.
+ */
+public class Counters
+{
+    /**
+     * Packets and bytes handed to the transport, and sends which failed.
+     */
+    private volatile long packetsSent = 0;
+    private volatile long bytesSent = 0;
+    private volatile long sendErrors = 0;
+
+    /**
+     * Total time spent in the send call, and the slowest one since it was
+     * last read, in nanoseconds.
+     */
+    private volatile long sendNanos = 0;
+    private final AtomicLong sendMax = new AtomicLong(0);
+
+    /**
+     * Datagrams and bytes received, and receives which failed.
+     */
+    private volatile long packetsReceived = 0;
+    private volatile long bytesReceived = 0;
+    private volatile long receiveErrors = 0;
+
+    /**
+     * Count a packet sent. Only called by the control loop.
+     *
+     * @param bytes The length of the packet
+     * @param nanos The time the send call took in nanoseconds
+     */
+    public void sent(int bytes, long nanos)
+    {
+        this.packetsSent++;
+        this.bytesSent += bytes;
+        this.sendNanos += nanos;
+
+        long max = this.sendMax.get();
+        while (nanos > max && !this.sendMax.compareAndSet(max, nanos))
+            max = this.sendMax.get();
+    }
+
+    /**
+     * Count a send which failed. Only called by the control loop.
+     */
+    public void sendFailed()
+    {
+        this.sendErrors++;
+    }
+
+    /**
+     * Count a datagram received. Only called by the receive thread.
+     *
+     * @param bytes The length of the datagram
+     */
+    public void received(int bytes)
+    {
+        this.packetsReceived++;
+        this.bytesReceived += bytes;
+    }
+
+    /**
+     * Count a receive which failed. Only called by the receive thread.
+     */
+    public void receiveFailed()
+    {
+        this.receiveErrors++;
+    }
+
+    /**
+     * Get the number of packets sent.
+     *
+     * @return The packet count
+     */
+    public long getPacketsSent()
+    {
+        return this.packetsSent;
+    }
+
+    /**
+     * Get the number of bytes sent.
+     *
+     * @return The byte count
+     */
+    public long getBytesSent()
+    {
+        return this.bytesSent;
+    }
+
+    /**
+     * Get the number of sends which failed.
+     *
+     * @return The error count
+     */
+    public long getSendErrors()
+    {
+        return this.sendErrors;
+    }
+
+    /**
+     * Get the total time spent in the send call.
+     *
+     * @return The time in nanoseconds
+     */
+    public long getSendNanos()
+    {
+        return this.sendNanos;
+    }
+
+    /**
+     * Get the slowest send call since the last time this was called, and
+     * start over.
+     *
+     * @return The time in nanoseconds
+     */
+    public long takeSendMax()
+    {
+        return this.sendMax.getAndSet(0);
+    }
+
+    /**
+     * Get the number of datagrams received.
+     *
+     * @return The packet count
+     */
+    public long getPacketsReceived()
+    {
+        return this.packetsReceived;
+    }
+
+    /**
+     * Get the number of bytes received.
+     *
+     * @return The byte count
+     */
+    public long getBytesReceived()
+    {
+        return this.bytesReceived;
+    }
+
+    /**
+     * Get the number of receives which failed.
+     *
+     * @return The error count
+     */
+    public long getReceiveErrors()
+    {
+        return this.receiveErrors;
+    }
+}
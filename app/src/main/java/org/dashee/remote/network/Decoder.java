@@ -0,0 +1,413 @@
+package org.dashee.remote.network;
+
+/**
+ * Reads a command packet back into its fields.
+ *
+ * Both formats are understood, told apart by the first byte. A decoder is
+ * reused for every packet, decode() overwrites the fields of the previous
+ * one. A packet is checked whole before any field is written, so one which
+ * is refused leaves the fields of the previous one as they were. Legacy 
+ * packets have no sequence or time, so those read as 0.
+ *
+ * Sequenced packets are also tracked across calls. When packets go missing
+ * the earlier frames repeated in the next one are counted as recovered, and
+ * whatever they do not cover as lost. This is what a server does with 
+ * redundant packets, and lets us tune the redundancy.
+ */
+public class Decoder
+{
+    /**
+     * Fields of the last packet decoded.
+     */
+    private Encoder.Format format;
+    private int flags;
+    private int resolution;
+    private long sequence;
+    private long timestamp;
+    private int channelCount;
+    private final int[] channels = new int[255];
+
+    /**
+     * Earlier frames repeated by the last packet, newest first.
+     */
+    private int redundantCount;
+    private final int[][] redundant = new int[Encoder.MAX_REDUNDANCY][255];
+
+    /**
+     * The newest sequence number seen, and whether we have seen one yet.
+     */
+    private long lastSequence;
+    private boolean started = false;
+
+    /**
+     * Packets which went missing, split by whether a later packet carried
+     * them, and packets which arrived after a newer one.
+     */
+    private long recovered = 0;
+    private long lost = 0;
+    private long stale = 0;
+
+    /**
+     * Decode a packet.
+     *
+     * @param buffer The buffer holding the packet
+     * @param length The length of the packet
+     *
+     * @return false if the packet is not in a format we know
+     */
+    public boolean decode(byte[] buffer, int length)
+    {
+        if (length == Packet.LEGACY_SIZE && buffer[0] == 0)
+            return this.decodeLegacy(buffer);
+
+        if (
+                length < Packet.HEADER_SIZE || 
+                buffer[Packet.OFFSET_VERSION] != Packet.VERSION
+            )
+            return false;
+
+        int count = buffer[Packet.OFFSET_CHANNEL_COUNT] & 0xFF;
+        int flags = buffer[Packet.OFFSET_FLAGS] & 0xFF;
+        int offset = Packet.HEADER_SIZE;
+
+        int resolution = Packet.MIN_RESOLUTION;
+        if ((flags & Packet.FLAG_HIRES) != 0)
+        {
+            if (length <= offset)
+                return false;
+
+            resolution = buffer[offset++] & 0xFF;
+            if (
+                    resolution <= Packet.MIN_RESOLUTION || 
+                    resolution > Packet.MAX_RESOLUTION
+                )
+                return false;
+        }
+
+        int size = Packet.packedSize(count, resolution);
+        if (length < offset + size)
+            return false;
+
+        boolean redundant = (flags & Packet.FLAG_REDUNDANT) != 0;
+        if (
+                redundant &&
+                !this.checkRedundant(
+                    buffer, 
+                    offset + size, 
+                    length, 
+                    count,
+                    resolution
+                )
+            )
+            return false;
+
+        // The packet is whole, only now are the fields replaced
+        int bit = offset * 8;
+        for (int x = 0; x < count; ++x, bit += resolution)
+            this.channels[x] = Packet.getBits(buffer, bit, resolution);
+
+        this.redundantCount = 0;
+        if (redundant)
+            this.decodeRedundant(buffer, offset + size, count, resolution);
+
+        this.format = Encoder.Format.SEQUENCED;
+        this.flags = flags;
+        this.resolution = resolution;
+        this.sequence = Packet.getInt(buffer, Packet.OFFSET_SEQUENCE);
+        this.timestamp = Packet.getInt(buffer, Packet.OFFSET_TIMESTAMP);
+        this.channelCount = count;
+        this.track(this.sequence);
+
+        return true;
+    }
+
+    /**
+     * Check the earlier frames which follow the channels fit the packet,
+     * without decoding them.
+     *
+     * @param buffer The buffer holding the packet
+     * @param offset Where the earlier frames start
+     * @param length The length of the packet
+     * @param count The number of channels per frame
+     * @param resolution The bits per channel
+     *
+     * @return false if the frames do not fit the packet
+     */
+    private boolean checkRedundant(
+            byte[] buffer, 
+            int offset, 
+            int length, 
+            int count,
+            int resolution
+        )
+    {
+        if (offset >= length)
+            return false;
+
+        int frames = buffer[offset++] & 0xFF;
+        if (frames > Encoder.MAX_REDUNDANCY)
+            return false;
+
+        int maskSize = (count + 7) / 8;
+        for (int k = 0; k < frames; ++k)
+        {
+            if (offset + maskSize > length)
+                return false;
+
+            int changed = countChanged(buffer, offset, count);
+            offset += maskSize + Packet.packedSize(changed, resolution);
+            if (offset > length)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Decode the earlier frames which follow the channels. The frames must 
+     * have been checked to fit the packet.
+     *
+     * @param buffer The buffer holding the packet
+     * @param offset Where the earlier frames start
+     * @param count The number of channels per frame
+     * @param resolution The bits per channel
+     */
+    private void decodeRedundant(
+            byte[] buffer, 
+            int offset, 
+            int count,
+            int resolution
+        )
+    {
+        int frames = buffer[offset++] & 0xFF;
+        int maskSize = (count + 7) / 8;
+        int valueMask = (1 << resolution) - 1;
+        int[] newer = this.channels;
+        for (int k = 0; k < frames; ++k)
+        {
+            int mask = offset;
+            offset += maskSize;
+
+            int bit = offset * 8;
+            int[] older = this.redundant[k];
+            for (int x = 0; x < count; ++x)
+            {
+                if ((buffer[mask + x / 8] & (1 << (x % 8))) == 0)
+                    older[x] = newer[x];
+
+                else
+                {
+                    older[x] = (newer[x] + 
+                        Packet.getBits(buffer, bit, resolution)) & valueMask;
+                    bit += resolution;
+                }
+            }
+            offset += Packet.packedSize(
+                    countChanged(buffer, mask, count), 
+                    resolution
+                );
+
+            newer = older;
+        }
+
+        this.redundantCount = frames;
+    }
+
+    /**
+     * Count the channels an earlier frame changed.
+     *
+     * @param buffer The buffer holding the packet
+     * @param mask Where the mask of the frame starts
+     * @param count The number of channels per frame
+     *
+     * @return The number of bits set in the mask
+     */
+    private static int countChanged(byte[] buffer, int mask, int count)
+    {
+        int changed = 0;
+        for (int x = 0; x < count; ++x)
+            if ((buffer[mask + x / 8] & (1 << (x % 8))) != 0)
+                changed++;
+
+        return changed;
+    }
+
+    /**
+     * Count the packets missed since the newest one seen.
+     *
+     * @param sequence The sequence number of this packet
+     */
+    private void track(long sequence)
+    {
+        if (!this.started)
+        {
+            this.started = true;
+            this.lastSequence = sequence;
+            return;
+        }
+
+        if (!Packet.isNewer(sequence, this.lastSequence))
+        {
+            this.stale++;
+            return;
+        }
+
+        long missed = ((sequence - this.lastSequence) & 0xFFFFFFFFL) - 1;
+        long carried = Math.min(missed, this.redundantCount);
+        this.recovered += carried;
+        this.lost += missed - carried;
+        this.lastSequence = sequence;
+    }
+
+    /**
+     * Decode the 5 byte frame. Its roll and throttle are put in the same 
+     * channel positions as the sequenced format.
+     *
+     * @param buffer The buffer holding the packet
+     *
+     * @return Always true
+     */
+    private boolean decodeLegacy(byte[] buffer)
+    {
+        this.format = Encoder.Format.LEGACY;
+        this.redundantCount = 0;
+        this.flags = 0;
+        this.resolution = Packet.MIN_RESOLUTION;
+        this.sequence = 0;
+        this.timestamp = 0;
+        this.channelCount = Packet.CHANNEL_COUNT;
+        this.channels[Packet.CHANNEL_PITCH] = 0;
+        this.channels[Packet.CHANNEL_ROLL] 
+            = buffer[Packet.LEGACY_ROLL] & 0xFF;
+        this.channels[Packet.CHANNEL_YAW] = 0;
+        this.channels[Packet.CHANNEL_THROTTLE] 
+            = buffer[Packet.LEGACY_THROTTLE] & 0xFF;
+
+        return true;
+    }
+
+    /**
+     * Get the number of earlier frames repeated by the last packet.
+     *
+     * @return The frame count
+     */
+    public int getRedundantCount()
+    {
+        return this.redundantCount;
+    }
+
+    /**
+     * Get the value of a channel in an earlier frame of the last packet.
+     *
+     * @param frame How many frames back, 1 for the one before the packet
+     * @param channel The index of the channel
+     *
+     * @return The value from 0 to 2^resolution-1
+     */
+    public int getRedundantChannel(int frame, int channel)
+    {
+        return this.redundant[frame - 1][channel];
+    }
+
+    /**
+     * Get the number of missing packets a later packet carried.
+     *
+     * @return The recovered count
+     */
+    public long getRecovered()
+    {
+        return this.recovered;
+    }
+
+    /**
+     * Get the number of missing packets no later packet carried.
+     *
+     * @return The lost count
+     */
+    public long getLost()
+    {
+        return this.lost;
+    }
+
+    /**
+     * Get the number of packets which arrived after a newer one.
+     *
+     * @return The stale count
+     */
+    public long getStale()
+    {
+        return this.stale;
+    }
+
+    /**
+     * Get the format of the last packet.
+     *
+     * @return The format
+     */
+    public Encoder.Format getFormat()
+    {
+        return this.format;
+    }
+
+    /**
+     * Get the flags of the last packet.
+     *
+     * @return The flags byte
+     */
+    public int getFlags()
+    {
+        return this.flags;
+    }
+
+    /**
+     * Get the resolution of the channels in the last packet.
+     *
+     * @return The resolution in bits
+     */
+    public int getResolution()
+    {
+        return this.resolution;
+    }
+
+    /**
+     * Get the sequence number of the last packet.
+     *
+     * @return The sequence number
+     */
+    public long getSequence()
+    {
+        return this.sequence;
+    }
+
+    /**
+     * Get the send time of the last packet.
+     *
+     * @return The time in microseconds, truncated to 32 bits
+     */
+    public long getTimestamp()
+    {
+        return this.timestamp;
+    }
+
+    /**
+     * Get the number of channels in the last packet.
+     *
+     * @return The channel count
+     */
+    public int getChannelCount()
+    {
+        return this.channelCount;
+    }
+
+    /**
+     * Get the value of a channel in the last packet.
+     *
+     * @param channel The index of the channel
+     *
+     * @return The value from 0 to 2^resolution-1
+     */
+    public int getChannel(int channel)
+    {
+        return this.channels[channel];
+    }
+}
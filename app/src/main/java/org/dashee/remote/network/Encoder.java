@@ -0,0 +1,242 @@
+package org.dashee.remote.network;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.SlewLimiter;
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.network.encoder.Legacy;
+import org.dashee.remote.network.encoder.Sequenced;
+
+/**
+ * Turns the state of a vehicle into a command packet.
+ *
+ * Encoders write into a buffer owned by the caller, so encoding a packet on
+ * every tick does not allocate. See Packet for the formats.
+ */
+public abstract class Encoder
+{
+    /**
+     * Available packet formats.
+     */
+    public enum Format {
+        LEGACY,
+        SEQUENCED
+    };
+
+    /**
+     * The most earlier frames a packet can repeat.
+     */
+    public static final int MAX_REDUNDANCY = 8;
+
+    /**
+     * The number of earlier frames each packet repeats, in formats which 
+     * support it.
+     */
+    protected int redundancy = 0;
+
+    /**
+     * The resolution of the channels in bits, in formats which support it.
+     */
+    protected int resolution = Packet.MIN_RESOLUTION;
+
+    /**
+     * Bytes written so far, and how many of those were repeated frames.
+     */
+    protected volatile long bytes = 0;
+    protected volatile long redundantBytes = 0;
+
+    /**
+     * Holds the channels to their slew rates on the clock of the ticks
+     * encoding them, and whether any was still catching up last tick.
+     */
+    private final SlewLimiter limiter = new SlewLimiter();
+    private volatile boolean limiting = false;
+
+    /**
+     * Whether the failsafe values are sent instead of the channels.
+     */
+    protected volatile boolean failsafe = false;
+
+    /**
+     * Create an encoder for the given format.
+     *
+     * @param format The packet format
+     *
+     * @return A new encoder
+     */
+    public static Encoder create(Format format)
+    {
+        switch (format)
+        {
+            case SEQUENCED:
+                return new Sequenced();
+            default:
+                return new Legacy();
+        }
+    }
+
+    /**
+     * Get the format written by this encoder.
+     *
+     * @return The format
+     */
+    public abstract Format getFormat();
+
+    /**
+     * Set the number of earlier frames each packet repeats. Formats without
+     * room for them ignore this.
+     *
+     * @param frames The number of frames, 0 to turn it off
+     *
+     * @throws OutOfRange if the number is not valid
+     */
+    public void setRedundancy(int frames)
+    {
+        if (frames < 0 || frames > MAX_REDUNDANCY)
+            throw new OutOfRange(
+                    "Redundancy must be between 0-" + MAX_REDUNDANCY
+                );
+
+        this.redundancy = frames;
+    }
+
+    /**
+     * Get the number of earlier frames each packet repeats.
+     *
+     * @return The number of frames
+     */
+    public int getRedundancy()
+    {
+        return this.redundancy;
+    }
+
+    /**
+     * Set the resolution the channels are sent at. Formats which only have
+     * room for a byte per channel ignore this.
+     *
+     * @param bits The resolution in bits
+     *
+     * @throws OutOfRange if the resolution is not valid
+     */
+    public void setResolution(int bits)
+    {
+        if (bits < Packet.MIN_RESOLUTION || bits > Packet.MAX_RESOLUTION)
+            throw new OutOfRange(
+                    "Resolution must be between " + Packet.MIN_RESOLUTION +
+                    "-" + Packet.MAX_RESOLUTION
+                );
+
+        this.resolution = bits;
+    }
+
+    /**
+     * Get the resolution the channels are sent at.
+     *
+     * @return The resolution in bits
+     */
+    public int getResolution()
+    {
+        return this.resolution;
+    }
+
+    /**
+     * Get the number of bytes written by this encoder.
+     *
+     * @return The byte count
+     */
+    public long getBytes()
+    {
+        return this.bytes;
+    }
+
+    /**
+     * Get the number of bytes spent on repeating earlier frames, which is
+     * the cost of the redundancy.
+     *
+     * @return The byte count
+     */
+    public long getRedundantBytes()
+    {
+        return this.redundantBytes;
+    }
+
+    /**
+     * Send the failsafe values of the vehicle instead of its channels. They
+     * are sent at once, the slew rates only ramp back from them.
+     *
+     * @param failsafe true to send the failsafe values
+     */
+    public void setFailsafe(boolean failsafe)
+    {
+        this.failsafe = failsafe;
+    }
+
+    /**
+     * Check if the failsafe values are sent.
+     *
+     * @return true in failsafe
+     */
+    public boolean isFailsafe()
+    {
+        return this.failsafe;
+    }
+
+    /**
+     * Check if a channel was held back by its slew rate in the last packet,
+     * so a packet should follow soon even if the vehicle does not change.
+     *
+     * @return true if a channel has not reached its value yet
+     */
+    public boolean isLimiting()
+    {
+        return this.limiting;
+    }
+
+    /**
+     * Take the channels to send from the vehicle, held to their slew rates,
+     * or its failsafe values in failsafe.
+     *
+     * @param vehicle The vehicle to read the channels from
+     * @param frame The array to copy to, at least MAX_CHANNELS long
+     * @param resolution The resolution in bits
+     * @param time The send time in nanoseconds
+     *
+     * @return The number of channels copied
+     */
+    protected int snapshot(
+            Vehicle vehicle, 
+            int[] frame, 
+            int resolution, 
+            long time
+        )
+    {
+        int count;
+        if (this.failsafe)
+        {
+            count = vehicle.getFailsafeSnapshot(frame);
+            this.limiter.set(frame, count, time);
+            this.limiting = false;
+        }
+        else
+        {
+            count = vehicle.getSnapshot(frame, Vehicle.HIRES_BITS);
+            this.limiting = this.limiter.apply(vehicle, frame, count, time);
+        }
+
+        int shift = Vehicle.HIRES_BITS - resolution;
+        for (int x = 0; x < count; ++x)
+            frame[x] >>>= shift;
+
+        return count;
+    }
+
+    /**
+     * Write a packet.
+     *
+     * @param vehicle The vehicle to read the channels from
+     * @param time The send time in nanoseconds, from System.nanoTime()
+     * @param buffer The buffer to write the packet to
+     *
+     * @return The length of the packet written
+     */
+    public abstract int encode(Vehicle vehicle, long time, byte[] buffer);
+}
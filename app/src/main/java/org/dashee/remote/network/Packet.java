@@ -0,0 +1,268 @@
+package org.dashee.remote.network;
+
+import org.dashee.remote.model.Vehicle;
+
+/**
+ * Layout of our command packets.
+ *
+ * The LEGACY packet is the original 5 byte frame, three zero bytes followed
+ * by roll and throttle. It carries nothing else, so it stays the default for
+ * servers which do not understand anything newer.
+ *
+ * The SEQUENCED packet starts with a header, all numbers big endian:
+ *
+ *   byte 0      version, always VERSION
+ *   byte 1      flags, any of FLAG_REDUNDANT, FLAG_HIRES and FLAG_FAILSAFE
+ *   byte 2-5    sequence number, incremented by one per packet
+ *   byte 6-9    send time in microseconds, from the monotonic clock
+ *   byte 10     number of channels that follow
+ *   byte 11...  one byte per channel, in pitch, roll, yaw, throttle order
+ *               followed by any aux channels
+ *
+ * With FLAG_HIRES set, byte 11 holds the resolution of the channels in 
+ * bits, from MIN_RESOLUTION+1 to MAX_RESOLUTION. The channels follow it 
+ * packed at that many bits each, most significant bit first, with the last
+ * byte padded with zero bits. Without it every channel is one byte, which
+ * is the same packing at MIN_RESOLUTION.
+ *
+ * With FLAG_REDUNDANT set, the channels are followed by earlier frames, so 
+ * the server can recover a lost packet from the next one that arrives:
+ *
+ *   byte        number of earlier frames that follow, at most 
+ *               Encoder.MAX_REDUNDANCY
+ *   then per frame, newest first (sequence-1, sequence-2, ...):
+ *   bytes       a bit mask of the channels that differ from the frame 
+ *               after it, (channels+7)/8 bytes, channel 0 in the lowest bit
+ *   bytes       one value per set bit, the older value minus the newer 
+ *               value modulo 2^resolution, packed like the channels
+ *
+ * A frame that did not change costs only its mask.
+ *
+ * With FLAG_FAILSAFE set, the channels are the failsafe values, because the
+ * app went to the background or its input stopped. The layout is the same.
+ *
+ * The version is never 0, so a server can tell the formats apart from the 
+ * first byte. Sequence and time wrap around at 2^32.
+ *
+ * Servers which speak the sequenced format also answer pings. A ping and 
+ * its reply share one layout:
+ *
+ *   byte 0      PING, or PONG in the reply
+ *   byte 1-4    ping id
+ *   byte 5-8    send time in microseconds, echoed back unchanged
+ *
+ * A server which takes FLAG_HIRES packets adds one byte to its replies:
+ *
+ *   byte 9      the highest resolution it takes, in bits
+ *
+ * Until a reply says otherwise the channels are sent at MIN_RESOLUTION.
+ *
+ * They may also send telemetry about the vehicle:
+ *
+ *   byte 0      TELEMETRY
+ *   byte 1-2    battery voltage in millivolts
+ *   byte 3      battery level in percent, 0-100
+ *   byte 4-5    speed in tenths of km/h
+ *   byte 6      signal strength in dBm, signed
+ */
+public final class Packet
+{
+    /**
+     * Size of the legacy frame and the position of its channels.
+     */
+    public static final int LEGACY_SIZE = 5;
+    public static final int LEGACY_ROLL = 3;
+    public static final int LEGACY_THROTTLE = 4;
+
+    /**
+     * Version of the sequenced format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Offsets of the header fields of the sequenced format.
+     */
+    public static final int OFFSET_VERSION = 0;
+    public static final int OFFSET_FLAGS = 1;
+    public static final int OFFSET_SEQUENCE = 2;
+    public static final int OFFSET_TIMESTAMP = 6;
+    public static final int OFFSET_CHANNEL_COUNT = 10;
+    public static final int HEADER_SIZE = 11;
+
+    /**
+     * Flags of the sequenced format.
+     */
+    public static final int FLAG_REDUNDANT = 0x01;
+    public static final int FLAG_HIRES = 0x02;
+    public static final int FLAG_FAILSAFE = 0x04;
+
+    /**
+     * Where the resolution is with FLAG_HIRES, and the resolutions the 
+     * channels can be sent at, in bits.
+     */
+    public static final int OFFSET_RESOLUTION = HEADER_SIZE;
+    public static final int MIN_RESOLUTION = Vehicle.BITS;
+    public static final int MAX_RESOLUTION = Vehicle.HIRES_BITS;
+
+    /**
+     * Types and layout of pings and their replies.
+     */
+    public static final byte PING = (byte)0xF0;
+    public static final byte PONG = (byte)0xF1;
+    public static final int OFFSET_PING_ID = 1;
+    public static final int OFFSET_PING_TIMESTAMP = 5;
+    public static final int PING_SIZE = 9;
+    public static final int OFFSET_PING_RESOLUTION = 9;
+
+    /**
+     * Type and layout of telemetry from the server.
+     */
+    public static final byte TELEMETRY = (byte)0xF2;
+    public static final int OFFSET_TELEMETRY_VOLTAGE = 1;
+    public static final int OFFSET_TELEMETRY_BATTERY = 3;
+    public static final int OFFSET_TELEMETRY_SPEED = 4;
+    public static final int OFFSET_TELEMETRY_SIGNAL = 6;
+    public static final int TELEMETRY_SIZE = 7;
+
+    /**
+     * The named channels in the order they are packed, the same as in a 
+     * snapshot of the vehicle. Aux channels follow them.
+     */
+    public static final int CHANNEL_PITCH = Vehicle.CHANNEL_PITCH;
+    public static final int CHANNEL_ROLL = Vehicle.CHANNEL_ROLL;
+    public static final int CHANNEL_YAW = Vehicle.CHANNEL_YAW;
+    public static final int CHANNEL_THROTTLE = Vehicle.CHANNEL_THROTTLE;
+    public static final int CHANNEL_COUNT = Vehicle.CHANNEL_COUNT;
+
+    /**
+     * Not to be created.
+     */
+    private Packet()
+    {
+    }
+
+    /**
+     * Write a 32 bit number, big endian.
+     *
+     * @param buffer The buffer to write to
+     * @param offset Where to write
+     * @param value The value, only the low 32 bits are written
+     */
+    public static void putInt(byte[] buffer, int offset, long value)
+    {
+        buffer[offset] = (byte)(value >>> 24);
+        buffer[offset+1] = (byte)(value >>> 16);
+        buffer[offset+2] = (byte)(value >>> 8);
+        buffer[offset+3] = (byte)value;
+    }
+
+    /**
+     * Read an unsigned 32 bit number, big endian.
+     *
+     * @param buffer The buffer to read from
+     * @param offset Where to read
+     *
+     * @return The value from 0 to 2^32-1
+     */
+    public static long getInt(byte[] buffer, int offset)
+    {
+        return ((buffer[offset] & 0xFFL) << 24) |
+            ((buffer[offset+1] & 0xFFL) << 16) |
+            ((buffer[offset+2] & 0xFFL) << 8) |
+            (buffer[offset+3] & 0xFFL);
+    }
+
+    /**
+     * Write a 16 bit number, big endian.
+     *
+     * @param buffer The buffer to write to
+     * @param offset Where to write
+     * @param value The value, only the low 16 bits are written
+     */
+    public static void putShort(byte[] buffer, int offset, int value)
+    {
+        buffer[offset] = (byte)(value >>> 8);
+        buffer[offset+1] = (byte)value;
+    }
+
+    /**
+     * Read an unsigned 16 bit number, big endian.
+     *
+     * @param buffer The buffer to read from
+     * @param offset Where to read
+     *
+     * @return The value from 0 to 65535
+     */
+    public static int getShort(byte[] buffer, int offset)
+    {
+        return ((buffer[offset] & 0xFF) << 8) | (buffer[offset+1] & 0xFF);
+    }
+
+    /**
+     * Get the number of bytes a run of packed values takes.
+     *
+     * @param count The number of values
+     * @param bits The bits per value
+     *
+     * @return The size in bytes, with the last one padded
+     */
+    public static int packedSize(int count, int bits)
+    {
+        return (count * bits + 7) / 8;
+    }
+
+    /**
+     * Write a value of up to 16 bits at a bit position, most significant 
+     * bit first. The bits are or'd in, so the bytes must be cleared first.
+     *
+     * @param buffer The buffer to write to
+     * @param bit The bit position to write at, from the start of the buffer
+     * @param value The value, only the low bits are written
+     * @param bits The number of bits to write
+     */
+    public static void putBits(byte[] buffer, int bit, int value, int bits)
+    {
+        int offset = bit >>> 3;
+        int last = (bit + bits - 1) >>> 3;
+
+        // Line the value up at the top of a 24 bit window on the bytes
+        int window = (value & ((1 << bits) - 1)) << (24 - (bit & 7) - bits);
+        for (int x = offset, shift = 16; x <= last; ++x, shift -= 8)
+            buffer[x] |= (byte)(window >>> shift);
+    }
+
+    /**
+     * Read a value of up to 16 bits at a bit position, most significant bit
+     * first.
+     *
+     * @param buffer The buffer to read from
+     * @param bit The bit position to read at, from the start of the buffer
+     * @param bits The number of bits to read
+     *
+     * @return The value from 0 to 2^bits-1
+     */
+    public static int getBits(byte[] buffer, int bit, int bits)
+    {
+        int offset = bit >>> 3;
+        int last = (bit + bits - 1) >>> 3;
+
+        int window = 0;
+        for (int x = offset, shift = 16; x <= last; ++x, shift -= 8)
+            window |= (buffer[x] & 0xFF) << shift;
+
+        return (window >>> (24 - (bit & 7) - bits)) & ((1 << bits) - 1);
+    }
+
+    /**
+     * Compare two sequence numbers, allowing for wrap around.
+     *
+     * @param sequence The sequence number to check
+     * @param last The newest sequence number seen so far
+     *
+     * @return true if sequence came after last
+     */
+    public static boolean isNewer(long sequence, long last)
+    {
+        return (int)(sequence - last) > 0;
+    }
+}
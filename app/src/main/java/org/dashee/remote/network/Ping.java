@@ -0,0 +1,281 @@
+package org.dashee.remote.network;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures the round trip time to the server.
+ *
+ * Pings are written by the control loop with encode(), and the replies are
+ * matched back to them by id in decode(), which runs on the receive thread.
+ * The last SLOTS pings are remembered, anything older is counted as lost.
+ *
+ * From the replies we keep the smallest round trip seen, a moving mean and
+ * the jitter between consecutive round trips, the same way RTP does. All
+ * times are in nanoseconds. No method locks or allocates.
+ *
+ * Replies also tell us the highest resolution the server takes, which is
+ * how the channel resolution is negotiated.
+ */
+public class Ping
+{
+    /**
+     * How often to ping, and how long without a reply before the server is 
+     * considered gone, in milliseconds.
+     */
+    public static final int PERIOD = 250;
+    public static final int TIMEOUT = 1000;
+
+    /**
+     * The number of pings we can wait on at once.
+     */
+    public static final int SLOTS = 16;
+
+    /**
+     * The id and send time of the pings we are waiting on, by id % SLOTS. An
+     * id of -1 marks a slot which has been answered.
+     */
+    private final AtomicLongArray ids = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray sent = new AtomicLongArray(SLOTS);
+
+    /**
+     * The id of the next ping. Only used by the control loop.
+     */
+    private long next = 0;
+
+    /**
+     * Number of pings sent and replies matched.
+     */
+    private volatile long pings = 0;
+    private volatile long replies = 0;
+
+    /**
+     * Round trip estimates, -1 until the first reply.
+     */
+    private volatile long last = -1;
+    private volatile long min = -1;
+    private volatile long mean = -1;
+    private volatile long jitter = 0;
+
+    /**
+     * When the last reply arrived.
+     */
+    private volatile long lastReply = 0;
+
+    /**
+     * The highest resolution the server takes, in bits.
+     */
+    private volatile int resolution = Packet.MIN_RESOLUTION;
+
+    /**
+     * Create a tracker with nothing outstanding.
+     */
+    public Ping()
+    {
+        for (int x = 0; x < SLOTS; ++x)
+            this.ids.set(x, -1);
+    }
+
+    /**
+     * Write the next ping and remember when it was sent.
+     *
+     * @param time The send time in nanoseconds, from System.nanoTime()
+     * @param buffer The buffer to write the ping to
+     *
+     * @return The length of the ping
+     */
+    public int encode(long time, byte[] buffer)
+    {
+        long id = this.next;
+        int slot = (int)(id % SLOTS);
+
+        // Clear the slot first, so a late reply to the ping it held can 
+        // never be matched against our new send time
+        this.ids.set(slot, -1);
+        this.sent.set(slot, time);
+        this.ids.set(slot, id);
+        this.next = (id + 1) & 0xFFFFFFFFL;
+        this.pings++;
+
+        buffer[0] = Packet.PING;
+        Packet.putInt(buffer, Packet.OFFSET_PING_ID, id);
+        Packet.putInt(buffer, Packet.OFFSET_PING_TIMESTAMP, time / 1000L);
+
+        return Packet.PING_SIZE;
+    }
+
+    /**
+     * Match a reply to its ping and update our estimates.
+     *
+     * @param buffer The buffer holding the datagram
+     * @param length The length of the datagram
+     * @param time When the datagram arrived, from System.nanoTime()
+     *
+     * @return true if the datagram was a reply to one of our pings
+     */
+    public boolean decode(byte[] buffer, int length, long time)
+    {
+        if (length < Packet.PING_SIZE || buffer[0] != Packet.PONG)
+            return false;
+
+        long id = Packet.getInt(buffer, Packet.OFFSET_PING_ID);
+        int slot = (int)(id % SLOTS);
+        long sent = this.sent.get(slot);
+
+        // Unknown, already answered, or so old the slot was reused
+        if (!this.ids.compareAndSet(slot, id, -1))
+            return false;
+
+        this.update(time - sent);
+        this.resolution = this.decodeResolution(buffer, length);
+        this.lastReply = time;
+        this.replies++;
+
+        return true;
+    }
+
+    /**
+     * Read the resolution a reply offers. Older servers do not send one, 
+     * and anything we do not understand counts as not sent.
+     *
+     * @param buffer The buffer holding the reply
+     * @param length The length of the reply
+     *
+     * @return The resolution in bits
+     */
+    private int decodeResolution(byte[] buffer, int length)
+    {
+        if (length <= Packet.OFFSET_PING_RESOLUTION)
+            return Packet.MIN_RESOLUTION;
+
+        int bits = buffer[Packet.OFFSET_PING_RESOLUTION] & 0xFF;
+        if (bits < Packet.MIN_RESOLUTION || bits > Packet.MAX_RESOLUTION)
+            return Packet.MIN_RESOLUTION;
+
+        return bits;
+    }
+
+    /**
+     * Add a round trip to our estimates.
+     *
+     * @param rtt The round trip in nanoseconds
+     */
+    private void update(long rtt)
+    {
+        if (this.mean < 0)
+        {
+            this.min = rtt;
+            this.mean = rtt;
+        }
+        else
+        {
+            if (rtt < this.min)
+                this.min = rtt;
+
+            this.mean += (rtt - this.mean) / 8;
+            this.jitter += (Math.abs(rtt - this.last) - this.jitter) / 16;
+        }
+
+        this.last = rtt;
+    }
+
+    /**
+     * Forget everything, used when we start talking to a different server.
+     */
+    public void reset()
+    {
+        for (int x = 0; x < SLOTS; ++x)
+            this.ids.set(x, -1);
+
+        this.pings = 0;
+        this.replies = 0;
+        this.last = -1;
+        this.min = -1;
+        this.mean = -1;
+        this.jitter = 0;
+        this.lastReply = 0;
+        this.resolution = Packet.MIN_RESOLUTION;
+    }
+
+    /**
+     * Check if the server has replied recently.
+     *
+     * @param time The time now, from System.nanoTime()
+     *
+     * @return true if a reply arrived in the last TIMEOUT milliseconds
+     */
+    public boolean isAlive(long time)
+    {
+        return this.replies > 0 && 
+            time - this.lastReply < TIMEOUT * 1000000L;
+    }
+
+    /**
+     * Get the highest resolution the server takes, from its last reply.
+     *
+     * @return The resolution in bits, MIN_RESOLUTION until a reply says more
+     */
+    public int getResolution()
+    {
+        return this.resolution;
+    }
+
+    /**
+     * Get the round trip of the last reply.
+     *
+     * @return The round trip in nanoseconds, or -1 before the first reply
+     */
+    public long getLast()
+    {
+        return this.last;
+    }
+
+    /**
+     * Get the smallest round trip seen.
+     *
+     * @return The round trip in nanoseconds, or -1 before the first reply
+     */
+    public long getMin()
+    {
+        return this.min;
+    }
+
+    /**
+     * Get the moving mean of the round trip.
+     *
+     * @return The round trip in nanoseconds, or -1 before the first reply
+     */
+    public long getMean()
+    {
+        return this.mean;
+    }
+
+    /**
+     * Get the jitter between consecutive round trips.
+     *
+     * @return The jitter in nanoseconds
+     */
+    public long getJitter()
+    {
+        return this.jitter;
+    }
+
+    /**
+     * Get the number of pings sent.
+     *
+     * @return The ping count
+     */
+    public long getPings()
+    {
+        return this.pings;
+    }
+
+    /**
+     * Get the number of replies matched to a ping.
+     *
+     * @return The reply count
+     */
+    public long getReplies()
+    {
+        return this.replies;
+    }
+}
@@ -0,0 +1,141 @@
+package org.dashee.remote.network;
+
+/**
+ * Holds the latest telemetry sent by the server.
+ *
+ * Frames are parsed straight out of the receive buffer by decode(), which 
+ * runs on the receive thread and does not allocate. The values can be read
+ * from any thread, each one is the latest received. See Packet for the 
+ * layout.
+ */
+public class Telemetry
+{
+    /**
+     * How long the values stay valid without a new frame, in milliseconds.
+     */
+    public static final int TIMEOUT = 1000;
+
+    /**
+     * Limits of the battery level in percent.
+     */
+    public static final int MIN_BATTERY = 0;
+    public static final int MAX_BATTERY = 100;
+
+    /**
+     * The latest values.
+     */
+    private volatile int voltage = 0;
+    private volatile int battery = 0;
+    private volatile int speed = 0;
+    private volatile int signal = 0;
+
+    /**
+     * Number of frames received, and when the last one arrived.
+     */
+    private volatile long frames = 0;
+    private volatile long lastFrame = 0;
+
+    /**
+     * Read a telemetry frame.
+     *
+     * @param buffer The buffer holding the datagram
+     * @param length The length of the datagram
+     * @param time When the datagram arrived, from System.nanoTime()
+     *
+     * @return true if the datagram was a telemetry frame
+     */
+    public boolean decode(byte[] buffer, int length, long time)
+    {
+        if (length < Packet.TELEMETRY_SIZE || buffer[0] != Packet.TELEMETRY)
+            return false;
+
+        this.voltage 
+            = Packet.getShort(buffer, Packet.OFFSET_TELEMETRY_VOLTAGE);
+        this.battery = Math.min(
+                buffer[Packet.OFFSET_TELEMETRY_BATTERY] & 0xFF, 
+                MAX_BATTERY
+            );
+        this.speed = Packet.getShort(buffer, Packet.OFFSET_TELEMETRY_SPEED);
+        this.signal = buffer[Packet.OFFSET_TELEMETRY_SIGNAL];
+        this.lastFrame = time;
+        this.frames++;
+
+        return true;
+    }
+
+    /**
+     * Forget everything, used when we start talking to a different server.
+     */
+    public void reset()
+    {
+        this.voltage = 0;
+        this.battery = 0;
+        this.speed = 0;
+        this.signal = 0;
+        this.frames = 0;
+        this.lastFrame = 0;
+    }
+
+    /**
+     * Check if the values are recent enough to show.
+     *
+     * @param time The time now, from System.nanoTime()
+     *
+     * @return true if a frame arrived in the last TIMEOUT milliseconds
+     */
+    public boolean isFresh(long time)
+    {
+        return this.frames > 0 && 
+            time - this.lastFrame < TIMEOUT * 1000000L;
+    }
+
+    /**
+     * Get the battery voltage.
+     *
+     * @return The voltage in millivolts
+     */
+    public int getVoltage()
+    {
+        return this.voltage;
+    }
+
+    /**
+     * Get the battery level.
+     *
+     * @return The level in percent, from 0 to 100
+     */
+    public int getBattery()
+    {
+        return this.battery;
+    }
+
+    /**
+     * Get the speed of the vehicle.
+     *
+     * @return The speed in tenths of km/h
+     */
+    public int getSpeed()
+    {
+        return this.speed;
+    }
+
+    /**
+     * Get the signal strength at the vehicle.
+     *
+     * @return The signal in dBm
+     */
+    public int getSignal()
+    {
+        return this.signal;
+    }
+
+    /**
+     * Get the number of frames received.
+     *
+     * @return The frame count
+     */
+    public long getFrames()
+    {
+        return this.frames;
+    }
+}
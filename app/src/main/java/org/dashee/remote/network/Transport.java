@@ -0,0 +1,152 @@
+package org.dashee.remote.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import org.dashee.remote.network.transport.Channel;
+import org.dashee.remote.network.transport.Socket;
+
+/**
+ * The way our datagrams travel to and from the server.
+ *
+ * A transport is opened once and then pointed at the server with connect().
+ * The control loop calls send() and receive() on every tick, so neither of 
+ * them is allowed to block or to allocate.
+ */
+public abstract class Transport
+{
+    /**
+     * Available transports.
+     *
+     * SOCKET is the original java.net.DatagramSocket, which can only send. 
+     * CHANNEL is a connected java.nio.channels.DatagramChannel which can also
+     * receive without blocking.
+     */
+    public enum Type {
+        SOCKET,
+        CHANNEL
+    };
+
+    /**
+     * The largest datagram we send or receive.
+     */
+    public static final int MAX_PACKET_SIZE = 512;
+
+    /**
+     * The address and port of the server we talk to.
+     */
+    protected InetAddress ip;
+    protected int port;
+
+    /**
+     * Create a transport of the given type.
+     *
+     * @param type The type of the transport
+     *
+     * @return A new, open, transport
+     *
+     * @throws IOException if the transport could not be opened
+     */
+    public static Transport create(Type type) throws IOException
+    {
+        switch (type)
+        {
+            case CHANNEL:
+                return new Channel();
+            default:
+                return new Socket();
+        }
+    }
+
+    /**
+     * Point the transport at the server.
+     *
+     * @param ip The address of the server
+     * @param port The port of the server
+     *
+     * @throws IOException if the transport failed to connect
+     */
+    public void connect(InetAddress ip, int port) throws IOException
+    {
+        this.ip = ip;
+        this.port = port;
+    }
+
+    /**
+     * Check if we are already pointing at the given server, so the caller only
+     * reconnects when the config has changed.
+     *
+     * @param ip The address of the server
+     * @param port The port of the server
+     *
+     * @return true if connected to the server
+     */
+    public boolean isConnectedTo(InetAddress ip, int port)
+    {
+        return this.port == port && ip != null && ip.equals(this.ip);
+    }
+
+    /**
+     * Check if the transport points at a server.
+     *
+     * @return true once connected
+     */
+    public boolean isConnected()
+    {
+        return this.ip != null;
+    }
+
+    /**
+     * Get the type of this transport.
+     *
+     * @return The type
+     */
+    public abstract Type getType();
+
+    /**
+     * Check if the transport can receive replies from the server. Without
+     * them there are no round trips or loss to go on.
+     *
+     * @return true if receive() can return a datagram
+     */
+    public abstract boolean canReceive();
+
+    /**
+     * Send a datagram to the server.
+     *
+     * @param data The buffer holding the datagram
+     * @param length The number of bytes to send from the buffer
+     *
+     * @throws IOException if the datagram could not be sent
+     */
+    public abstract void send(byte[] data, int length) throws IOException;
+
+    /**
+     * Receive a datagram from the server if one is waiting. 
+     *
+     * @param data The buffer to copy the datagram into
+     *
+     * @return The length of the datagram, or 0 if nothing was waiting
+     *
+     * @throws IOException if reading failed
+     */
+    public abstract int receive(byte[] data) throws IOException;
+
+    /**
+     * Wait until a datagram is waiting to be received, or the time is up. 
+     * Only the receive thread calls this, the control loop never waits on 
+     * the network.
+     *
+     * @param timeout The longest time to wait in milliseconds
+     *
+     * @return true if a datagram may be waiting
+     *
+     * @throws IOException if waiting failed
+     */
+    public abstract boolean poll(int timeout) throws IOException;
+
+    /**
+     * Release the resources held by the transport.
+     */
+    public abstract void close();
+}
@@ -0,0 +1,54 @@
+package org.dashee.remote.network.encoder;
+
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Packet;
+
+/**
+ * Writes the original 5 byte frame, three zero bytes followed by roll and
+ * throttle. There is no room for earlier frames, so the redundancy is 
+ * ignored.
+ */
+public class Legacy 
+    extends Encoder
+{
+    /**
+     * The channels of the vehicle, we only send roll and throttle.
+     */
+    private final int[] channels = new int[Vehicle.MAX_CHANNELS];
+
+    /**
+     * Get the format written by this encoder.
+     *
+     * @return Format.LEGACY
+     */
+    public Format getFormat()
+    {
+        return Format.LEGACY;
+    }
+
+    /**
+     * Write the frame. The time is not part of this format, it only clocks
+     * the slew rates.
+     *
+     * @param vehicle The vehicle to read the channels from
+     * @param time The send time in nanoseconds
+     * @param buffer The buffer to write the packet to
+     *
+     * @return Always Packet.LEGACY_SIZE
+     */
+    public int encode(Vehicle vehicle, long time, byte[] buffer)
+    {
+        buffer[0] = 0;
+        buffer[1] = 0;
+        buffer[2] = 0;
+        this.snapshot(vehicle, this.channels, Vehicle.BITS, time);
+        buffer[Packet.LEGACY_ROLL] = (byte)this.channels[Vehicle.CHANNEL_ROLL];
+        buffer[Packet.LEGACY_THROTTLE] 
+            = (byte)this.channels[Vehicle.CHANNEL_THROTTLE];
+
+        this.bytes += Packet.LEGACY_SIZE;
+
+        return Packet.LEGACY_SIZE;
+    }
+}
@@ -0,0 +1,201 @@
+package org.dashee.remote.network.encoder;
+
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Packet;
+
+/**
+ * Writes packets with a header holding a sequence number and the send time,
+ * so the server can drop stale or reordered packets and measure latency.
+ *
+ * When the redundancy is set, every packet also repeats that many earlier 
+ * frames, delta encoded against the frame after them. The frames are kept 
+ * in a ring allocated once, so encoding still does not allocate.
+ *
+ * Above MIN_RESOLUTION the channels are bit packed, so 12 bit channels take
+ * a byte and a half rather than two.
+ */
+public class Sequenced 
+    extends Encoder
+{
+    /**
+     * Size of the ring of frames, the current one plus every earlier one a
+     * packet can repeat.
+     */
+    private static final int HISTORY = MAX_REDUNDANCY + 1;
+
+    /**
+     * The sequence number of the next packet.
+     */
+    private long sequence = 0;
+
+    /**
+     * The channels of the last frames written, and where the next one goes.
+     */
+    private final int[][] history = new int[HISTORY][Vehicle.MAX_CHANNELS];
+    private int head = 0;
+
+    /**
+     * The number of earlier frames in the ring, and the resolution they were
+     * taken at.
+     */
+    private int stored = 0;
+    private int storedResolution = Packet.MIN_RESOLUTION;
+
+    /**
+     * Get the format written by this encoder.
+     *
+     * @return Format.SEQUENCED
+     */
+    public Format getFormat()
+    {
+        return Format.SEQUENCED;
+    }
+
+    /**
+     * Get the sequence number the next packet will carry.
+     *
+     * @return The sequence number
+     */
+    public long getSequence()
+    {
+        return this.sequence;
+    }
+
+    /**
+     * Write the header followed by all channels, and the earlier frames if
+     * the redundancy is set.
+     *
+     * @param vehicle The vehicle to read the channels from
+     * @param time The send time in nanoseconds
+     * @param buffer The buffer to write the packet to
+     *
+     * @return The length of the packet written
+     */
+    public int encode(Vehicle vehicle, long time, byte[] buffer)
+    {
+        int redundancy = this.redundancy;
+        int resolution = this.resolution;
+
+        // Frames taken at another resolution can not be diffed against
+        if (resolution != this.storedResolution)
+        {
+            this.stored = 0;
+            this.storedResolution = resolution;
+        }
+
+        // One snapshot, so the frame never mixes two updates of the vehicle
+        int[] frame = this.history[this.head];
+        int count = this.snapshot(vehicle, frame, resolution, time);
+
+        int flags = redundancy > 0 ? Packet.FLAG_REDUNDANT : 0;
+        if (this.failsafe)
+            flags |= Packet.FLAG_FAILSAFE;
+        int offset = Packet.HEADER_SIZE;
+        if (resolution > Packet.MIN_RESOLUTION)
+        {
+            flags |= Packet.FLAG_HIRES;
+            buffer[offset++] = (byte)resolution;
+        }
+
+        buffer[Packet.OFFSET_VERSION] = Packet.VERSION;
+        buffer[Packet.OFFSET_FLAGS] = (byte)flags;
+        Packet.putInt(buffer, Packet.OFFSET_SEQUENCE, this.sequence);
+        Packet.putInt(buffer, Packet.OFFSET_TIMESTAMP, time / 1000L);
+        buffer[Packet.OFFSET_CHANNEL_COUNT] = (byte)count;
+
+        int size = Packet.packedSize(count, resolution);
+        for (int x = 0; x < size; ++x)
+            buffer[offset + x] = 0;
+
+        int bit = offset * 8;
+        for (int x = 0; x < count; ++x, bit += resolution)
+            Packet.putBits(buffer, bit, frame[x], resolution);
+        offset += size;
+
+        if (redundancy > 0)
+        {
+            int start = offset;
+            offset = this.encodeHistory(
+                    Math.min(redundancy, this.stored), 
+                    count,
+                    resolution,
+                    buffer, 
+                    offset
+                );
+            this.redundantBytes += offset - start;
+        }
+
+        this.head = (this.head + 1) % HISTORY;
+        if (this.stored < MAX_REDUNDANCY)
+            this.stored++;
+
+        this.sequence = (this.sequence + 1) & 0xFFFFFFFFL;
+        this.bytes += offset;
+
+        return offset;
+    }
+
+    /**
+     * Write the earlier frames, newest first, each as the difference from
+     * the frame after it.
+     *
+     * @param frames The number of earlier frames to write
+     * @param count The number of channels per frame
+     * @param resolution The bits per channel
+     * @param buffer The buffer to write to
+     * @param offset Where to start writing
+     *
+     * @return The offset after the last byte written
+     */
+    private int encodeHistory(
+            int frames, 
+            int count, 
+            int resolution,
+            byte[] buffer, 
+            int offset
+        )
+    {
+        buffer[offset++] = (byte)frames;
+        int maskSize = (count + 7) / 8;
+
+        int[] newer = this.history[this.head];
+        for (int k = 1; k <= frames; ++k)
+        {
+            int[] older = this.history[(this.head - k + HISTORY) % HISTORY];
+
+            int mask = offset;
+            for (int x = 0; x < maskSize; ++x)
+                buffer[offset++] = 0;
+
+            int changed = 0;
+            for (int x = 0; x < count; ++x)
+            {
+                if (older[x] == newer[x])
+                    continue;
+
+                buffer[mask + x / 8] |= 1 << (x % 8);
+                changed++;
+            }
+
+            int size = Packet.packedSize(changed, resolution);
+            for (int x = 0; x < size; ++x)
+                buffer[offset + x] = 0;
+
+            int bit = offset * 8;
+            for (int x = 0; x < count; ++x)
+            {
+                if (older[x] == newer[x])
+                    continue;
+
+                Packet.putBits(buffer, bit, older[x] - newer[x], resolution);
+                bit += resolution;
+            }
+            offset += size;
+
+            newer = older;
+        }
+
+        return offset;
+    }
+}
@@ -0,0 +1,202 @@
+package org.dashee.remote.network.transport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import org.dashee.remote.network.Transport;
+
+/**
+ * A transport over a connected, non-blocking, DatagramChannel.
+ *
+ * The channel is connected once to the server, so the address is not 
+ * checked again on every send. Datagrams are copied in and out of direct
+ * buffers which the channel can hand to the OS without an extra copy.
+ */
+public class Channel 
+    extends Transport
+{
+    /**
+     * The channel used to talk to the server.
+     */
+    private DatagramChannel channel;
+
+    /**
+     * Selector used to wait for replies. Created by the first poll()
+     */
+    private volatile Selector selector;
+
+    /**
+     * Direct buffers for sending and receiving.
+     */
+    private ByteBuffer sendBuffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+    private ByteBuffer receiveBuffer 
+        = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+
+    /**
+     * Open our channel in non-blocking mode.
+     *
+     * @throws IOException if the channel could not be opened
+     */
+    public Channel() throws IOException
+    {
+        this.channel = DatagramChannel.open();
+        this.channel.configureBlocking(false);
+    }
+
+    /**
+     * Get the type of this transport.
+     *
+     * @return Type.CHANNEL
+     */
+    public Type getType()
+    {
+        return Type.CHANNEL;
+    }
+
+    /**
+     * The channel receives without blocking.
+     *
+     * @return Always true
+     */
+    public boolean canReceive()
+    {
+        return true;
+    }
+
+    /**
+     * Connect the channel to the server, dropping any previous connection.
+     *
+     * @param ip The address of the server
+     * @param port The port of the server
+     *
+     * @throws IOException if the channel failed to connect
+     */
+    public void connect(InetAddress ip, int port) throws IOException
+    {
+        if (this.channel.isConnected())
+            this.channel.disconnect();
+
+        this.channel.connect(new InetSocketAddress(ip, port));
+        super.connect(ip, port);
+    }
+
+    /**
+     * Send the datagram to the server we are connected to.
+     *
+     * @param data The buffer holding the datagram
+     * @param length The number of bytes to send from the buffer
+     *
+     * @throws IOException if the datagram could not be sent
+     */
+    public void send(byte[] data, int length) throws IOException
+    {
+        this.sendBuffer.clear();
+        this.sendBuffer.put(data, 0, length);
+        this.sendBuffer.flip();
+
+        this.channel.write(this.sendBuffer);
+    }
+
+    /**
+     * Read the next waiting datagram, without blocking.
+     *
+     * @param data The buffer to copy the datagram into
+     *
+     * @return The length of the datagram, or 0 if nothing was waiting
+     *
+     * @throws IOException if reading failed
+     */
+    public int receive(byte[] data) throws IOException
+    {
+        if (!this.channel.isConnected())
+            return 0;
+
+        this.receiveBuffer.clear();
+
+        try
+        {
+            if (this.channel.read(this.receiveBuffer) <= 0)
+                return 0;
+        }
+        // The server is not listening, which is the same as no reply
+        catch (PortUnreachableException e)
+        {
+            return 0;
+        }
+
+        this.receiveBuffer.flip();
+        int length = Math.min(this.receiveBuffer.remaining(), data.length);
+        this.receiveBuffer.get(data, 0, length);
+
+        return length;
+    }
+
+    /**
+     * Wait until the channel has a datagram to read.
+     *
+     * @param timeout The longest time to wait in milliseconds
+     *
+     * @return true if a datagram is waiting
+     *
+     * @throws IOException if the selector could not be opened
+     */
+    public boolean poll(int timeout) throws IOException
+    {
+        if (this.selector == null)
+        {
+            Selector selector = Selector.open();
+
+            try
+            {
+                this.channel.register(selector, SelectionKey.OP_READ);
+            }
+            // The channel was closed under us
+            catch (IOException e)
+            {
+                selector.close();
+                throw e;
+            }
+
+            this.selector = selector;
+        }
+
+        try
+        {
+            if (this.selector.select(timeout) == 0)
+                return false;
+
+            this.selector.selectedKeys().clear();
+            return true;
+        }
+        // We were closed while waiting
+        catch (ClosedSelectorException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Close the channel, and wake anyone waiting on it.
+     */
+    public void close()
+    {
+        try
+        {
+            if (this.selector != null)
+                this.selector.close();
+
+            this.channel.close();
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.dashee.remote.network.transport;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+
+import org.dashee.remote.network.Transport;
+
+/**
+ * The original transport, a plain unconnected DatagramSocket.
+ *
+ * The server address is set on the packet before every send. A 
+ * DatagramSocket can only wait for a reply by blocking, so this transport
+ * never receives anything.
+ */
+public class Socket 
+    extends Transport
+{
+    /**
+     * The socket to send our commands on.
+     */
+    private DatagramSocket socket;
+
+    /**
+     * The packet we send, reused for every datagram.
+     */
+    private DatagramPacket packet 
+        = new DatagramPacket(new byte[0], 0);
+
+    /**
+     * Open our socket.
+     *
+     * @throws IOException if the socket could not be created
+     */
+    public Socket() throws IOException
+    {
+        this.socket = new DatagramSocket();
+    }
+
+    /**
+     * Get the type of this transport.
+     *
+     * @return Type.SOCKET
+     */
+    public Type getType()
+    {
+        return Type.SOCKET;
+    }
+
+    /**
+     * Receiving is not supported.
+     *
+     * @return Always false
+     */
+    public boolean canReceive()
+    {
+        return false;
+    }
+
+    /**
+     * Send the datagram, addressed to the server.
+     *
+     * @param data The buffer holding the datagram
+     * @param length The number of bytes to send from the buffer
+     *
+     * @throws IOException if the datagram could not be sent
+     */
+    public void send(byte[] data, int length) throws IOException
+    {
+        this.packet.setData(data, 0, length);
+        this.packet.setAddress(this.ip);
+        this.packet.setPort(this.port);
+
+        this.socket.send(this.packet);
+    }
+
+    /**
+     * Receiving is not supported.
+     *
+     * @param data Not used
+     *
+     * @return Always 0
+     */
+    public int receive(byte[] data)
+    {
+        return 0;
+    }
+
+    /**
+     * Nothing is ever received, so just wait out the time.
+     *
+     * @param timeout The time to wait in milliseconds
+     *
+     * @return Always false
+     */
+    public boolean poll(int timeout)
+    {
+        try
+        {
+            Thread.sleep(timeout);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+
+    /**
+     * Close the socket.
+     */
+    public void close()
+    {
+        this.socket.close();
+    }
+}
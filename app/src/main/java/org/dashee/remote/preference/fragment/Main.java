@@ -23,6 +23,11 @@ import java.util.Map;
 
 import org.dashee.remote.R;
 import org.dashee.remote.model.Config;
+import org.dashee.remote.model.Mixer;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.thread.Scheduler;
+import org.dashee.remote.thread.Trigger;
+import org.dashee.remote.thread.Watchdog;
 
 
 /**
@@ -54,6 +59,38 @@ public class Main
      */
     EditTextPreference etpPort;
 
+    /**
+     * Edit text box to represent the send period
+     */
+    EditTextPreference etpSendPeriod;
+
+    /**
+     * Edit text boxes to represent the bounds of the adaptive send period
+     */
+    EditTextPreference etpSendPeriodMin;
+    EditTextPreference etpSendPeriodMax;
+
+    /**
+     * Edit text boxes to represent the gap and heartbeat of ON_CHANGE mode
+     */
+    EditTextPreference etpSendGap;
+    EditTextPreference etpHeartbeat;
+
+    /**
+     * Edit text box to represent the time without input before failsafe
+     */
+    EditTextPreference etpFailsafeTimeout;
+
+    /**
+     * Edit text box to represent the frames repeated in every packet
+     */
+    EditTextPreference etpRedundancy;
+
+    /**
+     * Edit text box to represent the throttle steered with by the mixer
+     */
+    EditTextPreference etpMixerAmount;
+
     /**
      * Create our Main fragment, by setting all the fragments. And set our 
      * preferences, and also initialize our elements
@@ -79,7 +116,13 @@ public class Main
         // Set our Preferences summary values from the shared preferences
         List<String> summaryToValue = java.util.Arrays.asList(
                 "pref_server_ip", 
-                "pref_server_port"
+                "pref_server_port",
+                "pref_send_period",
+                "pref_send_period_min",
+                "pref_send_period_max",
+                "pref_send_gap",
+                "pref_heartbeat",
+                "pref_redundancy"
             );
 
         Map<String,?> values = sharedPref.getAll();
@@ -101,6 +144,29 @@ public class Main
         this.etpIp.setOnPreferenceChangeListener(this);
         this.etpPort = (EditTextPreference) findPreference("pref_server_port");
         this.etpPort.setOnPreferenceChangeListener(this);
+        this.etpSendPeriod 
+            = (EditTextPreference) findPreference("pref_send_period");
+        this.etpSendPeriod.setOnPreferenceChangeListener(this);
+        this.etpSendPeriodMin
+            = (EditTextPreference) findPreference("pref_send_period_min");
+        this.etpSendPeriodMin.setOnPreferenceChangeListener(this);
+        this.etpSendPeriodMax
+            = (EditTextPreference) findPreference("pref_send_period_max");
+        this.etpSendPeriodMax.setOnPreferenceChangeListener(this);
+        this.etpSendGap = (EditTextPreference) findPreference("pref_send_gap");
+        this.etpSendGap.setOnPreferenceChangeListener(this);
+        this.etpHeartbeat 
+            = (EditTextPreference) findPreference("pref_heartbeat");
+        this.etpHeartbeat.setOnPreferenceChangeListener(this);
+        this.etpFailsafeTimeout 
+            = (EditTextPreference) findPreference("pref_failsafe_timeout");
+        this.etpFailsafeTimeout.setOnPreferenceChangeListener(this);
+        this.etpRedundancy 
+            = (EditTextPreference) findPreference("pref_redundancy");
+        this.etpRedundancy.setOnPreferenceChangeListener(this);
+        this.etpMixerAmount 
+            = (EditTextPreference) findPreference("pref_mixer_amount");
+        this.etpMixerAmount.setOnPreferenceChangeListener(this);
     }
         
     /**
@@ -163,6 +229,90 @@ public class Main
             return false;
         }
 
+        // The period, and the bounds of the adaptive one, must be one our
+        // scheduler can keep
+        if(
+            (
+                preference.equals(etpSendPeriod) ||
+                preference.equals(etpSendPeriodMin) ||
+                preference.equals(etpSendPeriodMax)
+            ) && 
+            !this.validNumber(
+                value, 
+                Scheduler.MIN_PERIOD, 
+                Scheduler.MAX_PERIOD
+            )
+        )
+        {
+            toastError("A valid send period is between " + 
+                    Scheduler.MIN_PERIOD + "-" + Scheduler.MAX_PERIOD + 
+                    " milliseconds");
+            return false;
+        }
+
+        if(
+            preference.equals(etpSendGap) && 
+            !this.validNumber(value, Trigger.MIN_GAP, Trigger.MAX_GAP)
+        )
+        {
+            toastError("A valid send gap is between " + 
+                    Trigger.MIN_GAP + "-" + Trigger.MAX_GAP + 
+                    " milliseconds");
+            return false;
+        }
+
+        if(
+            preference.equals(etpHeartbeat) && 
+            !this.validNumber(
+                value, 
+                Trigger.MIN_HEARTBEAT, 
+                Trigger.MAX_HEARTBEAT
+            )
+        )
+        {
+            toastError("A valid heartbeat is between " + 
+                    Trigger.MIN_HEARTBEAT + "-" + Trigger.MAX_HEARTBEAT + 
+                    " milliseconds");
+            return false;
+        }
+
+        // 0 turns the watchdog off
+        if(
+            preference.equals(etpFailsafeTimeout) && 
+            !this.validNumber(value, 0, 0) &&
+            !this.validNumber(
+                value, 
+                Watchdog.MIN_TIMEOUT, 
+                Watchdog.MAX_TIMEOUT
+            )
+        )
+        {
+            toastError("A valid failsafe timeout is 0 or between " + 
+                    Watchdog.MIN_TIMEOUT + "-" + Watchdog.MAX_TIMEOUT + 
+                    " milliseconds");
+            return false;
+        }
+
+        if(
+            preference.equals(etpRedundancy) && 
+            !this.validNumber(value, 0, Encoder.MAX_REDUNDANCY)
+        )
+        {
+            toastError("A valid redundancy is between 0-" + 
+                    Encoder.MAX_REDUNDANCY + " frames");
+            return false;
+        }
+
+        if(
+            preference.equals(etpMixerAmount) && 
+            !this.validNumber(value, -Mixer.MAX_WEIGHT, Mixer.MAX_WEIGHT)
+        )
+        {
+            toastError("A valid mixer amount is between " + 
+                    -Mixer.MAX_WEIGHT + "-" + Mixer.MAX_WEIGHT + " percent");
+            return false;
+        }
+
         return true;
     }
 
@@ -212,6 +362,32 @@ public class Main
         return true;
     }
 
+    /**
+     * Validate a number from a text box
+     *
+     * @param number The number as string
+     * @param min The smallest valid value
+     * @param max The largest valid value
+     *
+     * @return True if the value is numeric and within the range
+     */
+    private boolean validNumber(String number, int min, int max)
+    {
+        try 
+        { 
+            int temp = Integer.parseInt(number);
+
+            if (temp < min || temp > max)
+                return false;
+        } 
+        catch(NumberFormatException e) 
+        { 
+            return false; 
+        }
+
+        return true;
+    }
+
     /**
      * A short helper for our Toasting when on error
      *
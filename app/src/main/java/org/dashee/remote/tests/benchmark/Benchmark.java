@@ -0,0 +1,70 @@
+package org.dashee.remote.test.benchmark;
+
+import android.os.Debug;
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+/**
+ * The base of our benchmarks, which run on the phone apart from the unit
+ * tests.
+ *
+ * Work is run WARMUP times so the code is compiled, and then RUNS times on
+ * the clock. The time a run takes depends on the phone and whatever else
+ * it is doing, so it is only logged. What is checked is that the timed
+ * runs do not allocate.
+ */
+public abstract class Benchmark
+    extends TestCase
+{
+    /**
+     * Runs to time, and to run before timing so the code is compiled.
+     */
+    public static final int RUNS = 200000;
+    public static final int WARMUP = 20000;
+
+    /**
+     * The work a benchmark times.
+     */
+    protected interface Work
+    {
+        /**
+         * Run the work once.
+         *
+         * @param run The number of the run, counting from 0
+         *
+         * @return Any value worked out. They are summed and logged, so the
+         *         work can not be left out by the compiler
+         */
+        float run(int run);
+    }
+
+    /**
+     * Time some work, log what a run costs, and check the timed runs do not
+     * allocate.
+     *
+     * @param name What the work is, for the log
+     * @param work The work to time
+     *
+     * @return The time a run took in nanoseconds
+     */
+    protected long time(String name, Work work)
+    {
+        float sum = 0;
+        for (int x = 0; x < WARMUP; ++x)
+            sum += work.run(x);
+
+        Debug.startAllocCounting();
+        int allocated = Debug.getThreadAllocSize();
+        long start = System.nanoTime();
+        for (int x = WARMUP; x < WARMUP + RUNS; ++x)
+            sum += work.run(x);
+        long nanos = (System.nanoTime() - start) / RUNS;
+        allocated = Debug.getThreadAllocSize() - allocated;
+        Debug.stopAllocCounting();
+
+        Log.i("dashee", name + " takes " + nanos + "ns a run (" + sum + ")");
+        assertEquals(allocated, 0);
+        return nanos;
+    }
+}
@@ -0,0 +1,40 @@
+package org.dashee.remote.test.benchmark;
+
+import java.util.Random;
+
+import org.dashee.remote.model.Filter;
+import org.dashee.remote.model.filter.Median;
+
+public class FilterBenchmark
+    extends Benchmark
+{
+    /**
+     * The time between samples, 10ms in nanoseconds.
+     */
+    protected static final long TICK = 10000000L;
+
+    /**
+     * Time a chain of every filter but the low-pass, with the largest
+     * median
+     */
+    public void testChain()
+    {
+        final Filter filter = Filter.parse(
+                "median " + Median.MAX_SIZE + ", euro 1 0.007, deadband 0.5"
+            );
+        Random random = new Random(42);
+        final float[] noise = new float[256];
+        for (int x = 0; x < noise.length; ++x)
+            noise[x] = (float)random.nextGaussian();
+
+        this.time(
+                "Filtering a sample",
+                new Work() {
+                    public float run(int run)
+                    {
+                        return filter.apply(noise[run & 255], run * TICK);
+                    }
+                }
+            );
+    }
+}
@@ -0,0 +1,55 @@
+package org.dashee.remote.test.benchmark;
+
+import org.dashee.remote.model.Mixer;
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.model.vehicle.Car;
+import org.dashee.remote.network.Encoder;
+
+public class MixerBenchmark
+    extends Benchmark
+{
+    /**
+     * Time the mixer alone, at every channel a vehicle can have
+     */
+    public void testMix()
+    {
+        final Mixer mixer = Mixer.create(Mixer.Type.ELEVON, 0);
+        final int[] input = new int[Vehicle.MAX_CHANNELS];
+        final int[] output = new int[Vehicle.MAX_CHANNELS];
+
+        this.time(
+                "Mixing 16 channels",
+                new Work() {
+                    public float run(int run)
+                    {
+                        input[run % Vehicle.MAX_CHANNELS]
+                            = run & Vehicle.HIRES_MAX;
+                        mixer.mix(input, output, Vehicle.MAX_CHANNELS);
+                        return output[0];
+                    }
+                }
+            );
+    }
+
+    /**
+     * Time a whole frame, setting a channel and encoding the packet, with
+     * and without a mixer, so the cost of mixing can be read off the log
+     */
+    public void testFrame()
+    {
+        final Vehicle vehicle = new Car(Vehicle.MAX_CHANNELS);
+        final Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        final byte[] buffer = new byte[64];
+        Work frame = new Work() {
+            public float run(int run)
+            {
+                vehicle.setRoll(run & Vehicle.MAX);
+                return encoder.encode(vehicle, 0, buffer);
+            }
+        };
+
+        this.time("A 16 channel frame", frame);
+        vehicle.setMixer(Mixer.create(Mixer.Type.ELEVON, 0));
+        this.time("A mixed 16 channel frame", frame);
+    }
+}
@@ -0,0 +1,96 @@
+package org.dashee.remote.test.benchmark;
+
+import android.hardware.SensorManager;
+
+import java.util.Random;
+
+import org.dashee.remote.model.Orientation;
+
+public class OrientationBenchmark
+    extends Benchmark
+{
+    /**
+     * How close two angles must be to count as equal, in radians.
+     */
+    protected static final float DELTA = 0.0001f;
+
+    /**
+     * Test every axis matches the rotation matrix and getOrientation() of
+     * the phone for random rotations, with and without the scalar part in
+     * the event
+     */
+    public void testMatchesSensorManager()
+    {
+        Random random = new Random(42);
+        float[] vector = new float[4];
+        float[] vector3 = new float[3];
+        float[] matrix = new float[9];
+        float[] expected = new float[3];
+
+        for (int n = 0; n < 10000; ++n)
+        {
+            double length = 0;
+            for (int x = 0; x < 4; ++x)
+            {
+                vector[x] = (float)random.nextGaussian();
+                length += vector[x] * vector[x];
+            }
+
+            // q and -q are the same rotation, a missing scalar is positive
+            double scale = (vector[3] < 0 ? -1 : 1) / Math.sqrt(length);
+            for (int x = 0; x < 4; ++x)
+                vector[x] = (float)(vector[x] * scale);
+            System.arraycopy(vector, 0, vector3, 0, 3);
+
+            SensorManager.getRotationMatrixFromVector(matrix, vector);
+            SensorManager.getOrientation(matrix, expected);
+
+            // Yaw and pitch are not defined standing straight up
+            if (Math.abs(expected[1]) > 1.5f)
+                continue;
+
+            assertEquals(Orientation.yaw(vector), expected[0], DELTA);
+            assertEquals(Orientation.roll(vector), expected[1], DELTA);
+            assertEquals(Orientation.pitch(vector), expected[2], DELTA);
+            assertEquals(Orientation.roll(vector3), expected[1], 0.001f);
+        }
+    }
+
+    /**
+     * Time roll alone against the rotation matrix and getOrientation() it
+     * replaces
+     */
+    public void testRoll()
+    {
+        final float[] vector = { 0.0f, 0.0f, 0.0f, 1.0f };
+        final float[] matrix = new float[16];
+        final float[] orientation = new float[3];
+
+        this.time(
+                "Roll",
+                new Work() {
+                    public float run(int run)
+                    {
+                        vector[0] = (run & 255) / 1024.0f;
+                        return Orientation.roll(vector);
+                    }
+                }
+            );
+
+        this.time(
+                "The rotation matrix",
+                new Work() {
+                    public float run(int run)
+                    {
+                        vector[0] = (run & 255) / 1024.0f;
+                        SensorManager.getRotationMatrixFromVector(
+                                matrix,
+                                vector
+                            );
+                        SensorManager.getOrientation(matrix, orientation);
+                        return orientation[1];
+                    }
+                }
+            );
+    }
+}
@@ -90,6 +90,27 @@ public class ConfigTest
         }
     }
 
+    /**
+     * Test setting and getting of the send period
+     */
+    public void testSetAndGetSendPeriod()
+    {
+        assertEquals(this.config.getSendPeriod(), 30);
+
+        this.config.setSendPeriod(10);
+        assertEquals(this.config.getSendPeriod(), 10);
+
+        try
+        {
+            this.config.setSendPeriod(0);
+            TestCase.fail("A zero send period is invalid");
+        }
+        catch (OutOfRange e)
+        {
+            assertEquals(this.config.getSendPeriod(), 10);
+        }
+    }
+
     /**
      * Clean up our class
      */
@@ -0,0 +1,154 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Curve;
+import org.dashee.remote.exception.InvalidValue;
+import org.dashee.remote.exception.OutOfRange;
+
+public class CurveTest
+    extends TestCase
+{
+    /**
+     * How close two floats must be to count as equal.
+     */
+    protected static final float DELTA = 0.0001f;
+
+    /**
+     * Test the linear curve leaves every value alone
+     */
+    public void testLinear()
+    {
+        for (float x = -1.0f; x <= 1.0f; x += 0.125f)
+        {
+            assertEquals(Curve.LINEAR.apply(x, false), x, DELTA);
+            assertEquals(Curve.LINEAR.apply(x, true), x, DELTA);
+        }
+    }
+
+    /**
+     * Test expo softens the middle but keeps the ends and the center
+     */
+    public void testExpo()
+    {
+        Curve curve = new Curve(50, 100, 100, null);
+
+        assertEquals(curve.apply(0.0f, false), 0.0f, DELTA);
+        assertEquals(curve.apply(1.0f, false), 1.0f, DELTA);
+        assertEquals(curve.apply(-1.0f, false), -1.0f, DELTA);
+        assertEquals(curve.apply(0.5f, false), 0.3125f, DELTA);
+        assertEquals(curve.apply(-0.5f, false), -0.3125f, DELTA);
+
+        // Still rising everywhere at full expo
+        curve = new Curve(100, 100, 100, null);
+        float last = -2.0f;
+        for (float x = -1.0f; x <= 1.0f; x += 0.0625f)
+        {
+            float y = curve.apply(x, false);
+            assertTrue(y >= last);
+            last = y;
+        }
+    }
+
+    /**
+     * Test the rates scale the curve
+     */
+    public void testRates()
+    {
+        Curve curve = new Curve(0, 80, 40, null);
+
+        assertEquals(curve.apply(1.0f, false), 0.8f, DELTA);
+        assertEquals(curve.apply(1.0f, true), 0.4f, DELTA);
+        assertEquals(curve.apply(-0.5f, true), -0.2f, DELTA);
+        assertEquals(curve.getRate(), 80);
+        assertEquals(curve.getLowRate(), 40);
+    }
+
+    /**
+     * Test a custom curve goes through its points and in straight lines
+     * between them
+     */
+    public void testCustomCurve()
+    {
+        Curve curve = new Curve(
+                50,
+                100,
+                50,
+                Curve.parsePoints("-100, -20, 0, 20, 100")
+            );
+        assertTrue(curve.isCustom());
+
+        assertEquals(curve.apply(-1.0f, false), -1.0f, DELTA);
+        assertEquals(curve.apply(-0.5f, false), -0.2f, DELTA);
+        assertEquals(curve.apply(0.0f, false), 0.0f, DELTA);
+        assertEquals(curve.apply(0.25f, false), 0.1f, DELTA);
+        assertEquals(curve.apply(0.75f, false), 0.6f, DELTA);
+        assertEquals(curve.apply(1.0f, false), 1.0f, DELTA);
+        assertEquals(curve.apply(1.0f, true), 0.5f, DELTA);
+    }
+
+    /**
+     * Test reading the points of a custom curve
+     */
+    public void testParsePoints()
+    {
+        assertNull(Curve.parsePoints(""));
+        assertNull(Curve.parsePoints("  "));
+
+        int[] points = Curve.parsePoints("-100,0, 100");
+        assertEquals(points.length, 3);
+        assertEquals(points[0], -100);
+        assertEquals(points[2], 100);
+
+        try
+        {
+            Curve.parsePoints("-100, zero, 100");
+            fail("Points which are not numbers should throw");
+        }
+        catch (InvalidValue e)
+        {
+        }
+    }
+
+    /**
+     * Test values out of range are refused
+     */
+    public void testInvalidCurves()
+    {
+        int[][] invalid = {
+            { 101, 100, 100 },
+            { -1, 100, 100 },
+            { 0, 0, 100 },
+            { 0, 100, 101 }
+        };
+
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                new Curve(invalid[x][0], invalid[x][1], invalid[x][2], null);
+                fail("Curve " + x + " should throw");
+            }
+            catch (OutOfRange e)
+            {
+            }
+        }
+
+        try
+        {
+            new Curve(0, 100, 100, new int[] { 0 });
+            fail("A custom curve needs two points");
+        }
+        catch (OutOfRange e)
+        {
+        }
+
+        try
+        {
+            new Curve(0, 100, 100, new int[] { -100, 150 });
+            fail("Points above 100 should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+    }
+}
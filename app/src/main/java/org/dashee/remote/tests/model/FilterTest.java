@@ -0,0 +1,242 @@
+package org.dashee.remote.test.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Filter;
+import org.dashee.remote.model.filter.Chain;
+import org.dashee.remote.model.filter.Deadband;
+import org.dashee.remote.model.filter.LowPass;
+import org.dashee.remote.model.filter.Median;
+import org.dashee.remote.model.filter.OneEuro;
+import org.dashee.remote.model.filter.RingBuffer;
+import org.dashee.remote.exception.InvalidValue;
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * Filters are given the time of each sample, so every test runs on a fake
+ * clock and is exact.
+ */
+public class FilterTest
+    extends TestCase
+{
+    /**
+     * The time between samples, 10ms in nanoseconds.
+     */
+    protected static final long TICK = 10000000L;
+
+    /**
+     * A second in nanoseconds.
+     */
+    protected static final long SECOND = 1000000000L;
+
+    /**
+     * A cutoff with a time constant of 1 second.
+     */
+    protected static final float ONE_SECOND_CUTOFF
+        = (float)(1.0 / (2.0 * Math.PI));
+
+    /**
+     * Test the ring buffer keeps the newest values in order of arrival
+     */
+    public void testRingBuffer()
+    {
+        RingBuffer buffer = new RingBuffer(3);
+        assertEquals(buffer.getCapacity(), 3);
+
+        assertTrue(Float.isNaN(buffer.push(1.0f)));
+        assertTrue(Float.isNaN(buffer.push(2.0f)));
+        assertTrue(Float.isNaN(buffer.push(3.0f)));
+        assertTrue(buffer.isFull());
+        assertEquals(buffer.push(4.0f), 1.0f);
+        assertEquals(buffer.push(5.0f), 2.0f);
+
+        assertEquals(buffer.size(), 3);
+        assertEquals(buffer.get(0), 3.0f);
+        assertEquals(buffer.get(1), 4.0f);
+        assertEquals(buffer.get(2), 5.0f);
+
+        try
+        {
+            buffer.get(3);
+            fail("Index past the newest should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+
+        buffer.clear();
+        assertEquals(buffer.size(), 0);
+        assertFalse(buffer.isFull());
+    }
+
+    /**
+     * Test the low-pass moves by the share the time since the last sample
+     * gives, and starts again after a gap
+     */
+    public void testLowPass()
+    {
+        Filter filter = new LowPass(ONE_SECOND_CUTOFF);
+
+        assertEquals(filter.apply(0.0f, 0), 0.0f);
+        assertEquals(filter.apply(1.0f, SECOND), 0.5f, 0.0001f);
+        assertEquals(filter.apply(1.0f, SECOND), 0.5f, 0.0001f);
+        assertEquals(filter.apply(1.0f, 2 * SECOND), 0.75f, 0.0001f);
+
+        assertEquals(filter.apply(3.0f, 3 * SECOND + 1), 3.0f);
+
+        filter.reset();
+        assertEquals(filter.apply(-2.0f, 0), -2.0f);
+    }
+
+    /**
+     * Test the 1 Euro filter is the low-pass at its cutoff with no beta,
+     * and with a beta follows a move more closely
+     */
+    public void testOneEuro()
+    {
+        Filter still = new OneEuro(1.0f, 0.0f);
+        Filter lowPass = new LowPass(1.0f);
+        Filter moving = new OneEuro(1.0f, 1.0f);
+
+        for (int x = 0; x < 50; ++x)
+        {
+            float value = x < 10 ? 0.0f : 10.0f;
+            float expected = lowPass.apply(value, x * TICK);
+            assertEquals(still.apply(value, x * TICK), expected, 0.0001f);
+
+            float fast = moving.apply(value, x * TICK);
+            if (x >= 10)
+            {
+                assertTrue(fast > expected);
+                assertTrue(fast <= 10.0f);
+            }
+        }
+    }
+
+    /**
+     * Test the median drops a spike but keeps a step
+     */
+    public void testMedian()
+    {
+        Filter filter = new Median(3);
+
+        float[] spike = { 0.0f, 0.0f, 10.0f, 0.0f, 0.0f };
+        for (int x = 0; x < spike.length; ++x)
+            assertEquals(filter.apply(spike[x], x * TICK), 0.0f);
+
+        float[] step = { 5.0f, 5.0f, 5.0f };
+        assertEquals(filter.apply(step[0], 0), 0.0f);
+        assertEquals(filter.apply(step[1], 0), 5.0f);
+        assertEquals(filter.apply(step[2], 0), 5.0f);
+
+        assertEquals(filter.apply(Float.NaN, 0), 5.0f);
+
+        filter.reset();
+        assertEquals(filter.apply(-1.0f, 0), -1.0f);
+    }
+
+    /**
+     * Test the median matches sorting the window, for every size
+     */
+    public void testMedianMatchesSort()
+    {
+        Random random = new Random(42);
+
+        for (int size = 1; size <= Median.MAX_SIZE; ++size)
+        {
+            Filter filter = new Median(size);
+            float[] samples = new float[200];
+
+            for (int x = 0; x < samples.length; ++x)
+            {
+                // Few values, so there are plenty of ties
+                samples[x] = random.nextInt(8);
+
+                int from = Math.max(0, x + 1 - size);
+                float[] window = Arrays.copyOfRange(samples, from, x + 1);
+                Arrays.sort(window);
+
+                assertEquals(
+                        filter.apply(samples[x], x * TICK),
+                        window[window.length / 2]
+                    );
+            }
+        }
+    }
+
+    /**
+     * Test the deadband holds the value until the samples move past it
+     */
+    public void testDeadband()
+    {
+        Filter filter = new Deadband(1.0f);
+
+        assertEquals(filter.apply(0.0f, 0), 0.0f);
+        assertEquals(filter.apply(0.9f, TICK), 0.0f);
+        assertEquals(filter.apply(-1.0f, 2 * TICK), 0.0f);
+        assertEquals(filter.apply(1.5f, 3 * TICK), 1.5f);
+        assertEquals(filter.apply(1.0f, 4 * TICK), 1.5f);
+    }
+
+    /**
+     * Test filters are built from their text, in the order written
+     */
+    public void testParse()
+    {
+        assertNull(Filter.parse(""));
+        assertNull(Filter.parse("  "));
+        assertNull(Filter.parse(null));
+
+        Filter filter = Filter.parse("lowpass 10");
+        assertTrue(filter instanceof LowPass);
+        assertEquals(((LowPass)filter).getCutoff(), 10.0f);
+
+        filter = Filter.parse("Median 5,  euro 1.5 0.007 , deadband 0.5");
+        assertTrue(filter instanceof Chain);
+
+        Chain chain = (Chain)filter;
+        assertEquals(chain.getStageCount(), 3);
+        assertEquals(((Median)chain.getStage(0)).getSize(), 5);
+        assertEquals(((OneEuro)chain.getStage(1)).getMinCutoff(), 1.5f);
+        assertEquals(((OneEuro)chain.getStage(1)).getBeta(), 0.007f);
+        assertEquals(((Deadband)chain.getStage(2)).getWidth(), 0.5f);
+    }
+
+    /**
+     * Test text which is not a valid filter is refused
+     */
+    public void testInvalidParse()
+    {
+        String[] invalid = {
+            "lowpass",
+            "lowpass 0",
+            "lowpass 10 20",
+            "lowpass ten",
+            "euro 1",
+            "euro 1 -1",
+            "median 0",
+            "median " + (Median.MAX_SIZE + 1),
+            "median 2.5",
+            "deadband -1",
+            "deadband NaN",
+            "highpass 10",
+            "median 3,,deadband 1",
+            "deadband 1, deadband 1, deadband 1, deadband 1, deadband 1, " +
+                "deadband 1, deadband 1, deadband 1, deadband 1"
+        };
+
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                Filter.parse(invalid[x]);
+                fail("Filter '" + invalid[x] + "' should throw");
+            }
+            catch (InvalidValue e)
+            {
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Histogram;
+import org.dashee.remote.exception.OutOfRange;
+
+public class HistogramTest
+    extends TestCase
+{
+    /**
+     * The histogram under test.
+     */
+    protected Histogram histogram;
+
+    /**
+     * New empty histogram
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.histogram = new Histogram();
+    }
+
+    /**
+     * Test every time falls in the bucket whose bounds hold it, and the
+     * buckets follow on from each other
+     */
+    public void testBuckets()
+    {
+        for (long micros = 0; micros < 100000; micros += 1 + micros / 50)
+        {
+            int bucket = Histogram.bucket(micros);
+            assertTrue(Histogram.getLow(bucket) <= micros);
+            assertTrue(Histogram.getHigh(bucket) > micros);
+        }
+
+        for (int x = 1; x < Histogram.BUCKETS; ++x)
+            assertEquals(Histogram.getLow(x), Histogram.getHigh(x - 1));
+
+        assertEquals(Histogram.bucket(0), 0);
+        assertEquals(Histogram.bucket(4), 4);
+        assertEquals(Histogram.bucket(8), 8);
+        assertEquals(Histogram.bucket(Long.MAX_VALUE), Histogram.BUCKETS - 1);
+    }
+
+    /**
+     * Test a bucket is never wider than a quarter of its lower bound
+     */
+    public void testResolution()
+    {
+        for (int x = Histogram.SUB_BUCKETS; x < Histogram.BUCKETS; ++x)
+        {
+            long width = Histogram.getHigh(x) - Histogram.getLow(x);
+            assertTrue(width * 4 <= Histogram.getLow(x));
+        }
+    }
+
+    /**
+     * Test the count, mean, max and percentiles
+     */
+    public void testStatistics()
+    {
+        assertEquals(this.histogram.getPercentile(50.0f), 0);
+
+        for (int x = 1; x <= 100; ++x)
+            this.histogram.record(x * 100);
+
+        assertEquals(this.histogram.getCount(), 100);
+        assertEquals(this.histogram.getMean(), 5050);
+        assertEquals(this.histogram.getMax(), 10000);
+        assertEquals(this.histogram.getPercentile(100.0f), 10000);
+
+        // Within a bucket of the true value
+        long median = this.histogram.getPercentile(50.0f);
+        assertTrue(median >= 5000);
+        assertTrue(median < 5000 + 5000 / 4);
+
+        long p90 = this.histogram.getPercentile(90.0f);
+        assertTrue(p90 >= 9000);
+        assertTrue(p90 < 9000 + 9000 / 4);
+
+        this.histogram.reset();
+        assertEquals(this.histogram.getCount(), 0);
+        assertEquals(this.histogram.getMax(), 0);
+        assertEquals(this.histogram.get(Histogram.bucket(5000)), 0);
+    }
+
+    /**
+     * Test bucket indexes and percentiles out of range are refused
+     */
+    public void testInvalid()
+    {
+        try
+        {
+            Histogram.getLow(Histogram.BUCKETS);
+            fail("Bucket past the last should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+
+        try
+        {
+            this.histogram.getPercentile(101.0f);
+            fail("Percentile over 100 should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+    }
+}
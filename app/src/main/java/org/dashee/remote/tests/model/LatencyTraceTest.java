@@ -0,0 +1,120 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Histogram;
+import org.dashee.remote.model.LatencyTrace;
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.model.vehicle.Car;
+
+public class LatencyTraceTest
+    extends TestCase
+{
+    /**
+     * A millisecond in nanoseconds.
+     */
+    protected static final long MS = 1000000L;
+
+    /**
+     * The trace under test.
+     */
+    protected LatencyTrace trace;
+
+    /**
+     * New empty trace
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.trace = new LatencyTrace();
+    }
+
+    /**
+     * Test each stage keeps its own latencies, in microseconds
+     */
+    public void testRecord()
+    {
+        this.trace.record(LatencyTrace.Stage.FILTER, 100 * MS, 101 * MS);
+        this.trace.record(LatencyTrace.Stage.SEND, 100 * MS, 112 * MS);
+
+        Histogram filter = this.trace.getHistogram(LatencyTrace.Stage.FILTER);
+        assertEquals(filter.getCount(), 1);
+        assertEquals(filter.getMax(), 1000);
+
+        Histogram send = this.trace.getHistogram(LatencyTrace.Stage.SEND);
+        assertEquals(send.getMax(), 12000);
+
+        assertEquals(
+                this.trace.getHistogram(LatencyTrace.Stage.ENCODE).getCount(),
+                0
+            );
+    }
+
+    /**
+     * Test unknown events and latencies which can not be right are dropped
+     */
+    public void testDropped()
+    {
+        this.trace.record(LatencyTrace.Stage.VEHICLE, 0, 100 * MS);
+        this.trace.record(LatencyTrace.Stage.VEHICLE, 100 * MS, 99 * MS);
+        this.trace.record(
+                LatencyTrace.Stage.VEHICLE,
+                100 * MS,
+                100 * MS + LatencyTrace.MAX_LATENCY + 1
+            );
+
+        assertEquals(
+                this.trace.getHistogram(LatencyTrace.Stage.VEHICLE).getCount(),
+                0
+            );
+    }
+
+    /**
+     * Test the CSV has a row for each bucket holding events, and the
+     * summary a line for each stage
+     */
+    public void testExport()
+    {
+        this.trace.record(LatencyTrace.Stage.ENCODE, 0 + MS, 3 * MS);
+        this.trace.record(LatencyTrace.Stage.ENCODE, 0 + MS, 3 * MS);
+
+        int bucket = Histogram.bucket(2000);
+        assertEquals(
+                this.trace.toCsv(),
+                "stage,low_us,high_us,count\n" +
+                "ENCODE," + Histogram.getLow(bucket) + "," +
+                Histogram.getHigh(bucket) + ",2\n"
+            );
+
+        String[] lines = this.trace.getSummary().split("\n");
+        assertEquals(lines.length, LatencyTrace.Stage.values().length);
+        assertTrue(lines[2].startsWith("ENCODE"));
+        assertTrue(lines[2].contains("n=2"));
+        assertTrue(lines[2].contains("max 2.0ms"));
+
+        this.trace.reset();
+        assertEquals(this.trace.toCsv(), "stage,low_us,high_us,count\n");
+    }
+
+    /**
+     * Test the vehicle carries the event behind its newest change, and
+     * forgets it when a change comes without one
+     */
+    public void testVehicleCarriesEvent()
+    {
+        Vehicle vehicle = new Car();
+        assertEquals(vehicle.getEventTime(), 0);
+
+        vehicle.setRollHires(1000, 5 * MS);
+        assertEquals(vehicle.getEventTime(), 5 * MS);
+
+        // Nothing changed, so nothing new goes out
+        vehicle.setRollHires(1000, 6 * MS);
+        assertEquals(vehicle.getEventTime(), 5 * MS);
+
+        vehicle.setThrottleHires(2000, 7 * MS);
+        assertEquals(vehicle.getEventTime(), 7 * MS);
+
+        vehicle.setThrottleHires(3000);
+        assertEquals(vehicle.getEventTime(), 0);
+    }
+}
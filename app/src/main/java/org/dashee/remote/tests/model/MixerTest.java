@@ -0,0 +1,131 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Mixer;
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.model.vehicle.Car;
+import org.dashee.remote.exception.OutOfRange;
+
+public class MixerTest
+    extends TestCase
+{
+    /**
+     * The vehicle we mix.
+     */
+    protected Vehicle vehicle;
+
+    /**
+     * Where the channels sent are read to.
+     */
+    protected int[] snapshot = new int[Vehicle.MAX_CHANNELS];
+
+    /**
+     * New instance of our Car variable
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.vehicle = new Car();
+    }
+
+    /**
+     * Test elevons move together with pitch and apart with roll, and the
+     * channel getters still return the values before mixing
+     */
+    public void testElevon()
+    {
+        this.vehicle.setMixer(Mixer.create(Mixer.Type.ELEVON, 0));
+
+        this.vehicle.setPitch(Vehicle.MID + 64);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_PITCH], Vehicle.MID + 32);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID + 32);
+
+        this.vehicle.setPitch(Vehicle.MID);
+        this.vehicle.setRoll(Vehicle.MID + 64);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_PITCH], Vehicle.MID + 32);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID - 32);
+        assertEquals(this.vehicle.getRoll(), Vehicle.MID + 64);
+
+        // Yaw and throttle are passed through
+        this.vehicle.setThrottle(200);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_THROTTLE], 200);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_YAW], Vehicle.MID);
+
+        this.vehicle.setMixer(null);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID + 64);
+    }
+
+    /**
+     * Test tank steering turns by driving the tracks apart, and the sum is
+     * held at the end of the range
+     */
+    public void testTank()
+    {
+        this.vehicle.setMixer(Mixer.create(Mixer.Type.TANK, 0));
+
+        this.vehicle.setRoll(Vehicle.MAX);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_THROTTLE], 191);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], 64);
+
+        this.vehicle.setThrottle(Vehicle.MAX);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_THROTTLE], Vehicle.MAX);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID);
+
+        Mixer mixer = new Mixer(
+                new int[][] {
+                    { 100, 0, 0, 0 },
+                    { 0, 200, 0, 200 }
+                }
+            );
+        this.vehicle.setMixer(mixer);
+        this.vehicle.setRoll(Vehicle.MAX);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MAX);
+    }
+
+    /**
+     * Test throttle to steering pulls the steering against the throttle
+     */
+    public void testThrottleSteer()
+    {
+        this.vehicle.setMixer(Mixer.create(Mixer.Type.THROTTLE_STEER, 25));
+
+        this.vehicle.setThrottle(Vehicle.MID + 64);
+        this.vehicle.getSnapshot(this.snapshot);
+        assertEquals(this.snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID - 16);
+        assertEquals(
+                this.snapshot[Vehicle.CHANNEL_THROTTLE], 
+                Vehicle.MID + 64
+            );
+    }
+
+    /**
+     * Test the weights are stored in fixed point, and bad ones refused
+     */
+    public void testWeights()
+    {
+        Mixer mixer = Mixer.create(Mixer.Type.VTAIL, 0);
+        assertEquals(
+                mixer.getWeight(Vehicle.CHANNEL_YAW, Vehicle.CHANNEL_YAW),
+                -Mixer.ONE / 2
+            );
+        assertEquals(mixer.getWeight(15, 15), Mixer.ONE);
+        assertEquals(mixer.getWeight(15, 0), 0);
+        assertNull(Mixer.create(Mixer.Type.NONE, 0));
+
+        try
+        {
+            new Mixer(new int[][] { { 201 } });
+            fail("Weights above MAX_WEIGHT should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+    }
+}
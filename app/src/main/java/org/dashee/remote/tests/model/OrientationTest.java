@@ -0,0 +1,121 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Orientation;
+
+/**
+ * Plain Java, so it runs on the JVM. OrientationBenchmark checks the same
+ * angles against SensorManager on the phone.
+ */
+public class OrientationTest
+    extends TestCase
+{
+    /**
+     * How close two angles must be to count as equal, in radians.
+     */
+    protected static final float DELTA = 0.0001f;
+
+    /**
+     * Rotation vectors, with their scalar part, and the yaw, roll and pitch
+     * of each. The angles were worked out beforehand in double precision,
+     * through the rotation matrix the way getRotationMatrixFromVector() and
+     * getOrientation() do.
+     */
+    protected static final float[][] VECTORS = {
+        { 0.051184f, 0.67556f, -0.503352f, 0.536318f },
+        { -0.133483f, -0.134697f, 0.978496f, 0.081143f },
+        { 0.031952f, -0.543018f, -0.838799f, 0.022959f },
+        { -0.46192f, 0.764944f, 0.288145f, 0.344185f },
+        { 0.512629f, 0.580438f, 0.625995f, 0.091828f },
+        { 0.124408f, 0.231129f, -0.049877f, 0.963646f }
+    };
+    protected static final float[][] ANGLES = {
+        { 0.895276f, 0.675371f, 1.465541f },
+        { -3.013077f, 0.289281f, 0.252415f },
+        { 3.132270f, -1.149191f, 0.070112f },
+        { -1.147999f, -0.123169f, 2.216269f },
+        { 2.143107f, -0.962898f, -1.927422f },
+        { 0.158033f, -0.218448f, 0.488169f }
+    };
+
+    /**
+     * A rotation vector for a rotation around one axis.
+     *
+     * @param axis 0, 1 or 2 for the x, y or z axis of the phone
+     * @param angle The angle in radians
+     *
+     * @return The rotation vector, with its scalar part
+     */
+    protected static float[] around(int axis, double angle)
+    {
+        float[] vector = new float[4];
+        vector[axis] = (float)Math.sin(angle / 2);
+        vector[3] = (float)Math.cos(angle / 2);
+        return vector;
+    }
+
+    /**
+     * Test the phone lying flat reads 0 on every axis
+     */
+    public void testIdentity()
+    {
+        float[] vector = { 0.0f, 0.0f, 0.0f, 1.0f };
+        assertEquals(Orientation.yaw(vector), 0.0f, DELTA);
+        assertEquals(Orientation.roll(vector), 0.0f, DELTA);
+        assertEquals(Orientation.pitch(vector), 0.0f, DELTA);
+    }
+
+    /**
+     * Test a rotation around one axis only moves the angle of that axis
+     */
+    public void testSingleAxis()
+    {
+        float[] vector = around(0, 0.3);
+        assertEquals(Orientation.roll(vector), -0.3f, DELTA);
+        assertEquals(Orientation.pitch(vector), 0.0f, DELTA);
+        assertEquals(Orientation.yaw(vector), 0.0f, DELTA);
+
+        vector = around(1, 0.3);
+        assertEquals(Orientation.pitch(vector), 0.3f, DELTA);
+        assertEquals(Orientation.roll(vector), 0.0f, DELTA);
+
+        vector = around(2, 0.3);
+        assertEquals(Orientation.yaw(vector), -0.3f, DELTA);
+        assertEquals(Orientation.roll(vector), 0.0f, DELTA);
+    }
+
+    /**
+     * Test every axis matches the angles worked out beforehand, with and
+     * without the scalar part in the event
+     */
+    public void testPrecomputed()
+    {
+        float[] vector3 = new float[3];
+        for (int n = 0; n < VECTORS.length; ++n)
+        {
+            float[] vector = VECTORS[n];
+            assertEquals(Orientation.yaw(vector), ANGLES[n][0], DELTA);
+            assertEquals(Orientation.roll(vector), ANGLES[n][1], DELTA);
+            assertEquals(Orientation.pitch(vector), ANGLES[n][2], DELTA);
+
+            // A missing scalar is taken as positive, as all of these are
+            System.arraycopy(vector, 0, vector3, 0, 3);
+            assertEquals(Orientation.roll(vector3), ANGLES[n][1], 0.001f);
+        }
+    }
+
+    /**
+     * Test a sine rounded past 1 does not give NaN
+     */
+    public void testRoundingAtTheLimit()
+    {
+        float half = (float)Math.sqrt(0.5) + 0.00001f;
+        float[] vector = { half, 0.0f, 0.0f, half };
+        assertFalse(Float.isNaN(Orientation.roll(vector)));
+        assertEquals(
+                Orientation.roll(vector),
+                (float)(-Math.PI / 2),
+                DELTA
+            );
+    }
+}
@@ -0,0 +1,212 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Filter;
+import org.dashee.remote.model.Predictor;
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * Predictors are given the time of each sample and the lead, so every test
+ * runs on a fake clock and is exact.
+ */
+public class PredictorTest
+    extends TestCase
+{
+    /**
+     * The time between samples, 10ms in nanoseconds.
+     */
+    protected static final long TICK = 10000000L;
+
+    /**
+     * A millisecond in nanoseconds.
+     */
+    protected static final long MS = 1000000L;
+
+    /**
+     * Test the lead adds up the age, half the send period and half the
+     * round trip
+     */
+    public void testLead()
+    {
+        assertEquals(Predictor.lead(2 * MS, 30, 40 * MS), 37 * MS);
+        assertEquals(Predictor.lead(2 * MS, 30, -1), 17 * MS);
+        assertEquals(Predictor.lead(-1, -1, -1), 0);
+    }
+
+    /**
+     * Test a steady value and the first sample are passed as they are
+     */
+    public void testSteady()
+    {
+        Predictor predictor = new Predictor(100, 0.0f);
+        assertEquals(predictor.apply(3.0f, 0, 50 * MS), 3.0f);
+
+        for (int x = 1; x < 10; ++x)
+            assertEquals(predictor.apply(3.0f, x * TICK, 50 * MS), 3.0f);
+    }
+
+    /**
+     * Test a ramp is carried on exactly without damping, never further
+     * than the horizon
+     */
+    public void testRamp()
+    {
+        // 2 units a second
+        Predictor predictor = new Predictor(100, 0.0f);
+        float predicted = 0.0f;
+        for (int x = 0; x < 10; ++x)
+            predicted = predictor.apply(x * 0.02f, x * TICK, 50 * MS);
+        assertEquals(predicted, 0.18f + 0.1f, 1e-4f);
+
+        // Only as far as the horizon
+        predicted = predictor.apply(0.2f, 10 * TICK, 500 * MS);
+        assertEquals(predicted, 0.2f + 0.2f, 1e-4f);
+
+        // Nothing ahead
+        assertEquals(predictor.apply(0.22f, 11 * TICK, 0), 0.22f);
+    }
+
+    /**
+     * Test damping carries the ramp on less, as much as the speed dying
+     * away says
+     */
+    public void testDamping()
+    {
+        float damping = 10.0f;
+        Predictor predictor = new Predictor(100, damping);
+        float predicted = 0.0f;
+        for (int x = 0; x < 10; ++x)
+            predicted = predictor.apply(x * 0.02f, x * TICK, 100 * MS);
+
+        float reach = (float)(1.0 - Math.exp(-damping * 0.1)) / damping;
+        assertEquals(predicted, 0.18f + 2.0f * reach, 1e-4f);
+        assertTrue(predicted < 0.18f + 0.2f);
+    }
+
+    /**
+     * Test a gap or a clock going back starts again, and two samples at
+     * the same time count as one
+     */
+    public void testRestart()
+    {
+        Predictor predictor = new Predictor(100, 0.0f);
+        predictor.apply(0.0f, 0, 50 * MS);
+        predictor.apply(1.0f, TICK, 50 * MS);
+
+        long later = TICK + Filter.MAX_GAP + 1;
+        assertEquals(predictor.apply(5.0f, later, 50 * MS), 5.0f);
+        assertEquals(predictor.apply(6.0f, later - TICK, 50 * MS), 6.0f);
+
+        // The second sample replaces the first, so there is nothing to
+        // work a speed out from
+        assertEquals(predictor.apply(7.0f, later - TICK, 50 * MS), 7.0f);
+
+        predictor.reset();
+        assertEquals(predictor.apply(8.0f, later, 50 * MS), 8.0f);
+    }
+
+    /**
+     * Test the roll trace gives the same values every time it is played,
+     * and predicting it gets at least a quarter closer to where the roll
+     * is a lead later than sending it as it is
+     */
+    public void testRecordedTrace()
+    {
+        long[] times = new long[RollTrace.TIMES.length];
+        for (int x = 0; x < times.length; ++x)
+            times[x] = RollTrace.TIMES[x] * 1000L;
+
+        long lead = 40 * MS;
+        float[] first = this.play(
+                new Predictor(100, 5.0f),
+                times,
+                RollTrace.ROLLS,
+                lead
+            );
+        float[] second = this.play(
+                new Predictor(100, 5.0f),
+                times,
+                RollTrace.ROLLS,
+                lead
+            );
+
+        // Compare with the roll a lead later, between the samples around
+        // it, while the trace lasts that long
+        double lagged = 0.0;
+        double predicted = 0.0;
+        int later = 0;
+        for (int x = 0; x < times.length; ++x)
+        {
+            assertEquals(first[x], second[x]);
+
+            long time = times[x] + lead;
+            while (later < times.length - 1 && times[later + 1] <= time)
+                ++later;
+            if (later == times.length - 1)
+                break;
+
+            float from = RollTrace.ROLLS[later];
+            float to = RollTrace.ROLLS[later + 1];
+            double actual = from + (to - from) *
+                (double)(time - times[later]) /
+                (times[later + 1] - times[later]);
+
+            lagged += Math.abs(RollTrace.ROLLS[x] - actual);
+            predicted += Math.abs(first[x] - actual);
+        }
+
+        assertTrue(predicted < lagged * 0.75);
+    }
+
+    /**
+     * Play a trace through a predictor.
+     *
+     * @param predictor The predictor
+     * @param times The times of the samples in nanoseconds
+     * @param values The samples
+     * @param lead How far ahead to predict in nanoseconds
+     *
+     * @return The predicted values
+     */
+    protected float[] play(
+            Predictor predictor,
+            long[] times,
+            float[] values,
+            long lead
+        )
+    {
+        float[] predicted = new float[values.length];
+        for (int x = 0; x < values.length; ++x)
+            predicted[x] = predictor.apply(values[x], times[x], lead);
+
+        return predicted;
+    }
+
+    /**
+     * Test settings out of range are refused
+     */
+    public void testInvalid()
+    {
+        try
+        {
+            new Predictor(Predictor.MAX_HORIZON + 1, 0.0f);
+            fail("Horizon past the longest should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+
+        float[] invalid = { -1.0f, Predictor.MAX_DAMPING + 1.0f, Float.NaN };
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                new Predictor(100, invalid[x]);
+                fail("Damping " + invalid[x] + " should throw");
+            }
+            catch (OutOfRange e)
+            {
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.dashee.remote.test.model;
+
+/**
+ * A short roll trace to play through the input handling, in the form the
+ * sensor gives it: the time of each sample in microseconds from the first,
+ * and the roll in radians.
+ *
+ * The phone tilts right, holds, swings over to the left and comes back
+ * part of the way, with the tremor of a hand holding it. The samples come
+ * about every 10ms with the jitter of the sensor, and two of them are
+ * dropped. This trace was made in that form, not recorded. It can be
+ * replaced with a capture from a phone, which only has to keep the same
+ * shape.
+ */
+public final class RollTrace
+{
+    /**
+     * The time of each sample in microseconds.
+     */
+    public static final long[] TIMES = {
+              0,   10231,   19933,   30102,   40138,   50404,   60360,   70394,
+          80496,   90688,  100893,  110801,  120442,  130178,  140312,  150009,
+         159910,  170023,  179968,  189803,  199920,  210146,  220333,  229980,
+         239912,  249754,  260191,  269785,  279763,  289906,  300221,  310261,
+         319618,  329772,  339857,  350050,  360162,  370078,  380042,  390408,
+         400319,  410361,  420668,  430441,  440535,  450602,  460264,  470215,
+         480385,  490204,  500155,  510531,  520594,  530790,  541187,  550752,
+         560965,  571136,  581162,  590957,  600888,  610870,  630907,  640574,
+         650770,  660593,  670510,  680612,  690451,  700241,  710549,  720827,
+         731062,  740655,  750594,  760551,  770421,  780988,  791059,  801186,
+         810876,  820721,  830612,  840605,  850766,  860617,  870599,  880414,
+         890278,  899960,  909363,  919282,  929141,  938845,  949138,  959273,
+         969504,  979793,  989859, 1000071, 1010185, 1020393, 1030489, 1040773,
+        1050766, 1060746, 1070989, 1080588, 1090517, 1100833, 1110549, 1120654,
+        1130427, 1140317, 1150247, 1160117, 1170320, 1180068, 1190380, 1200688,
+        1211220, 1221535, 1231769, 1241543, 1251852, 1261566, 1271454, 1281845,
+        1291801, 1301586, 1311364, 1320970, 1330964, 1341070, 1350440, 1360009,
+        1370189, 1380169, 1390010, 1399725, 1409933, 1420144, 1430082, 1440422,
+        1450590, 1460492, 1470253, 1480262, 1490507, 1510737, 1520776, 1530525,
+        1540598, 1550287, 1560124, 1570175, 1580354, 1590296, 1600556, 1610380,
+        1620491, 1630456, 1640863, 1650168, 1659852, 1670037, 1680052, 1689795,
+        1699495, 1709480, 1719060, 1728919, 1739066, 1748845, 1758844, 1768661,
+        1778520, 1788392, 1798103, 1807857, 1817894, 1827731, 1837737, 1847606,
+        1857354, 1867225, 1877283, 1887658, 1898000, 1908127, 1917894, 1927912,
+        1937761, 1947913, 1957565, 1967415, 1977325, 1986967, 1996672, 2007237,
+        2017636, 2027442, 2037550, 2047603, 2057154, 2067011, 2076893, 2087006,
+        2096756, 2106147, 2116101, 2126300, 2136272, 2146766, 2157137, 2167065,
+        2176832, 2187106, 2196954, 2206972, 2217038, 2227107, 2237302, 2246647,
+        2256695, 2266426, 2276531, 2286469, 2296238, 2306275, 2316359, 2326782,
+        2336668, 2346477, 2356694, 2366381, 2376847, 2386535, 2396684
+    };
+
+    /**
+     * The roll of each sample in radians.
+     */
+    public static final float[] ROLLS = {
+         0.0217f,  0.0277f,  0.0238f,  0.0273f,  0.0261f,  0.0238f,  0.0182f,
+         0.0177f,  0.0150f,  0.0118f,  0.0143f,  0.0164f,  0.0181f,  0.0206f,
+         0.0251f,  0.0273f,  0.0263f,  0.0244f,  0.0234f,  0.0238f,  0.0233f,
+         0.0268f,  0.0269f,  0.0340f,  0.0423f,  0.0541f,  0.0671f,  0.0804f,
+         0.0964f,  0.1080f,  0.1209f,  0.1379f,  0.1506f,  0.1665f,  0.1806f,
+         0.1938f,  0.2187f,  0.2353f,  0.2558f,  0.2817f,  0.3010f,  0.3196f,
+         0.3419f,  0.3583f,  0.3727f,  0.3852f,  0.3983f,  0.4084f,  0.4206f,
+         0.4285f,  0.4395f,  0.4502f,  0.4595f,  0.4705f,  0.4737f,  0.4806f,
+         0.4844f,  0.4837f,  0.4819f,  0.4826f,  0.4798f,  0.4754f,  0.4760f,
+         0.4728f,  0.4785f,  0.4835f,  0.4830f,  0.4839f,  0.4858f,  0.4838f,
+         0.4842f,  0.4823f,  0.4774f,  0.4740f,  0.4754f,  0.4747f,  0.4755f,
+         0.4770f,  0.4789f,  0.4843f,  0.4861f,  0.4840f,  0.4858f,  0.4855f,
+         0.4837f,  0.4798f,  0.4747f,  0.4738f,  0.4746f,  0.4772f,  0.4783f,
+         0.4801f,  0.4814f,  0.4837f,  0.4837f,  0.4877f,  0.4811f,  0.4839f,
+         0.4768f,  0.4701f,  0.4631f,  0.4530f,  0.4493f,  0.4390f,  0.4313f,
+         0.4197f,  0.4062f,  0.3943f,  0.3774f,  0.3575f,  0.3349f,  0.3074f,
+         0.2832f,  0.2545f,  0.2284f,  0.1980f,  0.1688f,  0.1453f,  0.1160f,
+         0.0893f,  0.0636f,  0.0332f,  0.0012f, -0.0244f, -0.0571f, -0.0846f,
+        -0.1105f, -0.1357f, -0.1631f, -0.1813f, -0.1987f, -0.2149f, -0.2265f,
+        -0.2419f, -0.2485f, -0.2606f, -0.2718f, -0.2791f, -0.2872f, -0.2929f,
+        -0.3004f, -0.3052f, -0.3054f, -0.3047f, -0.3020f, -0.2998f, -0.2973f,
+        -0.2943f, -0.2922f, -0.2968f, -0.2998f, -0.2996f, -0.3014f, -0.3062f,
+        -0.3061f, -0.3054f, -0.3048f, -0.3001f, -0.2968f, -0.2964f, -0.2946f,
+        -0.2939f, -0.2981f, -0.2984f, -0.3043f, -0.3044f, -0.3043f, -0.3070f,
+        -0.3037f, -0.3052f, -0.3003f, -0.3006f, -0.2963f, -0.2958f, -0.2970f,
+        -0.2945f, -0.2973f, -0.2958f, -0.2958f, -0.2954f, -0.2883f, -0.2841f,
+        -0.2722f, -0.2602f, -0.2435f, -0.2310f, -0.2187f, -0.2013f, -0.1801f,
+        -0.1685f, -0.1538f, -0.1392f, -0.1244f, -0.1105f, -0.0988f, -0.0804f,
+        -0.0665f, -0.0527f, -0.0369f, -0.0242f, -0.0137f, -0.0058f, -0.0010f,
+         0.0062f,  0.0070f,  0.0057f,  0.0044f,  0.0038f,  0.0038f,  0.0021f,
+         0.0089f,  0.0103f,  0.0117f,  0.0161f,  0.0158f,  0.0156f,  0.0144f,
+         0.0113f,  0.0085f,  0.0069f,  0.0054f,  0.0043f,  0.0057f,  0.0051f,
+         0.0082f,  0.0122f,  0.0128f,  0.0175f,  0.0172f,  0.0164f,  0.0123f,
+         0.0096f,  0.0067f,  0.0048f,  0.0052f,  0.0036f,  0.0053f,  0.0115f,
+         0.0110f
+    };
+
+    /**
+     * Nothing to create, the trace is static.
+     */
+    private RollTrace()
+    {
+    }
+}
@@ -0,0 +1,184 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.SamplingPolicy;
+import org.dashee.remote.thread.Scheduler;
+import org.dashee.remote.thread.Watchdog;
+import org.dashee.remote.exception.OutOfRange;
+
+public class SamplingPolicyTest
+    extends TestCase
+{
+    /**
+     * The shortest time between samples of the sensor, 5ms in
+     * microseconds.
+     */
+    protected static final int MIN_DELAY = 5000;
+
+    /**
+     * Test the sensor samples as fast as it can until the period is known
+     */
+    public void testDefault()
+    {
+        SamplingPolicy policy = new SamplingPolicy(MIN_DELAY, true);
+        assertEquals(policy.getSamplingPeriod(), MIN_DELAY);
+        assertEquals(policy.getSendPeriod(), 0);
+        assertFalse(policy.isBatching());
+    }
+
+    /**
+     * Test the sensor samples twice a send, never faster than it can
+     */
+    public void testMatched()
+    {
+        SamplingPolicy policy = new SamplingPolicy(MIN_DELAY, false);
+
+        assertTrue(policy.setSendPeriod(30));
+        assertEquals(policy.getSendPeriod(), 30);
+        assertEquals(
+                policy.getSamplingPeriod(),
+                30000 / SamplingPolicy.OVERSAMPLE
+            );
+        assertEquals(policy.getReportLatency(), 0);
+
+        assertTrue(policy.setSendPeriod(6));
+        assertEquals(policy.getSamplingPeriod(), MIN_DELAY);
+
+        // Already as fast as the sensor goes, nothing to change
+        assertFalse(policy.setSendPeriod(0));
+        assertEquals(policy.getSamplingPeriod(), MIN_DELAY);
+    }
+
+    /**
+     * Test with a FIFO the newest sample is at most a send period old when
+     * it is delivered
+     */
+    public void testBatching()
+    {
+        SamplingPolicy policy = new SamplingPolicy(MIN_DELAY, true);
+
+        policy.setSendPeriod(100);
+        assertTrue(policy.isBatching());
+        assertEquals(policy.getSamplingPeriod(), 50000);
+        assertEquals(policy.getReportLatency(), 50000);
+        assertEquals(
+                policy.getSamplingPeriod() + policy.getReportLatency(),
+                100000
+            );
+
+        // Sending as fast as the sensor samples leaves nothing to batch
+        policy.setSendPeriod(5);
+        assertFalse(policy.isBatching());
+    }
+
+    /**
+     * Test however slow the sends are, samples are delivered at least twice
+     * a failsafe timeout, batched or not, and the sampling still follows
+     * sends faster than that
+     */
+    public void testSlowSending()
+    {
+        boolean[] batching = { true, false };
+        for (int x = 0; x < batching.length; ++x)
+        {
+            SamplingPolicy policy
+                = new SamplingPolicy(MIN_DELAY, batching[x]);
+            assertFalse(policy.setFailsafeTimeout(500));
+
+            assertTrue(policy.setSendPeriod(Scheduler.MAX_PERIOD));
+            assertEquals(policy.getSendPeriod(), Scheduler.MAX_PERIOD);
+            assertEquals(policy.isBatching(), batching[x]);
+            assertTrue(
+                    policy.getSamplingPeriod() + policy.getReportLatency() <=
+                        250000
+                );
+
+            assertTrue(policy.setSendPeriod(30));
+            assertEquals(policy.getSamplingPeriod(), 15000);
+        }
+    }
+
+    /**
+     * Test a new failsafe timeout works the sampling out again, and a
+     * timeout of 0 leaves the sampling to the send period
+     */
+    public void testFailsafeTimeout()
+    {
+        SamplingPolicy policy = new SamplingPolicy(MIN_DELAY, true);
+        policy.setFailsafeTimeout(500);
+        policy.setSendPeriod(100);
+        assertEquals(policy.getSamplingPeriod(), 50000);
+        assertEquals(policy.getReportLatency(), 50000);
+
+        assertTrue(policy.setFailsafeTimeout(Watchdog.MIN_TIMEOUT));
+        assertEquals(
+                policy.getSamplingPeriod() + policy.getReportLatency(),
+                Watchdog.MIN_TIMEOUT * 1000 / 2
+            );
+        assertFalse(policy.setFailsafeTimeout(Watchdog.MIN_TIMEOUT));
+
+        assertTrue(policy.setFailsafeTimeout(0));
+        policy.setSendPeriod(Scheduler.MAX_PERIOD);
+        assertEquals(
+                policy.getSamplingPeriod() + policy.getReportLatency(),
+                Scheduler.MAX_PERIOD * 1000
+            );
+
+        int[] invalid = {
+            -1,
+            Watchdog.MIN_TIMEOUT - 1,
+            Watchdog.MAX_TIMEOUT + 1
+        };
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                policy.setFailsafeTimeout(invalid[x]);
+                fail("Timeout " + invalid[x] + " should throw");
+            }
+            catch (OutOfRange e)
+            {
+            }
+        }
+    }
+
+    /**
+     * Test small changes of the period keep the sensor as it is
+     */
+    public void testHysteresis()
+    {
+        SamplingPolicy policy = new SamplingPolicy(0, false);
+
+        assertTrue(policy.setSendPeriod(40));
+        assertFalse(policy.setSendPeriod(44));
+        assertFalse(policy.setSendPeriod(36));
+        assertEquals(policy.getSamplingPeriod(), 20000);
+        assertEquals(policy.getSendPeriod(), 40);
+
+        assertTrue(policy.setSendPeriod(60));
+        assertEquals(policy.getSamplingPeriod(), 30000);
+    }
+
+    /**
+     * Test periods out of range are refused
+     */
+    public void testInvalidPeriod()
+    {
+        SamplingPolicy policy = new SamplingPolicy(MIN_DELAY, false);
+        int[] invalid = { -1, Scheduler.MAX_PERIOD + 1 };
+
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                policy.setSendPeriod(invalid[x]);
+                fail("Period " + invalid[x] + " should throw");
+            }
+            catch (OutOfRange e)
+            {
+            }
+        }
+
+        assertEquals(policy.getSamplingPeriod(), MIN_DELAY);
+    }
+}
@@ -0,0 +1,266 @@
+package org.dashee.remote.test.model;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.SlewLimiter;
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.model.vehicle.Car;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * The limiter is driven by a fake clock, the time of each tick is passed
+ * in, so every test is exact.
+ */
+public class SlewLimiterTest
+    extends TestCase
+{
+    /**
+     * A tick of the fake clock, 10ms in nanoseconds.
+     */
+    protected static final long TICK = 10000000L;
+
+    /**
+     * The vehicle holding the rates, and the limiter under test.
+     */
+    protected Vehicle vehicle;
+    protected SlewLimiter limiter;
+
+    /**
+     * The hires values passed through the limiter.
+     */
+    protected int[] values = new int[Vehicle.MAX_CHANNELS];
+
+    /**
+     * The time of the fake clock in nanoseconds.
+     */
+    protected long time;
+
+    /**
+     * New instance of our Car and the limiter, with the channels in the
+     * middle at time 0
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.vehicle = new Car();
+        this.limiter = new SlewLimiter();
+        this.time = 0;
+
+        for (int x = 0; x < this.values.length; ++x)
+            this.values[x] = Vehicle.HIRES_MID;
+
+        this.tick(Vehicle.HIRES_MID, 0);
+    }
+
+    /**
+     * Run the limiter with throttle set to a value.
+     *
+     * @param throttle The hires throttle the vehicle wants
+     * @param elapsed The time since the last tick in nanoseconds
+     *
+     * @return true if still ramping
+     */
+    protected boolean tick(int throttle, long elapsed)
+    {
+        this.time += elapsed;
+        this.values[Vehicle.CHANNEL_THROTTLE] = throttle;
+        return this.limiter.apply(
+                this.vehicle,
+                this.values,
+                Vehicle.CHANNEL_COUNT,
+                this.time
+            );
+    }
+
+    /**
+     * Test channels without a rate go straight to their value
+     */
+    public void testUnlimited()
+    {
+        assertFalse(this.tick(Vehicle.HIRES_MAX, TICK));
+        assertEquals(
+                this.values[Vehicle.CHANNEL_THROTTLE],
+                Vehicle.HIRES_MAX
+            );
+    }
+
+    /**
+     * Test a jump away from the middle ramps at the up rate, reaching the
+     * end of the range at the time the rate allows
+     */
+    public void testRampUp()
+    {
+        // Full range a second, so half of it in 50 ticks
+        this.vehicle.setThrottleSlew(100, 0);
+
+        assertTrue(this.tick(Vehicle.HIRES_MAX, TICK));
+        int first = this.values[Vehicle.CHANNEL_THROTTLE];
+        assertEquals(first, Vehicle.HIRES_MID + 655);
+
+        int last = first;
+        for (int x = 1; x < 49; ++x)
+        {
+            this.tick(Vehicle.HIRES_MAX, TICK);
+            assertTrue(this.values[Vehicle.CHANNEL_THROTTLE] > last);
+            last = this.values[Vehicle.CHANNEL_THROTTLE];
+        }
+        assertTrue(last < Vehicle.HIRES_MAX);
+        assertTrue(last > Vehicle.HIRES_MAX - 1000);
+
+        assertFalse(this.tick(Vehicle.HIRES_MAX, TICK));
+        assertEquals(
+                this.values[Vehicle.CHANNEL_THROTTLE],
+                Vehicle.HIRES_MAX
+            );
+
+        // Other channels are not held
+        assertEquals(this.values[Vehicle.CHANNEL_ROLL], Vehicle.HIRES_MID);
+    }
+
+    /**
+     * Test going back to the middle uses the down rate, on either side
+     */
+    public void testRampDown()
+    {
+        this.vehicle.setThrottleSlew(100, 0);
+        this.tick(Vehicle.HIRES_MID + 655, TICK);
+
+        // No down rate, straight back
+        assertFalse(this.tick(Vehicle.HIRES_MID, TICK));
+        assertEquals(
+                this.values[Vehicle.CHANNEL_THROTTLE],
+                Vehicle.HIRES_MID
+            );
+
+        this.vehicle.setThrottleSlew(0, 50);
+        this.tick(Vehicle.MIN, TICK);
+        assertEquals(this.values[Vehicle.CHANNEL_THROTTLE], Vehicle.MIN);
+
+        assertTrue(this.tick(Vehicle.HIRES_MID, TICK));
+        assertEquals(this.values[Vehicle.CHANNEL_THROTTLE], 327);
+    }
+
+    /**
+     * Test a stalled loop only moves as far as MAX_TICK allows, and the
+     * clock going back does not move at all
+     */
+    public void testLongTick()
+    {
+        this.vehicle.setThrottleSlew(100, 100);
+
+        this.tick(Vehicle.HIRES_MAX, 10 * SlewLimiter.MAX_TICK);
+        assertEquals(
+                this.values[Vehicle.CHANNEL_THROTTLE],
+                Vehicle.HIRES_MID + 6553
+            );
+
+        this.tick(Vehicle.HIRES_MAX, -TICK);
+        assertEquals(
+                this.values[Vehicle.CHANNEL_THROTTLE],
+                Vehicle.HIRES_MID + 6553
+            );
+    }
+
+    /**
+     * Test after a reset the next tick sends the values as they are
+     */
+    public void testReset()
+    {
+        this.vehicle.setThrottleSlew(1, 1);
+        this.limiter.reset();
+
+        assertFalse(this.tick(Vehicle.HIRES_MAX, TICK));
+        assertEquals(
+                this.values[Vehicle.CHANNEL_THROTTLE],
+                Vehicle.HIRES_MAX
+            );
+    }
+
+    /**
+     * Test the same clock gives the same frames every time
+     */
+    public void testDeterministic()
+    {
+        this.vehicle.setThrottleSlew(37, 91);
+
+        int[] first = new int[40];
+        for (int x = 0; x < first.length; ++x)
+        {
+            this.tick(x < 20 ? Vehicle.HIRES_MAX : Vehicle.MIN, TICK + x);
+            first[x] = this.values[Vehicle.CHANNEL_THROTTLE];
+        }
+
+        SlewLimiter other = new SlewLimiter();
+        int[] values = new int[Vehicle.MAX_CHANNELS];
+        long time = 0;
+        values[Vehicle.CHANNEL_THROTTLE] = Vehicle.HIRES_MID;
+        other.apply(this.vehicle, values, Vehicle.CHANNEL_COUNT, time);
+        for (int x = 0; x < first.length; ++x)
+        {
+            time += TICK + x;
+            values[Vehicle.CHANNEL_THROTTLE]
+                = x < 20 ? Vehicle.HIRES_MAX : Vehicle.MIN;
+            other.apply(this.vehicle, values, Vehicle.CHANNEL_COUNT, time);
+            assertEquals(values[Vehicle.CHANNEL_THROTTLE], first[x]);
+        }
+    }
+
+    /**
+     * Test the encoder holds the channels it sends to the rates, and says
+     * so while it does
+     */
+    public void testEncoder()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.LEGACY);
+        byte[] buffer = new byte[64];
+        this.vehicle.setThrottleSlew(100, 100);
+
+        this.vehicle.setThrottle(Vehicle.MID);
+        encoder.encode(this.vehicle, 0, buffer);
+        assertFalse(encoder.isLimiting());
+
+        this.vehicle.setThrottle(Vehicle.MAX);
+        encoder.encode(this.vehicle, 100 * TICK, buffer);
+        assertTrue(encoder.isLimiting());
+        assertEquals(buffer[Packet.LEGACY_THROTTLE] & 0xFF, Vehicle.MID + 25);
+        assertEquals(this.vehicle.getThrottle(), Vehicle.MAX);
+
+        for (int x = 0; x < 5; ++x)
+            encoder.encode(this.vehicle, (101 + 10 * x) * TICK, buffer);
+        assertFalse(encoder.isLimiting());
+        assertEquals(buffer[Packet.LEGACY_THROTTLE] & 0xFF, Vehicle.MAX);
+    }
+
+    /**
+     * Test rates out of range are refused
+     */
+    public void testInvalidRates()
+    {
+        int[][] invalid = {
+            { -1, 0 },
+            { 0, -1 },
+            { Vehicle.MAX_SLEW + 1, 0 },
+            { 0, Vehicle.MAX_SLEW + 1 }
+        };
+
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                this.vehicle.setThrottleSlew(invalid[x][0], invalid[x][1]);
+                fail("Slew rate " + x + " should throw");
+            }
+            catch (OutOfRange e)
+            {
+            }
+        }
+
+        this.vehicle.setRollSlew(Vehicle.MAX_SLEW, 0);
+        assertEquals(
+                this.vehicle.getChannelSlewUp(Vehicle.CHANNEL_ROLL),
+                Vehicle.MAX_SLEW
+            );
+        assertEquals(this.vehicle.getChannelSlewDown(Vehicle.CHANNEL_ROLL), 0);
+    }
+}
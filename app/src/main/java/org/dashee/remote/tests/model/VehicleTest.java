@@ -1,6 +1,7 @@
 package org.dashee.remote.test.model;
 
 import junit.framework.TestCase;
+import org.dashee.remote.model.Curve;
 import org.dashee.remote.model.Vehicle;
 import org.dashee.remote.exception.OutOfRange;
 
@@ -556,6 +557,289 @@ abstract public class VehicleTest
         }
     }
 
+    /**
+     * Test that the change listener is only told about real changes
+     */
+    public void testOnChangeListener()
+    {
+        final int[] calls = { 0 };
+        this.vehicle.setOnChangeListener(new Vehicle.OnChangeListener() {
+            public void onVehicleChanged(Vehicle vehicle)
+            {
+                calls[0]++;
+            }
+        });
+
+        this.vehicle.setRoll(10);
+        assertEquals(calls[0], 1);
+        this.vehicle.setRoll(10);
+        assertEquals(calls[0], 1);
+        this.vehicle.setRollTrim(5);
+        assertEquals(calls[0], 2);
+        this.vehicle.setThrottleInverted(true);
+        assertEquals(calls[0], 3);
+
+        this.vehicle.setOnChangeListener(null);
+        this.vehicle.setRoll(20);
+        assertEquals(calls[0], 3);
+    }
+
+    /**
+     * Test the compiled tables give the same value as trimming, clamping 
+     * and inverting by hand, for every value
+     */
+    public void testTablesMatchTransform()
+    {
+        int[] trims = { -128, -20, 0, 7, 128 };
+        for (int t = 0; t < trims.length; ++t)
+        {
+            for (int i = 0; i < 2; ++i)
+            {
+                boolean inverted = i == 1;
+                this.vehicle.setPitchTrim(trims[t]);
+                this.vehicle.setPitchMax(200);
+                this.vehicle.setPitchMin(30);
+                this.vehicle.setPitchInverted(inverted);
+
+                for (int x = Vehicle.MIN; x <= Vehicle.MAX; ++x)
+                {
+                    int expected = Math.min(Math.max(x + trims[t], 30), 200);
+                    if (inverted)
+                        expected = Vehicle.MAX - expected;
+
+                    this.vehicle.setPitch(x);
+                    assertEquals(this.vehicle.getPitch(), expected);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the snapshot follows every setter, after trim and invert
+     */
+    public void testSnapshot()
+    {
+        int[] snapshot = new int[Vehicle.MAX_CHANNELS];
+
+        this.vehicle.setChannels(1, 2, 3, 4);
+        assertEquals(
+                this.vehicle.getSnapshot(snapshot), 
+                this.vehicle.getChannelCount()
+            );
+        assertEquals(snapshot[Vehicle.CHANNEL_PITCH], 1);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], 2);
+        assertEquals(snapshot[Vehicle.CHANNEL_YAW], 3);
+        assertEquals(snapshot[Vehicle.CHANNEL_THROTTLE], 4);
+
+        this.vehicle.setRollTrim(10);
+        this.vehicle.setThrottleInverted(true);
+        this.vehicle.getSnapshot(snapshot);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], 12);
+        assertEquals(snapshot[Vehicle.CHANNEL_THROTTLE], 251);
+
+        try
+        {
+            this.vehicle.setChannels(1, 2, 3, 256);
+            fail("Setting channels out of range should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+        this.vehicle.getSnapshot(snapshot);
+        assertEquals(snapshot[Vehicle.CHANNEL_THROTTLE], 251);
+    }
+
+    /**
+     * Test a reader never sees a snapshot mixing two updates, while another
+     * thread keeps updating every channel to the same value
+     */
+    public void testSnapshotNeverTorn() throws Exception
+    {
+        final boolean[] done = { false };
+        Thread writer = new Thread() {
+            public void run()
+            {
+                for (int x = 0; x < 200000; ++x)
+                {
+                    int v = x % 256;
+                    VehicleTest.this.vehicle.setChannels(v, v, v, v);
+                }
+                done[0] = true;
+            }
+        };
+        writer.start();
+
+        int[] snapshot = new int[Vehicle.MAX_CHANNELS];
+        long reads = 0;
+        while (writer.isAlive())
+        {
+            this.vehicle.getSnapshot(snapshot);
+            for (int c = 1; c < Vehicle.CHANNEL_COUNT; ++c)
+                assertEquals(snapshot[c], snapshot[Vehicle.CHANNEL_PITCH]);
+            reads++;
+        }
+        writer.join();
+
+        assertTrue(done[0]);
+        assertTrue(reads > 0);
+    }
+
+    /**
+     * Test high resolution values go through trim and invert, and read 
+     * back at every resolution
+     */
+    public void testHires()
+    {
+        this.vehicle.setRollHires(0x1234);
+        assertEquals(this.vehicle.getActualRoll(), 0x12);
+        assertEquals(
+                this.vehicle.getActualChannelHires(Vehicle.CHANNEL_ROLL), 
+                0x1234
+            );
+        assertEquals(
+                this.vehicle.getChannelHires(Vehicle.CHANNEL_ROLL), 
+                0x1234
+            );
+
+        this.vehicle.setRollTrim(1);
+        assertEquals(this.vehicle.getRoll(), 0x13);
+        assertEquals(
+                this.vehicle.getChannelHires(Vehicle.CHANNEL_ROLL), 
+                0x1334
+            );
+
+        this.vehicle.setRollInverted(true);
+        assertEquals(
+                this.vehicle.getChannelHires(Vehicle.CHANNEL_ROLL), 
+                Vehicle.HIRES_MAX - 0x1334
+            );
+        assertEquals(this.vehicle.getRoll(), Vehicle.MAX - 0x13);
+
+        int[] snapshot = new int[Vehicle.MAX_CHANNELS];
+        this.vehicle.getSnapshot(snapshot, Vehicle.HIRES_BITS);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], 0xECCB);
+        this.vehicle.getSnapshot(snapshot, 12);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], 0xECC);
+        this.vehicle.getSnapshot(snapshot);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], 0xEC);
+
+        // Values set with the low resolution methods have no extra bits
+        this.vehicle.setRollInverted(false);
+        this.vehicle.setRoll(0x40);
+        assertEquals(
+                this.vehicle.getChannelHires(Vehicle.CHANNEL_ROLL), 
+                0x4100
+            );
+
+        try
+        {
+            this.vehicle.setRollHires(Vehicle.HIRES_MAX + 1);
+            fail("Hires values above HIRES_MAX should throw");
+        }
+        catch (OutOfRange e)
+        {
+            assertSame(e.getMessage(), "Invalid range of Roll");
+        }
+    }
+
+    /**
+     * Test curves are applied before trim, and switching dual rate changes
+     * the values sent straight away
+     */
+    public void testCurves()
+    {
+        int[] snapshot = new int[Vehicle.MAX_CHANNELS];
+
+        this.vehicle.setRoll(Vehicle.MID + 64);
+        this.vehicle.setRollCurve(new Curve(0, 100, 50, null));
+        assertEquals(this.vehicle.getRoll(), Vehicle.MID + 64);
+
+        this.vehicle.setLowRate(true);
+        assertTrue(this.vehicle.getLowRate());
+        assertEquals(this.vehicle.getRoll(), Vehicle.MID + 32);
+        this.vehicle.getSnapshot(snapshot);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID + 32);
+
+        // Channels without a curve are not touched by the rate
+        this.vehicle.setThrottle(Vehicle.MID + 64);
+        assertEquals(this.vehicle.getThrottle(), Vehicle.MID + 64);
+
+        this.vehicle.setLowRate(false);
+        this.vehicle.setRollCurve(new Curve(50, 100, 100, null));
+        this.vehicle.setRollTrim(2);
+        assertEquals(this.vehicle.getRoll(), Vehicle.MID + 40 + 2);
+        this.vehicle.getSnapshot(snapshot);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], Vehicle.MID + 40 + 2);
+
+        this.vehicle.setRollCurve(Curve.LINEAR);
+        assertSame(
+                this.vehicle.getChannelCurve(Vehicle.CHANNEL_ROLL), 
+                Curve.LINEAR
+            );
+        assertEquals(this.vehicle.getRoll(), Vehicle.MID + 64 + 2);
+    }
+
+    /**
+     * Test failsafe values are kept apart from the values set, and setting
+     * a value counts as input even when it does not change
+     */
+    public void testFailsafe()
+    {
+        int[] snapshot = new int[Vehicle.MAX_CHANNELS];
+
+        assertEquals(
+                this.vehicle.getChannelFailsafe(Vehicle.CHANNEL_THROTTLE),
+                Vehicle.MID
+            );
+
+        this.vehicle.setThrottleFailsafe(10);
+        this.vehicle.setThrottle(200);
+        assertEquals(this.vehicle.getThrottle(), 200);
+        this.vehicle.getFailsafeSnapshot(snapshot);
+        assertEquals(snapshot[Vehicle.CHANNEL_THROTTLE], 10 << 8);
+        assertEquals(snapshot[Vehicle.CHANNEL_ROLL], Vehicle.HIRES_MID);
+
+        try
+        {
+            this.vehicle.setRollFailsafe(Vehicle.MAX + 1);
+            fail("Failsafe values above MAX should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+
+        long time = this.vehicle.getInputTime();
+        this.vehicle.setThrottle(200);
+        assertTrue(this.vehicle.getInputTime() >= time);
+    }
+
+    /**
+     * Test the named channel methods and the channel methods are the same
+     */
+    public void testNamedChannelsAreChannels()
+    {
+        this.vehicle.setRoll(40);
+        this.vehicle.setRollTrim(5);
+        assertEquals(this.vehicle.getChannel(Vehicle.CHANNEL_ROLL), 45);
+        assertEquals(this.vehicle.getActualChannel(Vehicle.CHANNEL_ROLL), 40);
+        assertEquals(this.vehicle.getChannelTrim(Vehicle.CHANNEL_ROLL), 5);
+
+        this.vehicle.setChannel(Vehicle.CHANNEL_THROTTLE, 60);
+        this.vehicle.setChannelInverted(Vehicle.CHANNEL_THROTTLE, true);
+        assertEquals(this.vehicle.getThrottle(), 195);
+        assertTrue(this.vehicle.getThrottleInverted());
+
+        try
+        {
+            this.vehicle.setChannel(this.vehicle.getChannelCount(), 1);
+            fail("Setting a channel which does not exist should throw");
+        }
+        catch (OutOfRange e)
+        {
+            assertSame(e.getMessage(), "Invalid channel");
+        }
+    }
+
     /**
      * Clean up our class
      */
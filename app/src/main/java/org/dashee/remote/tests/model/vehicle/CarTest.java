@@ -29,6 +29,47 @@ public class CarTest
         super.testSetAndGetThrottle();
     }
 
+    /**
+     * Test a car with every channel, the aux channels work like the named 
+     * ones and all of them start in the middle
+     */
+    public void testAuxChannels()
+    {
+        Car car = new Car(Car.MAX_CHANNELS);
+        assertEquals(car.getChannelCount(), 16);
+
+        int[] snapshot = new int[Car.MAX_CHANNELS];
+        assertEquals(car.getSnapshot(snapshot), 16);
+        for (int x = 0; x < 16; ++x)
+            assertEquals(snapshot[x], Car.MID);
+
+        car.setChannel(15, 10);
+        car.setChannelTrim(15, 3);
+        car.setChannelInverted(15, true);
+        assertEquals(car.getChannel(15), 242);
+        car.getSnapshot(snapshot);
+        assertEquals(snapshot[15], 242);
+
+        try
+        {
+            car.setChannel(15, 256);
+            fail("Aux channels have the same range");
+        }
+        catch (OutOfRange e)
+        {
+            assertSame(e.getMessage(), "Invalid range of Aux channel");
+        }
+
+        try
+        {
+            new Car(Car.MAX_CHANNELS + 1);
+            fail("A car can not have more than MAX_CHANNELS");
+        }
+        catch (OutOfRange e)
+        {
+        }
+    }
+
     /**
      * Overwrite the parent values, as throttle is set from 128 to 255
      * for Car type
@@ -0,0 +1,81 @@
+package org.dashee.remote.test.network;
+
+import junit.framework.TestCase;
+import org.dashee.remote.network.Counters;
+
+public class CountersTest
+    extends TestCase
+{
+    /**
+     * The counters under test.
+     */
+    protected Counters counters;
+
+    /**
+     * New instance of our Counters
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.counters = new Counters();
+    }
+
+    /**
+     * Test the send path counts packets, bytes, time and errors
+     */
+    public void testSendCounters()
+    {
+        this.counters.sent(5, 1000);
+        this.counters.sent(15, 3000);
+        this.counters.sendFailed();
+
+        assertEquals(this.counters.getPacketsSent(), 2);
+        assertEquals(this.counters.getBytesSent(), 20);
+        assertEquals(this.counters.getSendNanos(), 4000);
+        assertEquals(this.counters.getSendErrors(), 1);
+    }
+
+    /**
+     * Test the receive path counts datagrams, bytes and errors
+     */
+    public void testReceiveCounters()
+    {
+        this.counters.received(9);
+        this.counters.received(7);
+        this.counters.receiveFailed();
+
+        assertEquals(this.counters.getPacketsReceived(), 2);
+        assertEquals(this.counters.getBytesReceived(), 16);
+        assertEquals(this.counters.getReceiveErrors(), 1);
+    }
+
+    /**
+     * Test the slowest send is kept until it is taken, while another thread
+     * keeps sending
+     */
+    public void testSendMax() throws Exception
+    {
+        this.counters.sent(1, 500);
+        this.counters.sent(1, 200);
+        assertEquals(this.counters.takeSendMax(), 500);
+        assertEquals(this.counters.takeSendMax(), 0);
+
+        Thread sender = new Thread() {
+            public void run()
+            {
+                for (int x = 1; x <= 100000; ++x)
+                    CountersTest.this.counters.sent(1, x);
+            }
+        };
+        sender.start();
+
+        long max = 0;
+        while (sender.isAlive())
+            max = Math.max(max, this.counters.takeSendMax());
+        sender.join();
+        max = Math.max(max, this.counters.takeSendMax());
+
+        assertEquals(max, 100000);
+        assertEquals(this.counters.getPacketsSent(), 100002);
+    }
+}
@@ -0,0 +1,360 @@
+package org.dashee.remote.test.network;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.model.vehicle.Car;
+import org.dashee.remote.network.Decoder;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Packet;
+
+public class PacketTest
+    extends TestCase
+{
+    /**
+     * The vehicle we encode.
+     */
+    protected Vehicle vehicle;
+
+    /**
+     * Buffer to encode to, and the decoder to read it back.
+     */
+    protected byte[] buffer = new byte[64];
+    protected Decoder decoder = new Decoder();
+
+    /**
+     * New instance of our Car variable
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.vehicle = new Car();
+        this.vehicle.setPitch(1);
+        this.vehicle.setRoll(200);
+        this.vehicle.setYaw(3);
+        this.vehicle.setThrottle(255);
+    }
+
+    /**
+     * Test the legacy frame is unchanged
+     */
+    public void testLegacyFrame()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.LEGACY);
+        int length = encoder.encode(this.vehicle, 0, this.buffer);
+
+        assertEquals(length, 5);
+        assertEquals(this.buffer[0], 0);
+        assertEquals(this.buffer[1], 0);
+        assertEquals(this.buffer[2], 0);
+        assertEquals(this.buffer[3] & 0xFF, 200);
+        assertEquals(this.buffer[4] & 0xFF, 255);
+
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(this.decoder.getFormat(), Encoder.Format.LEGACY);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 200);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_THROTTLE), 255);
+    }
+
+    /**
+     * Test a sequenced packet decodes to what was encoded
+     */
+    public void testSequencedRoundTrip()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+
+        for (int x = 0; x < 3; ++x)
+        {
+            int length = encoder.encode(
+                    this.vehicle, 
+                    (5000000L + x) * 1000L, 
+                    this.buffer
+                );
+            assertEquals(length, Packet.HEADER_SIZE + Packet.CHANNEL_COUNT);
+
+            assertTrue(this.decoder.decode(this.buffer, length));
+            assertEquals(this.decoder.getFormat(), Encoder.Format.SEQUENCED);
+            assertEquals(this.decoder.getSequence(), x);
+            assertEquals(this.decoder.getTimestamp(), 5000000L + x);
+            assertEquals(this.decoder.getChannelCount(), 4);
+            assertEquals(this.decoder.getChannel(Packet.CHANNEL_PITCH), 1);
+            assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 200);
+            assertEquals(this.decoder.getChannel(Packet.CHANNEL_YAW), 3);
+            assertEquals(
+                    this.decoder.getChannel(Packet.CHANNEL_THROTTLE), 
+                    255
+                );
+        }
+    }
+
+    /**
+     * Test failsafe packets carry the failsafe values and are flagged, and
+     * the channels come back once failsafe ends
+     */
+    public void testFailsafe()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        this.vehicle.setThrottleFailsafe(Vehicle.MID);
+        this.vehicle.setRollFailsafe(100);
+
+        encoder.setFailsafe(true);
+        int length = encoder.encode(this.vehicle, 0, this.buffer);
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertTrue((this.decoder.getFlags() & Packet.FLAG_FAILSAFE) != 0);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 100);
+        assertEquals(
+                this.decoder.getChannel(Packet.CHANNEL_THROTTLE), 
+                Vehicle.MID
+            );
+        assertEquals(
+                this.decoder.getChannel(Packet.CHANNEL_PITCH), 
+                Vehicle.MID
+            );
+
+        encoder.setFailsafe(false);
+        length = encoder.encode(this.vehicle, 0, this.buffer);
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(this.decoder.getFlags() & Packet.FLAG_FAILSAFE, 0);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 200);
+    }
+
+    /**
+     * Test high resolution channels are bit packed and decode to what was
+     * encoded, along with their earlier frames
+     */
+    public void testHiresRoundTrip()
+    {
+        this.vehicle.setRollHires(0x1234);
+        this.vehicle.setThrottleHires(0xFEDC);
+
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        encoder.setResolution(12);
+        encoder.setRedundancy(1);
+        encoder.encode(this.vehicle, 0, this.buffer);
+
+        this.vehicle.setRollHires(0x4321);
+        int length = encoder.encode(this.vehicle, 0, this.buffer);
+
+        // 4 channels of 12 bits take 6 bytes, the earlier frame a mask and
+        // one 12 bit delta
+        assertEquals(length, Packet.HEADER_SIZE + 1 + 6 + 1 + 1 + 2);
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(this.decoder.getResolution(), 12);
+        assertEquals(
+                this.decoder.getFlags() & Packet.FLAG_HIRES, 
+                Packet.FLAG_HIRES
+            );
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_PITCH), 0x010);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 0x432);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_THROTTLE), 0xFED);
+        assertEquals(
+                this.decoder.getRedundantChannel(1, Packet.CHANNEL_ROLL), 
+                0x123
+            );
+        assertEquals(
+                this.decoder.getRedundantChannel(1, Packet.CHANNEL_THROTTLE), 
+                0xFED
+            );
+
+        // Falling back drops the earlier frames taken at 12 bits
+        encoder.setResolution(Packet.MIN_RESOLUTION);
+        length = encoder.encode(this.vehicle, 0, this.buffer);
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(this.decoder.getResolution(), Packet.MIN_RESOLUTION);
+        assertEquals(this.decoder.getFlags() & Packet.FLAG_HIRES, 0);
+        assertEquals(this.decoder.getRedundantCount(), 0);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 0x43);
+
+        // A resolution the format does not have is refused
+        this.buffer[Packet.OFFSET_FLAGS] |= Packet.FLAG_HIRES;
+        assertFalse(this.decoder.decode(this.buffer, length));
+    }
+
+    /**
+     * Test values are packed across byte boundaries at every resolution
+     */
+    public void testPackedBits()
+    {
+        for (int bits = Packet.MIN_RESOLUTION; bits <= 16; ++bits)
+        {
+            byte[] packed = new byte[Packet.packedSize(9, bits)];
+            for (int x = 0; x < 9; ++x)
+                Packet.putBits(packed, x * bits, 0x5A5A * (x + 1), bits);
+
+            int mask = (1 << bits) - 1;
+            for (int x = 0; x < 9; ++x)
+                assertEquals(
+                        Packet.getBits(packed, x * bits, bits), 
+                        (0x5A5A * (x + 1)) & mask
+                    );
+        }
+    }
+
+    /**
+     * Test aux channels are packed after the named ones
+     */
+    public void testAuxChannels()
+    {
+        Car car = new Car(6);
+        car.setChannel(4, 7);
+        car.setChannel(5, 9);
+
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        encoder.setRedundancy(1);
+        encoder.encode(car, 0, this.buffer);
+        car.setChannel(5, 11);
+        int length = encoder.encode(car, 0, this.buffer);
+
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(this.decoder.getChannelCount(), 6);
+        assertEquals(this.decoder.getChannel(4), 7);
+        assertEquals(this.decoder.getChannel(5), 11);
+        assertEquals(this.decoder.getRedundantChannel(1, 5), 9);
+    }
+
+    /**
+     * Test that broken packets are refused
+     */
+    public void testDecodeRejectsBrokenPackets()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        int length = encoder.encode(this.vehicle, 0, this.buffer);
+
+        assertFalse(this.decoder.decode(this.buffer, Packet.HEADER_SIZE - 1));
+        assertFalse(this.decoder.decode(this.buffer, length - 1));
+
+        this.buffer[Packet.OFFSET_VERSION] = 9;
+        assertFalse(this.decoder.decode(this.buffer, length));
+    }
+
+    /**
+     * Test earlier frames are repeated and decode to what was sent
+     */
+    public void testRedundantFrames()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        encoder.setRedundancy(3);
+
+        int length = 0;
+        for (int x = 0; x < 5; ++x)
+        {
+            this.vehicle.setRoll(100 + x);
+            length = encoder.encode(this.vehicle, 0, this.buffer);
+        }
+
+        // Each earlier frame only differs in roll, one mask and one delta
+        assertEquals(
+                length, 
+                Packet.HEADER_SIZE + Packet.CHANNEL_COUNT + 1 + 3 * 2
+            );
+        assertEquals(encoder.getRedundantBytes(), 1 + 3 + 5 + 7 + 7);
+
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(this.decoder.getFlags(), Packet.FLAG_REDUNDANT);
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 104);
+        assertEquals(this.decoder.getRedundantCount(), 3);
+        for (int k = 1; k <= 3; ++k)
+        {
+            assertEquals(
+                    this.decoder.getRedundantChannel(k, Packet.CHANNEL_ROLL), 
+                    104 - k
+                );
+            assertEquals(
+                    this.decoder.getRedundantChannel(
+                        k, 
+                        Packet.CHANNEL_THROTTLE
+                    ), 
+                    255
+                );
+        }
+
+        // Deltas wrap around modulo 256
+        this.vehicle.setRoll(0);
+        length = encoder.encode(this.vehicle, 0, this.buffer);
+        assertTrue(this.decoder.decode(this.buffer, length));
+        assertEquals(
+                this.decoder.getRedundantChannel(1, Packet.CHANNEL_ROLL), 
+                104
+            );
+
+        assertFalse(this.decoder.decode(this.buffer, length - 1));
+    }
+
+    /**
+     * Test a packet refused for its earlier frames leaves the fields of the
+     * last good packet as they were
+     */
+    public void testRefusedPacketKeepsFields()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        int length = encoder.encode(this.vehicle, 0, this.buffer);
+        assertTrue(this.decoder.decode(this.buffer, length));
+        long sequence = this.decoder.getSequence();
+
+        encoder.setRedundancy(2);
+        this.vehicle.setRoll(10);
+        encoder.encode(this.vehicle, 0, this.buffer);
+        this.vehicle.setRoll(20);
+        length = encoder.encode(this.vehicle, 0, this.buffer);
+
+        // Cut into the last earlier frame, the channels are all there
+        assertFalse(this.decoder.decode(this.buffer, length - 1));
+        assertEquals(this.decoder.getChannel(Packet.CHANNEL_ROLL), 200);
+        assertEquals(this.decoder.getSequence(), sequence);
+        assertEquals(this.decoder.getFlags(), 0);
+        assertEquals(this.decoder.getRedundantCount(), 0);
+    }
+
+    /**
+     * Test lost packets are counted as recovered when a later one repeats
+     * them, and as lost otherwise
+     */
+    public void testRecoveryCounters()
+    {
+        Encoder encoder = Encoder.create(Encoder.Format.SEQUENCED);
+        encoder.setRedundancy(2);
+
+        byte[][] packets = new byte[10][64];
+        int[] lengths = new int[10];
+        for (int x = 0; x < 10; ++x)
+            lengths[x] = encoder.encode(this.vehicle, 0, packets[x]);
+
+        // Lose 1, then 3-5, then 6 arrives late
+        int[] arrivals = { 0, 2, 6, 7, 8, 9, 5 };
+        for (int x = 0; x < arrivals.length; ++x)
+        {
+            int p = arrivals[x];
+            assertTrue(this.decoder.decode(packets[p], lengths[p]));
+        }
+
+        assertEquals(this.decoder.getRecovered(), 3);
+        assertEquals(this.decoder.getLost(), 1);
+        assertEquals(this.decoder.getStale(), 1);
+
+        try
+        {
+            encoder.setRedundancy(Encoder.MAX_REDUNDANCY + 1);
+            fail("Redundancy above the limit should throw");
+        }
+        catch (org.dashee.remote.exception.OutOfRange e)
+        {
+        }
+    }
+
+    /**
+     * Test sequence comparison across the wrap around
+     */
+    public void testSequenceOrdering()
+    {
+        assertTrue(Packet.isNewer(2, 1));
+        assertFalse(Packet.isNewer(1, 2));
+        assertFalse(Packet.isNewer(5, 5));
+        assertTrue(Packet.isNewer(0, 0xFFFFFFFFL));
+        assertFalse(Packet.isNewer(0xFFFFFFFFL, 0));
+
+        byte[] b = new byte[4];
+        Packet.putInt(b, 0, 0xFFFFFFFFL);
+        assertEquals(Packet.getInt(b, 0), 0xFFFFFFFFL);
+        Packet.putInt(b, 0, 0x01020304L);
+        assertEquals(Packet.getInt(b, 0), 0x01020304L);
+    }
+}
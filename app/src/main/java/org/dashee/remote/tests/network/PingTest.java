@@ -0,0 +1,168 @@
+package org.dashee.remote.test.network;
+
+import junit.framework.TestCase;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.network.Ping;
+
+public class PingTest
+    extends TestCase
+{
+    /**
+     * One millisecond in nanoseconds.
+     */
+    protected static final long MS = 1000000L;
+
+    /**
+     * The ping under test, and a buffer for the ping and its reply.
+     */
+    protected Ping ping;
+    protected byte[] buffer = new byte[Packet.PING_SIZE];
+
+    /**
+     * New instance of our Ping
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.ping = new Ping();
+    }
+
+    /**
+     * Send a ping at the given time and turn it into the server's reply.
+     *
+     * @param time The send time in nanoseconds
+     *
+     * @return The reply
+     */
+    protected byte[] pingAt(long time)
+    {
+        byte[] reply = new byte[Packet.PING_SIZE];
+        assertEquals(this.ping.encode(time, reply), Packet.PING_SIZE);
+        assertEquals(reply[0], Packet.PING);
+        reply[0] = Packet.PONG;
+        return reply;
+    }
+
+    /**
+     * Test a reply is matched to its ping and timed
+     */
+    public void testReplyIsMatched()
+    {
+        byte[] reply = this.pingAt(100 * MS);
+
+        assertTrue(this.ping.decode(reply, reply.length, 120 * MS));
+        assertEquals(this.ping.getLast(), 20 * MS);
+        assertEquals(this.ping.getMin(), 20 * MS);
+        assertEquals(this.ping.getMean(), 20 * MS);
+        assertEquals(this.ping.getPings(), 1);
+        assertEquals(this.ping.getReplies(), 1);
+    }
+
+    /**
+     * Test replies are matched by id, even when they arrive out of order
+     */
+    public void testRepliesOutOfOrder()
+    {
+        byte[] first = this.pingAt(0);
+        byte[] second = this.pingAt(10 * MS);
+
+        assertTrue(this.ping.decode(second, second.length, 15 * MS));
+        assertEquals(this.ping.getLast(), 5 * MS);
+        assertTrue(this.ping.decode(first, first.length, 30 * MS));
+        assertEquals(this.ping.getLast(), 30 * MS);
+        assertEquals(this.ping.getMin(), 5 * MS);
+    }
+
+    /**
+     * Test duplicate, unknown and stale replies are ignored
+     */
+    public void testInvalidRepliesAreIgnored()
+    {
+        byte[] reply = this.pingAt(0);
+        assertTrue(this.ping.decode(reply, reply.length, MS));
+        assertFalse(this.ping.decode(reply, reply.length, 2 * MS));
+
+        // Not a reply at all
+        reply = this.pingAt(0);
+        reply[0] = Packet.PING;
+        assertFalse(this.ping.decode(reply, reply.length, MS));
+        reply[0] = Packet.PONG;
+        assertFalse(this.ping.decode(reply, 4, MS));
+
+        // The slot was reused by a newer ping
+        byte[] stale = this.pingAt(0);
+        for (int x = 0; x < Ping.SLOTS; x++)
+            this.pingAt(0);
+        assertFalse(this.ping.decode(stale, stale.length, MS));
+
+        assertEquals(this.ping.getReplies(), 1);
+    }
+
+    /**
+     * Test replies tell us the resolution the server takes, and older 
+     * replies or values we do not know fall back to the lowest
+     */
+    public void testResolution()
+    {
+        assertEquals(this.ping.getResolution(), Packet.MIN_RESOLUTION);
+
+        byte[] reply = new byte[Packet.PING_SIZE + 1];
+        System.arraycopy(this.pingAt(0), 0, reply, 0, Packet.PING_SIZE);
+        reply[Packet.OFFSET_PING_RESOLUTION] = 12;
+        assertTrue(this.ping.decode(reply, reply.length, MS));
+        assertEquals(this.ping.getResolution(), 12);
+
+        System.arraycopy(this.pingAt(0), 0, reply, 0, Packet.PING_SIZE);
+        reply[Packet.OFFSET_PING_RESOLUTION] = 40;
+        assertTrue(this.ping.decode(reply, reply.length, MS));
+        assertEquals(this.ping.getResolution(), Packet.MIN_RESOLUTION);
+
+        System.arraycopy(this.pingAt(0), 0, reply, 0, Packet.PING_SIZE);
+        reply[Packet.OFFSET_PING_RESOLUTION] = 16;
+        assertTrue(this.ping.decode(reply, reply.length, MS));
+        this.ping.reset();
+        assertEquals(this.ping.getResolution(), Packet.MIN_RESOLUTION);
+
+        reply = this.pingAt(0);
+        assertTrue(this.ping.decode(reply, reply.length, MS));
+        assertEquals(this.ping.getResolution(), Packet.MIN_RESOLUTION);
+    }
+
+    /**
+     * Test the mean and jitter follow the round trips
+     */
+    public void testMeanAndJitter()
+    {
+        long time = 0;
+        for (int x = 0; x < 64; x++)
+        {
+            byte[] reply = this.pingAt(time);
+            long rtt = (x % 2 == 0) ? 10 * MS : 30 * MS;
+            assertTrue(this.ping.decode(reply, reply.length, time + rtt));
+            time += 250 * MS;
+        }
+
+        assertEquals(this.ping.getMin(), 10 * MS);
+        assertTrue(this.ping.getMean() > 15 * MS);
+        assertTrue(this.ping.getMean() < 25 * MS);
+        assertTrue(this.ping.getJitter() > 15 * MS);
+        assertTrue(this.ping.getJitter() <= 20 * MS);
+    }
+
+    /**
+     * Test the server is alive only while it keeps answering
+     */
+    public void testIsAlive()
+    {
+        assertFalse(this.ping.isAlive(0));
+
+        byte[] reply = this.pingAt(0);
+        this.ping.decode(reply, reply.length, 10 * MS);
+        assertTrue(this.ping.isAlive(500 * MS));
+        assertFalse(this.ping.isAlive((Ping.TIMEOUT + 10) * MS));
+
+        this.ping.reset();
+        assertFalse(this.ping.isAlive(20 * MS));
+        assertEquals(this.ping.getMean(), -1);
+    }
+}
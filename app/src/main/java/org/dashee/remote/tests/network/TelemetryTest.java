@@ -0,0 +1,83 @@
+package org.dashee.remote.test.network;
+
+import junit.framework.TestCase;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.network.Telemetry;
+
+public class TelemetryTest
+    extends TestCase
+{
+    /**
+     * One millisecond in nanoseconds.
+     */
+    protected static final long MS = 1000000L;
+
+    /**
+     * The telemetry under test, and a frame from the server.
+     */
+    protected Telemetry telemetry;
+    protected byte[] buffer = new byte[Packet.TELEMETRY_SIZE];
+
+    /**
+     * New instance of our Telemetry, and a frame of 7.4V at 80%, 12.5km/h
+     * and -60dBm
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.telemetry = new Telemetry();
+
+        this.buffer[0] = Packet.TELEMETRY;
+        Packet.putShort(this.buffer, Packet.OFFSET_TELEMETRY_VOLTAGE, 7400);
+        this.buffer[Packet.OFFSET_TELEMETRY_BATTERY] = 80;
+        Packet.putShort(this.buffer, Packet.OFFSET_TELEMETRY_SPEED, 125);
+        this.buffer[Packet.OFFSET_TELEMETRY_SIGNAL] = (byte)-60;
+    }
+
+    /**
+     * Test a frame is read into its values
+     */
+    public void testDecode()
+    {
+        assertFalse(this.telemetry.isFresh(0));
+        assertTrue(this.telemetry.decode(this.buffer, this.buffer.length, 0));
+
+        assertEquals(this.telemetry.getVoltage(), 7400);
+        assertEquals(this.telemetry.getBattery(), 80);
+        assertEquals(this.telemetry.getSpeed(), 125);
+        assertEquals(this.telemetry.getSignal(), -60);
+        assertEquals(this.telemetry.getFrames(), 1);
+    }
+
+    /**
+     * Test other datagrams and short frames are refused, and the battery is
+     * capped at 100%
+     */
+    public void testDecodeRejectsBrokenFrames()
+    {
+        assertFalse(this.telemetry.decode(this.buffer, 6, 0));
+
+        this.buffer[0] = Packet.PONG;
+        assertFalse(this.telemetry.decode(this.buffer, 7, 0));
+        assertEquals(this.telemetry.getFrames(), 0);
+
+        this.buffer[0] = Packet.TELEMETRY;
+        this.buffer[Packet.OFFSET_TELEMETRY_BATTERY] = (byte)200;
+        assertTrue(this.telemetry.decode(this.buffer, 7, 0));
+        assertEquals(this.telemetry.getBattery(), 100);
+    }
+
+    /**
+     * Test the values go stale without new frames
+     */
+    public void testIsFresh()
+    {
+        this.telemetry.decode(this.buffer, this.buffer.length, 10 * MS);
+        assertTrue(this.telemetry.isFresh(500 * MS));
+        assertFalse(this.telemetry.isFresh((Telemetry.TIMEOUT + 10) * MS));
+
+        this.telemetry.reset();
+        assertFalse(this.telemetry.isFresh(20 * MS));
+        assertEquals(this.telemetry.getBattery(), 0);
+    }
+}
@@ -0,0 +1,120 @@
+package org.dashee.remote.test.network;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import junit.framework.TestCase;
+import org.dashee.remote.network.Transport;
+
+public class TransportTest
+    extends TestCase
+{
+    /**
+     * A server listening on the loopback interface.
+     */
+    protected DatagramChannel server;
+
+    /**
+     * Bind our server to any free port
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.server = DatagramChannel.open();
+        this.server.socket().bind(
+                new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0)
+            );
+    }
+
+    /**
+     * Send a datagram over the given transport and make sure it arrives
+     *
+     * @return The address the datagram came from
+     */
+    protected SocketAddress assertSends(Transport transport) throws Exception
+    {
+        transport.connect(
+                InetAddress.getByName("127.0.0.1"), 
+                this.server.socket().getLocalPort()
+            );
+
+        byte[] data = { 0, 0, 0, 10, 20, 99 };
+        transport.send(data, 5);
+
+        ByteBuffer received = ByteBuffer.allocate(16);
+        SocketAddress from = this.server.receive(received);
+        received.flip();
+
+        assertEquals(received.remaining(), 5);
+        assertEquals(received.get(3), 10);
+        assertEquals(received.get(4), 20);
+
+        return from;
+    }
+
+    /**
+     * Test sending over the plain socket
+     */
+    public void testSocketSends() throws Exception
+    {
+        Transport transport = Transport.create(Transport.Type.SOCKET);
+        assertEquals(transport.getType(), Transport.Type.SOCKET);
+        assertFalse(transport.canReceive());
+        this.assertSends(transport);
+        transport.close();
+    }
+
+    /**
+     * Test sending and receiving over the connected channel
+     */
+    public void testChannelSendsAndReceives() throws Exception
+    {
+        Transport transport = Transport.create(Transport.Type.CHANNEL);
+        assertEquals(transport.getType(), Transport.Type.CHANNEL);
+        assertTrue(transport.canReceive());
+
+        byte[] reply = new byte[Transport.MAX_PACKET_SIZE];
+        assertEquals(transport.receive(reply), 0);
+
+        SocketAddress from = this.assertSends(transport);
+        assertTrue(
+                transport.isConnectedTo(
+                    InetAddress.getByName("127.0.0.1"),
+                    this.server.socket().getLocalPort()
+                )
+            );
+
+        // Nothing is waiting, so receive must not block
+        assertEquals(transport.receive(reply), 0);
+
+        // Reply from the server to our channel
+        ByteBuffer pong = ByteBuffer.allocate(2);
+        pong.put((byte)7).put((byte)8).flip();
+        this.server.send(pong, from);
+
+        int length = 0;
+        for (int x = 0; x < 100 && length == 0; ++x)
+        {
+            length = transport.receive(reply);
+            Thread.sleep(1);
+        }
+
+        assertEquals(length, 2);
+        assertEquals(reply[0], 7);
+        assertEquals(reply[1], 8);
+
+        transport.close();
+    }
+
+    /**
+     * Close our server
+     */
+    public void tearDown() throws Exception
+    {
+        this.server.close();
+        super.tearDown();
+    }
+}
@@ -0,0 +1,142 @@
+package org.dashee.remote.test.thread;
+
+import junit.framework.TestCase;
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.network.Ping;
+import org.dashee.remote.thread.RateControl;
+
+public class RateControlTest
+    extends TestCase
+{
+    /**
+     * One millisecond in nanoseconds.
+     */
+    protected static final long MS = 1000000L;
+
+    /**
+     * The ping tracker feeding the rate control, and the time of our fake 
+     * clock.
+     */
+    protected Ping ping;
+    protected RateControl rate;
+    protected long time;
+
+    /**
+     * Start at a 30ms period between 10-100ms
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.time = 0;
+        this.ping = new Ping();
+        this.rate = new RateControl(this.ping, 30, this.time);
+        this.rate.setBounds(10, 100);
+    }
+
+    /**
+     * Ping every 250ms for a whole window, and end the window.
+     *
+     * @param rtt The round trip of every reply in milliseconds
+     * @param lost Every how many pings one goes unanswered, 0 for none
+     *
+     * @return true if the period changed
+     */
+    protected boolean window(long rtt, int lost)
+    {
+        byte[] buffer = new byte[Packet.PING_SIZE];
+        for (int x = 1; x <= RateControl.WINDOW / Ping.PERIOD; x++)
+        {
+            this.ping.encode(this.time, buffer);
+            buffer[0] = Packet.PONG;
+            if (lost == 0 || x % lost != 0)
+                this.ping.decode(buffer, buffer.length, this.time + rtt * MS);
+
+            this.time += Ping.PERIOD * MS;
+        }
+
+        return this.rate.update(this.time);
+    }
+
+    /**
+     * Test nothing changes before the window is over, or without pings
+     */
+    public void testNoChangeWithoutWindow()
+    {
+        assertFalse(this.rate.update(this.time + MS));
+        assertFalse(this.rate.update(this.time + RateControl.WINDOW * MS));
+        assertEquals(this.rate.getPeriod(), 30);
+        assertEquals(this.rate.getReason(), RateControl.Reason.NONE);
+    }
+
+    /**
+     * Test a clear link shortens the period down to the lower bound
+     */
+    public void testClearLinkSpeedsUp()
+    {
+        assertTrue(this.window(5, 0));
+        assertEquals(this.rate.getPeriod(), 27);
+        assertEquals(this.rate.getReason(), RateControl.Reason.CLEAR);
+
+        for (int x = 0; x < 50; x++)
+            this.window(5, 0);
+
+        assertEquals(this.rate.getPeriod(), 10);
+        assertFalse(this.window(5, 0));
+    }
+
+    /**
+     * Test loss backs off the period up to the upper bound
+     */
+    public void testLossBacksOff()
+    {
+        assertTrue(this.window(5, 2));
+        assertEquals(this.rate.getPeriod(), 45);
+        assertEquals(this.rate.getReason(), RateControl.Reason.LOSS);
+
+        for (int x = 0; x < 10; x++)
+            this.window(5, 2);
+
+        assertEquals(this.rate.getPeriod(), 100);
+    }
+
+    /**
+     * Test a growing round trip backs off the period
+     */
+    public void testLatencyBacksOff()
+    {
+        this.window(5, 0);
+        int period = this.rate.getPeriod();
+
+        this.window(200, 0);
+        assertEquals(this.rate.getReason(), RateControl.Reason.LATENCY);
+        assertTrue(this.rate.getPeriod() > period);
+    }
+
+    /**
+     * Test the bounds are validated, and pull the period inside them
+     */
+    public void testBounds()
+    {
+        this.rate.setBounds(40, 50);
+        assertEquals(this.rate.getPeriod(), 40);
+
+        try
+        {
+            this.rate.setBounds(50, 40);
+            fail("Min above max should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+
+        try
+        {
+            this.rate.setBounds(1, 40);
+            fail("Min below the scheduler limit should throw");
+        }
+        catch (OutOfRange e)
+        {
+        }
+    }
+}
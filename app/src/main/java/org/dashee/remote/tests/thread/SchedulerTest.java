@@ -0,0 +1,145 @@
+package org.dashee.remote.test.thread;
+
+import junit.framework.TestCase;
+import org.dashee.remote.thread.Scheduler;
+import org.dashee.remote.exception.OutOfRange;
+
+public class SchedulerTest
+    extends TestCase
+{
+    /**
+     * A scheduler which runs on a clock we control. Sleeping moves the clock
+     * forward by the time asked for, plus any lateness we inject.
+     */
+    protected class FakeScheduler
+        extends Scheduler
+    {
+        public long time = 0;
+        public long late = 0;
+
+        public FakeScheduler(int period, Scheduler.Policy policy)
+        {
+            super(period, policy);
+        }
+
+        protected long now()
+        {
+            return this.time;
+        }
+
+        protected void sleep(long nanos)
+        {
+            this.time += nanos + this.late;
+            this.late = 0;
+        }
+    }
+
+    /**
+     * Test that ticks land on fixed deadlines
+     */
+    public void testTicksOnFixedRate() throws Exception
+    {
+        FakeScheduler s = new FakeScheduler(30, Scheduler.Policy.SKIP);
+
+        for (int x = 0; x < 10; ++x)
+        {
+            s.await();
+            assertEquals(s.time, x * 30000000L);
+
+            // Work done inside a tick does not drift the next deadline
+            s.time += 5000000L;
+        }
+
+        assertEquals(s.getMissedDeadlines(), 0);
+    }
+
+    /**
+     * Test that skipping lines up with the next deadline in the future
+     */
+    public void testSkipMissedDeadlines() throws Exception
+    {
+        FakeScheduler s = new FakeScheduler(30, Scheduler.Policy.SKIP);
+        s.await();
+
+        // Wake up 2.5 periods late
+        s.late = 75000000L;
+        s.await();
+        assertEquals(s.time, 105000000L);
+        assertEquals(s.getMissedDeadlines(), 2);
+
+        s.await();
+        assertEquals(s.time, 120000000L);
+        assertEquals(s.getMissedDeadlines(), 2);
+    }
+
+    /**
+     * Test that catching up fires the missed ticks back to back
+     */
+    public void testCatchUpMissedDeadlines() throws Exception
+    {
+        FakeScheduler s = new FakeScheduler(30, Scheduler.Policy.CATCH_UP);
+        s.await();
+
+        s.late = 75000000L;
+        s.await();
+        assertEquals(s.time, 105000000L);
+
+        // The two missed deadlines are already due
+        s.await();
+        assertEquals(s.time, 105000000L);
+        s.await();
+        assertEquals(s.time, 105000000L);
+        assertEquals(s.getMissedDeadlines(), 2);
+
+        // Back on schedule
+        s.await();
+        assertEquals(s.time, 120000000L);
+        assertEquals(s.getMissedDeadlines(), 2);
+    }
+
+    /**
+     * Test waking ticks straight away, and the deadlines after it stay
+     * where they were
+     */
+    public void testWake() throws Exception
+    {
+        FakeScheduler s = new FakeScheduler(30, Scheduler.Policy.SKIP);
+        s.await();
+
+        s.time += 10000000L;
+        s.wake();
+        s.await();
+        assertEquals(s.time, 10000000L);
+
+        s.await();
+        assertEquals(s.time, 30000000L);
+        s.await();
+        assertEquals(s.time, 60000000L);
+        assertEquals(s.getMissedDeadlines(), 0);
+    }
+
+    /**
+     * Test changing the period at runtime
+     */
+    public void testSetPeriod() throws Exception
+    {
+        FakeScheduler s = new FakeScheduler(30, Scheduler.Policy.SKIP);
+        s.await();
+        s.setPeriod(10);
+        assertEquals(s.getPeriod(), 10);
+        s.await();
+        assertEquals(s.time, 30000000L);
+        s.await();
+        assertEquals(s.time, 40000000L);
+
+        try
+        {
+            s.setPeriod(Scheduler.MIN_PERIOD - 1);
+            fail("Period less than the min is invalid");
+        }
+        catch (OutOfRange e)
+        {
+            assertEquals(s.getPeriod(), 10);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.dashee.remote.test.thread;
+
+import junit.framework.TestCase;
+import org.dashee.remote.thread.Trigger;
+import org.dashee.remote.exception.OutOfRange;
+
+public class TriggerTest
+    extends TestCase
+{
+    /**
+     * A trigger which runs on a clock we control. Parking moves the clock
+     * forward by the full time asked for, unless a signal is scheduled to
+     * arrive sooner.
+     */
+    protected class FakeTrigger
+        extends Trigger
+    {
+        public long time = 0;
+        public long signalAt = -1;
+
+        public FakeTrigger(int gap, int heartbeat)
+        {
+            super(gap, heartbeat);
+        }
+
+        protected long now()
+        {
+            return this.time;
+        }
+
+        protected void park(long nanos)
+        {
+            if (this.signalAt >= 0 && this.signalAt < this.time + nanos)
+            {
+                this.time = Math.max(this.time, this.signalAt);
+                this.signalAt = -1;
+                this.signal();
+            }
+            else
+                this.time += nanos;
+        }
+    }
+
+    /**
+     * Test that the first call returns straight away
+     */
+    public void testFirstAwaitIsImmediate() throws Exception
+    {
+        FakeTrigger t = new FakeTrigger(10, 250);
+        t.await();
+        assertEquals(t.time, 0);
+    }
+
+    /**
+     * Test that without changes we only wake up for the heartbeat
+     */
+    public void testHeartbeatWhenNothingChanges() throws Exception
+    {
+        FakeTrigger t = new FakeTrigger(10, 250);
+        t.await();
+
+        t.await();
+        assertEquals(t.time, 250000000L);
+        t.await();
+        assertEquals(t.time, 500000000L);
+        assertEquals(t.getHeartbeats(), 2);
+    }
+
+    /**
+     * Test that a change wakes us up as soon as it is signalled
+     */
+    public void testChangeIsSentImmediately() throws Exception
+    {
+        FakeTrigger t = new FakeTrigger(10, 250);
+        t.await();
+
+        t.signalAt = 42000000L;
+        t.await();
+        assertEquals(t.time, 42000000L);
+        assertEquals(t.getHeartbeats(), 0);
+    }
+
+    /**
+     * Test that changes closer than the gap are held back until it passes
+     */
+    public void testChangesRespectTheGap() throws Exception
+    {
+        FakeTrigger t = new FakeTrigger(10, 250);
+        t.await();
+
+        t.time = 3000000L;
+        t.signal();
+        t.await();
+        assertEquals(t.time, 10000000L);
+
+        // Several changes inside one gap go out as a single wake up
+        t.signal();
+        t.signal();
+        t.await();
+        assertEquals(t.time, 20000000L);
+
+        t.await();
+        assertEquals(t.time, 270000000L);
+        assertEquals(t.getHeartbeats(), 1);
+    }
+
+    /**
+     * Test the limits of the settings
+     */
+    public void testInvalidSettings()
+    {
+        FakeTrigger t = new FakeTrigger(10, 250);
+
+        try
+        {
+            t.setGap(-1);
+            fail("A negative gap is invalid");
+        }
+        catch (OutOfRange e)
+        {
+            assertEquals(t.getGap(), 10);
+        }
+
+        try
+        {
+            t.setHeartbeat(Trigger.MAX_HEARTBEAT + 1);
+            fail("Heartbeat more than the max is invalid");
+        }
+        catch (OutOfRange e)
+        {
+            assertEquals(t.getHeartbeat(), 250);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.dashee.remote.test.thread;
+
+import junit.framework.TestCase;
+import org.dashee.remote.model.vehicle.Car;
+import org.dashee.remote.thread.Watchdog;
+import org.dashee.remote.exception.OutOfRange;
+
+public class WatchdogTest
+    extends TestCase
+{
+    /**
+     * A millisecond in nanoseconds.
+     */
+    protected static final long MS = 1000000L;
+
+    /**
+     * The watchdog under test, driven by the times we pass to check().
+     */
+    protected Watchdog watchdog;
+
+    /**
+     * Number of times the listener was told about a stall.
+     */
+    protected int stalls = 0;
+
+    /**
+     * New watchdog with a 100ms timeout, counting the stalls it reports
+     */
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        this.watchdog = new Watchdog(new Car(), 100);
+        this.watchdog.reset(0);
+        this.watchdog.setOnStallListener(
+                new Watchdog.OnStallListener()
+                {
+                    public void onStall(Watchdog watchdog)
+                    {
+                        WatchdogTest.this.stalls++;
+                    }
+                }
+            );
+    }
+
+    /**
+     * Test the input stalls once the timeout has passed, the listener is
+     * told once, and the stall ends when input comes back
+     */
+    public void testStall()
+    {
+        assertEquals(this.watchdog.check(0, 40 * MS), 60 * MS);
+        assertFalse(this.watchdog.isStalled());
+
+        assertEquals(this.watchdog.check(0, 100 * MS), Watchdog.POLL);
+        assertTrue(this.watchdog.isStalled());
+        assertEquals(this.watchdog.getDeadline(), 100 * MS);
+        assertEquals(this.stalls, 1);
+
+        this.watchdog.check(0, 110 * MS);
+        assertTrue(this.watchdog.isStalled());
+        assertEquals(this.stalls, 1);
+        assertEquals(this.watchdog.getStalls(), 1);
+
+        assertEquals(this.watchdog.check(115 * MS, 120 * MS), 95 * MS);
+        assertFalse(this.watchdog.isStalled());
+    }
+
+    /**
+     * Test the latency is how late the stall was caught
+     */
+    public void testLatency()
+    {
+        this.watchdog.check(0, 130 * MS);
+        assertEquals(this.watchdog.getLatency(), 30 * MS);
+
+        this.watchdog.check(200 * MS, 201 * MS);
+        this.watchdog.check(200 * MS, 305 * MS);
+        assertEquals(this.watchdog.getLatency(), 5 * MS);
+        assertEquals(this.watchdog.getMaxLatency(), 30 * MS);
+        assertEquals(this.stalls, 2);
+    }
+
+    /**
+     * Test input from before a reset does not count, the input has a whole
+     * timeout to arrive after it
+     */
+    public void testReset()
+    {
+        this.watchdog.reset(1000 * MS);
+        assertEquals(this.watchdog.check(0, 1050 * MS), 50 * MS);
+        assertFalse(this.watchdog.isStalled());
+
+        this.watchdog.check(0, 1100 * MS);
+        assertTrue(this.watchdog.isStalled());
+        assertEquals(this.watchdog.getLatency(), 0);
+    }
+
+    /**
+     * Test a timeout of 0 never stalls
+     */
+    public void testOff()
+    {
+        this.watchdog.setTimeout(0);
+        assertEquals(this.watchdog.getTimeout(), 0);
+
+        this.watchdog.check(0, 100000 * MS);
+        assertFalse(this.watchdog.isStalled());
+        assertEquals(this.stalls, 0);
+    }
+
+    /**
+     * Test timeouts out of range are refused
+     */
+    public void testInvalidTimeout()
+    {
+        int[] invalid = {
+            -1,
+            Watchdog.MIN_TIMEOUT - 1,
+            Watchdog.MAX_TIMEOUT + 1
+        };
+
+        for (int x = 0; x < invalid.length; ++x)
+        {
+            try
+            {
+                this.watchdog.setTimeout(invalid[x]);
+                fail("Timeout " + invalid[x] + " should throw");
+            }
+            catch (OutOfRange e)
+            {
+            }
+        }
+
+        assertEquals(this.watchdog.getTimeout(), 100);
+    }
+}
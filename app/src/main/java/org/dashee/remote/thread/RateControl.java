@@ -0,0 +1,243 @@
+package org.dashee.remote.thread;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.network.Ping;
+
+/**
+ * Adapts the send period of the control loop to the state of the link.
+ *
+ * Once every WINDOW the pings sent and answered since the last decision are
+ * compared. When too many went unanswered, or the mean round trip has grown
+ * well past the smallest one seen, packets are queueing somewhere and the
+ * period is backed off by half. Otherwise the link is clear and the period
+ * is shortened by a tenth, so we only go as fast as the link allows.
+ *
+ * The period always stays between the bounds. Nothing changes while no
+ * pings are sent, such as with the legacy packet format. Only the control
+ * loop calls update(), the getters can be read from any thread.
+ */
+public class RateControl
+{
+    /**
+     * Why the period last changed. NONE until the first change.
+     */
+    public enum Reason {
+        NONE,
+        LOSS,
+        LATENCY,
+        CLEAR
+    };
+
+    /**
+     * Time between two decisions in milliseconds.
+     */
+    public static final int WINDOW = 2000;
+
+    /**
+     * Percentage of unanswered pings in a window which counts as loss. Leaves
+     * room for the ping still in flight when the window closes.
+     */
+    public static final int LOSS_PERCENT = 20;
+
+    /**
+     * How far the mean round trip may grow past twice the smallest one
+     * before it counts as queueing, in milliseconds.
+     */
+    public static final int LATENCY_MARGIN = 10;
+
+    /**
+     * The round trips and loss we decide on.
+     */
+    private final Ping ping;
+
+    /**
+     * The current period, and its bounds, in milliseconds.
+     */
+    private volatile int period;
+    private volatile int min = Scheduler.MIN_PERIOD;
+    private volatile int max = Scheduler.MAX_PERIOD;
+
+    /**
+     * Why the period last changed, and how many times it has.
+     */
+    private volatile Reason reason = Reason.NONE;
+    private volatile long changes = 0;
+
+    /**
+     * When the current window started, and the ping counts at that time.
+     */
+    private long windowStart;
+    private long windowPings;
+    private long windowReplies;
+
+    /**
+     * Create a rate control.
+     *
+     * @param ping The ping tracker to read the link state from
+     * @param period The starting period in milliseconds
+     * @param time The time now in nanoseconds
+     */
+    public RateControl(Ping ping, int period, long time)
+    {
+        this.ping = ping;
+        this.setPeriod(period);
+        this.reset(time);
+    }
+
+    /**
+     * Set the period, used when it is not adapted.
+     *
+     * @param period The period in milliseconds
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public void setPeriod(int period)
+    {
+        if (period < Scheduler.MIN_PERIOD || period > Scheduler.MAX_PERIOD)
+            throw new OutOfRange(
+                    "Period value must be between " + Scheduler.MIN_PERIOD +
+                    "-" + Scheduler.MAX_PERIOD
+                );
+
+        this.period = period;
+    }
+
+    /**
+     * Get the current period.
+     *
+     * @return The period in milliseconds
+     */
+    public int getPeriod()
+    {
+        return this.period;
+    }
+
+    /**
+     * Set the bounds of the period, pulling the period inside them.
+     *
+     * @param min The shortest period in milliseconds
+     * @param max The longest period in milliseconds
+     *
+     * @throws OutOfRange if the bounds are not valid
+     */
+    public void setBounds(int min, int max)
+    {
+        if (
+                min < Scheduler.MIN_PERIOD ||
+                max > Scheduler.MAX_PERIOD ||
+                min > max
+            )
+            throw new OutOfRange(
+                    "Bounds must be between " + Scheduler.MIN_PERIOD + "-" +
+                    Scheduler.MAX_PERIOD + " and min must not exceed max"
+                );
+
+        this.min = min;
+        this.max = max;
+        this.period = Math.min(Math.max(this.period, min), max);
+    }
+
+    /**
+     * Get the shortest period allowed.
+     *
+     * @return The period in milliseconds
+     */
+    public int getMin()
+    {
+        return this.min;
+    }
+
+    /**
+     * Get the longest period allowed.
+     *
+     * @return The period in milliseconds
+     */
+    public int getMax()
+    {
+        return this.max;
+    }
+
+    /**
+     * Get why the period last changed.
+     *
+     * @return The reason
+     */
+    public Reason getReason()
+    {
+        return this.reason;
+    }
+
+    /**
+     * Get the number of times the period has changed.
+     *
+     * @return The change count
+     */
+    public long getChanges()
+    {
+        return this.changes;
+    }
+
+    /**
+     * Start a new window from now, forgetting what the current one has seen.
+     *
+     * @param time The time now in nanoseconds
+     */
+    public void reset(long time)
+    {
+        this.windowStart = time;
+        this.windowPings = this.ping.getPings();
+        this.windowReplies = this.ping.getReplies();
+    }
+
+    /**
+     * Decide on a new period when the window is over.
+     *
+     * @param time The time now in nanoseconds
+     *
+     * @return true if the period changed
+     */
+    public boolean update(long time)
+    {
+        if (time - this.windowStart < WINDOW * 1000000L)
+            return false;
+
+        long pings = this.ping.getPings() - this.windowPings;
+        long replies = this.ping.getReplies() - this.windowReplies;
+        this.reset(time);
+
+        // Nothing to go on, or the ping tracker was reset under us
+        if (pings <= 0 || replies < 0)
+            return false;
+
+        long lost = Math.max(pings - replies, 0);
+        long margin = LATENCY_MARGIN * 1000000L;
+
+        int period = this.period;
+        Reason reason;
+        if (lost * 100 >= pings * LOSS_PERCENT)
+        {
+            reason = Reason.LOSS;
+            period += Math.max(period / 2, 1);
+        }
+        else if (this.ping.getMean() > this.ping.getMin() * 2 + margin)
+        {
+            reason = Reason.LATENCY;
+            period += Math.max(period / 2, 1);
+        }
+        else
+        {
+            reason = Reason.CLEAR;
+            period -= Math.max(period / 10, 1);
+        }
+
+        period = Math.min(Math.max(period, this.min), this.max);
+        if (period == this.period)
+            return false;
+
+        this.period = period;
+        this.reason = reason;
+        this.changes++;
+
+        return true;
+    }
+}
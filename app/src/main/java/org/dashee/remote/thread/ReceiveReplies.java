@@ -0,0 +1,264 @@
+package org.dashee.remote.thread;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.IOException;
+
+import org.dashee.remote.fragment.Hud;
+import org.dashee.remote.network.Counters;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.network.Ping;
+import org.dashee.remote.network.Telemetry;
+import org.dashee.remote.network.Transport;
+
+/**
+ * Thread to receive replies from the server.
+ *
+ * Waits on the transport used by SendCommands, so the control loop never 
+ * blocks on the network. Replies to our pings are timed as soon as they 
+ * arrive, and the connection status on the HUD follows whether the server
+ * is still answering. Telemetry is parsed as it arrives, but shown on the 
+ * HUD at most once every DISPLAY_PERIOD.
+ */
+public class ReceiveReplies extends Thread
+{
+    /**
+     * The longest time to wait for a datagram, in milliseconds. This is also
+     * how quickly a lost connection shows on the HUD.
+     */
+    static final int POLL_TIMEOUT = 100;
+
+    /**
+     * The shortest time between two telemetry updates of the HUD, in 
+     * milliseconds. Text and gauges changing faster than this can not be 
+     * read, and would only cost frames.
+     */
+    static final int DISPLAY_PERIOD = 100;
+
+    /**
+     * The thread which owns the transport and sends our pings.
+     */
+    private SendCommands sender;
+
+    /**
+     * Matches replies to the pings sent.
+     */
+    private Ping ping;
+
+    /**
+     * Holds the telemetry from the server.
+     */
+    private Telemetry telemetry;
+
+    /**
+     * The telemetry frame count when the HUD was last updated, when that 
+     * was, and whether the values were fresh.
+     */
+    private long shownFrames = 0;
+    private long shownAt = 0;
+    private boolean shownFresh = false;
+
+    /**
+     * Where we count what we receive.
+     */
+    private Counters counters;
+
+    /**
+     * Buffer to receive datagrams into.
+     */
+    private final byte[] receiveBytes = new byte[Transport.MAX_PACKET_SIZE];
+
+    /**
+     * Whether the server answered recently. The HUD is only updated when 
+     * this changes.
+     */
+    private volatile boolean connected = false;
+
+    private boolean pause = false;
+    private Object lockPause = new Object();
+
+    private Hud hud;
+
+    /**
+     * Used to update the HUD on the UI thread.
+     */
+    private Handler handler;
+    private final Runnable updateConnection = new Runnable() {
+        public void run()
+        {
+            ReceiveReplies.this.hud.setConnection(
+                    ReceiveReplies.this.connected ? 
+                        Hud.CONNECTION_STATUS.CONNECTED : 
+                        Hud.CONNECTION_STATUS.FAIL
+                );
+        }
+    };
+    private final Runnable updateTelemetry = new Runnable() {
+        public void run()
+        {
+            ReceiveReplies.this.hud.setTelemetry(
+                    ReceiveReplies.this.telemetry
+                );
+        }
+    };
+
+    /**
+     * Initiate our thread. 
+     *
+     * @param sender The thread sending our commands and pings
+     * @param hud The hud to show the connection status on
+     */
+    public ReceiveReplies(SendCommands sender, Hud hud)
+    {
+        super();
+        this.sender = sender;
+        this.ping = sender.getPing();
+        this.telemetry = sender.getTelemetry();
+        this.counters = sender.getCounters();
+        this.hud = hud;
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Wait for datagrams, and hand them to whoever understands them.
+     */
+    public void run()
+    {
+        while(true)
+        {
+            // The transport is replaced when the settings change, so always 
+            // use the current one
+            Transport transport = this.sender.getTransport();
+
+            try
+            {
+                if (transport == null)
+                    Thread.sleep(POLL_TIMEOUT);
+
+                else if (transport.poll(POLL_TIMEOUT))
+                {
+                    int length;
+                    while ((length = transport.receive(this.receiveBytes)) > 0)
+                        this.dispatch(this.receiveBytes, length);
+                }
+            }
+            // The transport was closed under us, try again on the next one
+            catch (IOException e)
+            {
+                this.counters.receiveFailed();
+
+                try
+                {
+                    Thread.sleep(POLL_TIMEOUT);
+                }
+                catch (InterruptedException ie)
+                {
+                }
+            }
+            catch (InterruptedException e)
+            {
+            }
+
+            long time = System.nanoTime();
+            this.updateConnection(time);
+            this.updateTelemetry(time);
+
+            synchronized (lockPause)
+            {
+                while (pause)
+                {
+                    try
+                    {
+                        lockPause.wait();
+                    }
+                    catch(InterruptedException e)
+                    {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Hand a datagram to whoever understands it, by its first byte.
+     *
+     * @param buffer The buffer holding the datagram
+     * @param length The length of the datagram
+     */
+    private void dispatch(byte[] buffer, int length)
+    {
+        this.counters.received(length);
+
+        switch (buffer[0])
+        {
+            case Packet.PONG:
+                this.ping.decode(buffer, length, System.nanoTime());
+                break;
+            case Packet.TELEMETRY:
+                this.telemetry.decode(buffer, length, System.nanoTime());
+                break;
+        }
+    }
+
+    /**
+     * Update the HUD with new telemetry, no more than once every 
+     * DISPLAY_PERIOD. Also update it once when the telemetry goes stale.
+     *
+     * @param time The time now in nanoseconds
+     */
+    private void updateTelemetry(long time)
+    {
+        boolean fresh = this.telemetry.isFresh(time);
+        long frames = this.telemetry.getFrames();
+
+        if (fresh == this.shownFresh)
+        {
+            if (
+                    frames == this.shownFrames ||
+                    time - this.shownAt < DISPLAY_PERIOD * 1000000L
+                )
+                return;
+        }
+
+        this.shownFresh = fresh;
+        this.shownFrames = frames;
+        this.shownAt = time;
+        this.handler.post(this.updateTelemetry);
+    }
+
+    /**
+     * Update the HUD when the server starts or stops answering.
+     *
+     * @param time The time now in nanoseconds
+     */
+    private void updateConnection(long time)
+    {
+        boolean alive = this.ping.isAlive(time);
+        if (alive == this.connected)
+            return;
+
+        this.connected = alive;
+        this.handler.post(this.updateConnection);
+    }
+
+    /**
+     * Stop receiving when the phone is in background.
+     */
+    public void onPause()
+    {
+        synchronized (lockPause)
+        {
+            this.pause = true;
+        }
+    }
+
+    public void onResume()
+    {
+        synchronized (lockPause)
+        {
+            this.pause = false;
+            lockPause.notifyAll();
+        }
+    }
+}
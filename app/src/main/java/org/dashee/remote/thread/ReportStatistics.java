@@ -0,0 +1,218 @@
+package org.dashee.remote.thread;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import org.dashee.remote.BuildConfig;
+import org.dashee.remote.fragment.Hud;
+import org.dashee.remote.network.Counters;
+
+/**
+ * Shows the traffic counters on the HUD once a second.
+ *
+ * Runs on the UI thread through a Handler, so the network threads only ever
+ * bump their counters and never wait on the UI. Every run takes the 
+ * difference from the previous one and turns it into rates.
+ *
+ * Debug builds also log the most bytes the control loop allocated in a 
+ * tick since the previous run, which should always be 0.
+ */
+public class ReportStatistics
+    implements Runnable
+{
+    /**
+     * Time between two reports in milliseconds.
+     */
+    public static final int PERIOD = 1000;
+
+    /**
+     * The control loop and its counters to report, and the HUD to report 
+     * them to.
+     */
+    private SendCommands sendCommands;
+    private Counters counters;
+    private Hud hud;
+
+    /**
+     * Used to run us on the UI thread every PERIOD.
+     */
+    private Handler handler;
+
+    /**
+     * Whether reports are scheduled.
+     */
+    private boolean running = false;
+
+    /**
+     * The counters at the previous report, and when it was.
+     */
+    private long lastTime;
+    private long lastPacketsSent;
+    private long lastPacketsReceived;
+    private long lastBytes;
+    private long lastErrors;
+    private long lastSendNanos;
+
+    /**
+     * Create our reporter, it does nothing until started.
+     *
+     * @param sendCommands The control loop to report
+     * @param hud The HUD to report to
+     */
+    public ReportStatistics(SendCommands sendCommands, Hud hud)
+    {
+        this.sendCommands = sendCommands;
+        this.counters = sendCommands.getCounters();
+        this.hud = hud;
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Start reporting, the first report comes after one period.
+     */
+    public void start()
+    {
+        if (this.running)
+            return;
+
+        this.running = true;
+        this.mark(
+                System.nanoTime(),
+                this.counters.getPacketsSent(),
+                this.counters.getPacketsReceived(),
+                this.getBytes(),
+                this.getErrors(),
+                this.counters.getSendNanos()
+            );
+        this.handler.postDelayed(this, PERIOD);
+    }
+
+    /**
+     * Stop reporting.
+     */
+    public void stop()
+    {
+        this.running = false;
+        this.handler.removeCallbacks(this);
+    }
+
+    /**
+     * Report the rates since the previous run, and schedule the next one.
+     */
+    public void run()
+    {
+        if (!this.running)
+            return;
+
+        // Each counter is read once, and what was read is the start of the
+        // next report, so nothing counted in between goes missing
+        long time = System.nanoTime();
+        long packetsSent = this.counters.getPacketsSent();
+        long packetsReceived = this.counters.getPacketsReceived();
+        long totalBytes = this.getBytes();
+        long totalErrors = this.getErrors();
+        long totalSendNanos = this.counters.getSendNanos();
+        long sendMax = this.counters.takeSendMax();
+
+        long elapsed = time - this.lastTime;
+        long sent = packetsSent - this.lastPacketsSent;
+        long received = packetsReceived - this.lastPacketsReceived;
+        long bytes = totalBytes - this.lastBytes;
+        long errors = totalErrors - this.lastErrors;
+        long sendNanos = totalSendNanos - this.lastSendNanos;
+
+        if (elapsed > 0)
+        {
+            this.hud.setBps(this.perSecond(bytes, elapsed));
+            this.hud.setPackets(
+                    this.perSecond(sent, elapsed),
+                    this.perSecond(received, elapsed),
+                    (int)errors
+                );
+            this.hud.setSendLatency(
+                    sent > 0 ? (int)(sendNanos / sent / 1000L) : 0,
+                    (int)(sendMax / 1000L)
+                );
+        }
+
+        if (BuildConfig.DEBUG)
+            Log.d(
+                    "dashee", 
+                    "Control loop allocated at most " + 
+                    this.sendCommands.takeTickAllocation() + " bytes a tick"
+                );
+
+        this.mark(
+                time, 
+                packetsSent, 
+                packetsReceived, 
+                totalBytes, 
+                totalErrors, 
+                totalSendNanos
+            );
+        this.handler.postDelayed(this, PERIOD);
+    }
+
+    /**
+     * Remember the counters as read, so the next report starts from here.
+     *
+     * @param time The time they were read in nanoseconds
+     * @param packetsSent The packets sent
+     * @param packetsReceived The packets received
+     * @param bytes The bytes sent and received
+     * @param errors The errors while sending and receiving
+     * @param sendNanos The total time spent in the send call
+     */
+    private void mark(
+            long time,
+            long packetsSent,
+            long packetsReceived,
+            long bytes,
+            long errors,
+            long sendNanos
+        )
+    {
+        this.lastTime = time;
+        this.lastPacketsSent = packetsSent;
+        this.lastPacketsReceived = packetsReceived;
+        this.lastBytes = bytes;
+        this.lastErrors = errors;
+        this.lastSendNanos = sendNanos;
+    }
+
+    /**
+     * Get the bytes sent and received.
+     *
+     * @return The byte count
+     */
+    private long getBytes()
+    {
+        return this.counters.getBytesSent() + 
+            this.counters.getBytesReceived();
+    }
+
+    /**
+     * Get the errors while sending and receiving.
+     *
+     * @return The error count
+     */
+    private long getErrors()
+    {
+        return this.counters.getSendErrors() + 
+            this.counters.getReceiveErrors();
+    }
+
+    /**
+     * Turn a count over some time into a rate.
+     *
+     * @param count The count
+     * @param nanos The time it was counted over in nanoseconds
+     *
+     * @return The count per second, rounded
+     */
+    private int perSecond(long count, long nanos)
+    {
+        return (int)((count * 1000000000L + nanos / 2) / nanos);
+    }
+}
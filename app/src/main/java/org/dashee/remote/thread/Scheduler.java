@@ -0,0 +1,237 @@
+package org.dashee.remote.thread;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * Fixed rate scheduler for the control loop.
+ *
+ * Deadlines are kept on the monotonic System.nanoTime() clock and are
+ * advanced by exactly one period on every tick, so the time spent building
+ * and sending a packet does not drift the loop. When the thread wakes up
+ * later than a whole period, the missed deadlines are counted and the policy
+ * decides what happens next.
+ *
+ * wake() ends the wait early from any thread, for when something must go
+ * out before the next deadline, like failsafe. The early tick leaves the
+ * deadlines where they are.
+ */
+public class Scheduler
+{
+    /**
+     * Limits of the period in milliseconds.
+     */
+    public static final int MIN_PERIOD = 5;
+    public static final int MAX_PERIOD = 1000;
+
+    /**
+     * What to do when one or more deadlines were missed.
+     *
+     * CATCH_UP keeps the missed deadlines, so the following ticks fire back to
+     * back until the loop is on schedule again. SKIP drops the missed
+     * deadlines and lines up with the next one in the future.
+     */
+    public enum Policy {
+        CATCH_UP,
+        SKIP
+    };
+
+    /**
+     * The period between two deadlines in nanoseconds.
+     */
+    private volatile long period;
+
+    /**
+     * The policy applied to missed deadlines.
+     */
+    private volatile Policy policy;
+
+    /**
+     * The next deadline, in System.nanoTime() terms.
+     */
+    private long deadline;
+
+    /**
+     * Number of deadlines missed since this scheduler was created.
+     */
+    private volatile long missed = 0;
+
+    /**
+     * The thread waiting in await(), so wake() can reach it, and whether it
+     * was asked to tick early.
+     */
+    private volatile Thread waiter;
+    private volatile boolean woken = false;
+
+    /**
+     * Create a scheduler.
+     *
+     * @param period The period in milliseconds
+     * @param policy The policy to apply to missed deadlines
+     */
+    public Scheduler(int period, Policy policy)
+    {
+        this.setPeriod(period);
+        this.setPolicy(policy);
+        this.reset();
+    }
+
+    /**
+     * Set the period. The change takes effect from the next deadline.
+     *
+     * @param period The period in milliseconds
+     *
+     * @throws OutOfRange if the period is not valid
+     */
+    public void setPeriod(int period)
+    {
+        if (period < MIN_PERIOD || period > MAX_PERIOD)
+            throw new OutOfRange(
+                    "Period value must be between " + MIN_PERIOD + "-" +
+                    MAX_PERIOD
+                );
+
+        this.period = period * 1000000L;
+    }
+
+    /**
+     * Get the period.
+     *
+     * @return The period in milliseconds
+     */
+    public int getPeriod()
+    {
+        return (int)(this.period / 1000000L);
+    }
+
+    /**
+     * Set the policy applied to missed deadlines.
+     *
+     * @param policy The policy
+     */
+    public void setPolicy(Policy policy)
+    {
+        this.policy = policy;
+    }
+
+    /**
+     * Get the policy.
+     *
+     * @return The policy applied to missed deadlines
+     */
+    public Policy getPolicy()
+    {
+        return this.policy;
+    }
+
+    /**
+     * Get the number of deadlines which were missed.
+     *
+     * @return The missed deadline count
+     */
+    public long getMissedDeadlines()
+    {
+        return this.missed;
+    }
+
+    /**
+     * Start counting from now, so the next tick is immediate. Call this when
+     * the loop is resumed, so the time spent paused is not seen as missed
+     * deadlines.
+     */
+    public void reset()
+    {
+        this.woken = false;
+        this.deadline = this.now();
+    }
+
+    /**
+     * Make the waiting thread tick now, or the next await() return straight
+     * away if nothing is waiting.
+     */
+    public void wake()
+    {
+        this.woken = true;
+
+        Thread waiter = this.waiter;
+        if (waiter != null)
+            LockSupport.unpark(waiter);
+    }
+
+    /**
+     * Block until the next deadline, then move the deadline forward. When
+     * woken, return straight away and keep the deadline.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void await() throws InterruptedException
+    {
+        this.waiter = Thread.currentThread();
+
+        long remaining;
+        try
+        {
+            remaining = this.deadline - this.now();
+            while (remaining > 0 && !this.woken)
+            {
+                this.sleep(remaining);
+                remaining = this.deadline - this.now();
+            }
+        }
+        finally
+        {
+            this.waiter = null;
+        }
+
+        if (this.woken)
+        {
+            this.woken = false;
+            return;
+        }
+
+        long period = this.period;
+
+        // We woke up more than a full period late, so at least one deadline
+        // has passed without a tick. When catching up every late tick is
+        // counted as it fires, when skipping they are all counted here
+        long behind = -remaining / period;
+        if (behind > 0)
+        {
+            if (this.policy == Policy.SKIP)
+            {
+                this.missed += behind;
+                this.deadline += behind * period;
+            }
+            else
+                this.missed++;
+        }
+
+        this.deadline += period;
+    }
+
+    /**
+     * The current time of the clock used by the deadlines.
+     *
+     * @return The time in nanoseconds
+     */
+    protected long now()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Sleep for the given amount of time, or until woken.
+     *
+     * @param nanos The longest time to sleep in nanoseconds
+     *
+     * @throws InterruptedException if the thread is interrupted
+     */
+    protected void sleep(long nanos) throws InterruptedException
+    {
+        LockSupport.parkNanos(this, nanos);
+
+        if (Thread.interrupted())
+            throw new InterruptedException();
+    }
+}
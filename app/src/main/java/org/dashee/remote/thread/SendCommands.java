@@ -1,10 +1,23 @@
 package org.dashee.remote.thread;
 
-import java.net.*;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dashee.remote.BuildConfig;
 import org.dashee.remote.fragment.Hud;
 import org.dashee.remote.model.Config;
+import org.dashee.remote.model.LatencyTrace;
 import org.dashee.remote.model.Vehicle;
+import org.dashee.remote.network.Counters;
+import org.dashee.remote.network.Encoder;
+import org.dashee.remote.network.Packet;
+import org.dashee.remote.network.Ping;
+import org.dashee.remote.network.Telemetry;
+import org.dashee.remote.network.Transport;
 
 /**
  * Thread to communicate to the server.
@@ -15,23 +28,117 @@ import org.dashee.remote.model.Vehicle;
  * @author David Buttar
  * @author Shahmir Javaid
  */
-public class SendCommands extends Thread 
+public class SendCommands 
+    extends Thread 
+    implements Vehicle.OnChangeListener, Watchdog.OnStallListener
 {
     /**
-     * Send commands every nth millisecond
+     * Failsafe frames sent back to back when we stop talking to a server, 
+     * so a lost packet or two still leaves it in failsafe.
+     */
+    public static final int FAILSAFE_BURST = 5;
+
+    /**
+     * Transport used to send commands over UDP. Replaced when the transport
+     * type in the config changes
+     */
+    private volatile Transport transport;
+
+    /**
+     * Keeps the deadlines of our control loop. The period and policy are
+     * read from the config on every tick so they can change at runtime
+     */
+    private Scheduler scheduler;
+
+    /**
+     * Adapts the period of the scheduler to the link, when enabled in the
+     * config
+     */
+    private RateControl rateControl;
+
+    /**
+     * The period and reason last shown on the HUD. Read by showRate on the
+     * UI thread
+     */
+    private volatile int shownPeriod = 0;
+    private volatile RateControl.Reason shownReason = RateControl.Reason.NONE;
+
+    /**
+     * Wakes our control loop when the vehicle changes, used instead of the
+     * scheduler in ON_CHANGE mode
+     */
+    private Trigger trigger;
+
+    /**
+     * The send mode our loop is currently running in.
+     */
+    private Config.SendMode mode;
+
+    /**
+     * Writes our command packets in the format set in the config.
+     */
+    private Encoder encoder;
+
+    /**
+     * The command frame. Allocated once and filled in place on every tick, 
+     * so the control loop does not create garbage
+     */
+    private final byte[] commandBytes = new byte[Transport.MAX_PACKET_SIZE];
+
+    /**
+     * The frame of our failsafe bursts. Apart from the command frame, so a
+     * burst sent while a tick is going out does not overwrite its frame
+     */
+    private final byte[] failsafeBytes = new byte[Transport.MAX_PACKET_SIZE];
+
+    /**
+     * Keeps track of our pings, the replies are matched by ReceiveReplies.
+     */
+    private final Ping ping = new Ping();
+
+    /**
+     * Traffic counters of our sends, and of the receives of ReceiveReplies.
+     */
+    private final Counters counters = new Counters();
+
+    /**
+     * The latency of input from its event to the wire, and the event last
+     * traced, so a frame sent again with the same input does not count.
      */
-    static final int TICK_PER_BYTE = 30;
+    private final LatencyTrace trace = new LatencyTrace();
+    private long tracedEvent = 0;
 
     /**
-     * DataGram object to send commands over UDP
+     * The latest telemetry from the server, filled in by ReceiveReplies.
      */
-    private DatagramSocket sockHandler;
+    private final Telemetry telemetry = new Telemetry();
 
     /**
-     * Time when last value was sent.
+     * Buffer for our ping, and when we last sent one.
      */
-    private long resetTime = 0;
-    private long currentTime = 0;
+    private final byte[] pingBytes = new byte[Packet.PING_SIZE];
+    private long lastPing = 0;
+
+    /**
+     * The most bytes this thread allocated in one tick since it was last
+     * taken. Only counted in debug builds, and should always read 0
+     */
+    private final AtomicInteger tickAllocation = new AtomicInteger(0);
+
+    /**
+     * Calls for failsafe when the input stops.
+     */
+    private Watchdog watchdog;
+
+    /**
+     * Whether the last tick sent failsafe, the number of times the control
+     * loop went to failsafe, and the time from when the input was due to 
+     * the first failsafe frame sent, last and worst, in nanoseconds.
+     */
+    private boolean failsafe = false;
+    private volatile long failsafes = 0;
+    private volatile long failsafeLatency = 0;
+    private volatile long maxFailsafeLatency = 0;
 
     private boolean pause = false;
     private Object lockPause = new Object();
@@ -49,6 +156,37 @@ public class SendCommands extends Thread
 
     private Hud hud;
 
+    /**
+     * Used to update the HUD on the UI thread.
+     */
+    private Handler handler;
+    private final Runnable showRate = new Runnable() {
+        public void run()
+        {
+            SendCommands.this.hud.setRate(
+                    SendCommands.this.shownPeriod,
+                    SendCommands.this.shownReason
+                );
+        }
+    };
+
+    /**
+     * Logs the latency of the last failsafe on the UI thread, so the control 
+     * loop does not build the message.
+     */
+    private final Runnable reportFailsafe = new Runnable() {
+        public void run()
+        {
+            android.util.Log.w(
+                    "dashee", 
+                    "Input stalled, failsafe sent after " + 
+                    SendCommands.this.failsafeLatency / 1000L + "us, " +
+                    "caught after " + 
+                    SendCommands.this.watchdog.getLatency() / 1000L + "us"
+                );
+        }
+    };
+
     /**
      * Initiate our thread. Set the variables from the parameters, and set our 
      * IP Address object. Also create a new instance of socket
@@ -64,15 +202,36 @@ public class SendCommands extends Thread
             this.vehicle = vehicle;
             this.config = config;
             this.hud = hud;
-            this.sockHandler = new DatagramSocket();
-            this.sockHandler.setSoTimeout(500);
+            this.scheduler = new Scheduler(
+                    config.getSendPeriod(), 
+                    config.getSendPolicy()
+                );
+            this.rateControl = new RateControl(
+                    this.ping,
+                    config.getSendPeriod(),
+                    System.nanoTime()
+                );
+            this.trigger = new Trigger(
+                    config.getSendGap(),
+                    config.getHeartbeat()
+                );
+            this.mode = config.getSendMode();
+            this.encoder = Encoder.create(config.getPacketFormat());
+            this.vehicle.setOnChangeListener(this);
+            this.watchdog = new Watchdog(
+                    vehicle, 
+                    config.getFailsafeTimeout()
+                );
+            this.watchdog.setOnStallListener(this);
+            this.transport = Transport.create(config.getTransport());
+            this.handler = new Handler(Looper.getMainLooper());
         }
         catch(Exception e)
         {
             e.printStackTrace();
         }
 
-        Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
+        this.setPriority(Thread.MAX_PRIORITY);
     }
 
     /**
@@ -81,42 +240,64 @@ public class SendCommands extends Thread
      */
     public void run()
     {   
+        this.scheduler.reset();
+        this.trigger.reset();
+        this.rateControl.reset(System.nanoTime());
+        this.watchdog.start();
+
+        if (BuildConfig.DEBUG)
+            Debug.startAllocCounting();
+
         while(true)
         {
             try
             {
-                // Skip if we haven't ticked by sleeping and continuing
-                if (!haveWeTicked())
-                {
-                    Thread.sleep(TICK_PER_BYTE);
+                this.awaitTick();
+
+                // Going to the background, so send failsafe rather than
+                // this tick's frame
+                if (this.awaitResume())
                     continue;
-                }
 
-                // Create a new set of bytes
-                byte[] ar = new byte[5];
-                ar[0] = 0;
-                ar[1] = 0;
-                ar[2] = 0;
-                ar[3] = (byte)vehicle.getRoll();
-                ar[4] = (byte)vehicle.getThrottle();
+                int allocated = 0;
+                if (BuildConfig.DEBUG)
+                    allocated = Debug.getThreadAllocSize();
 
-                // Send the commands to th server
-                this.sendCommandBytes(ar);
-                //this.sendPing();
+                // Update our frame and send the commands to the server, 
+                // tracing the input the first time it goes out
+                boolean failsafe = this.watchdog.isStalled();
+                long event = this.vehicle.getEventTime();
+                boolean traced = !failsafe && event != this.tracedEvent;
+                this.tracedEvent = event;
 
-                synchronized (lockPause)
-                {
-                    while (pause)
-                    {
-                        try
-                        {
-                            lockPause.wait();
-                        }
-                        catch(InterruptedException e)
-                        {
-                        }
-                    }
-                }
+                int length = this.encodeCommandBytes(
+                        this.commandBytes, 
+                        failsafe
+                    );
+                if (traced)
+                    this.trace.record(
+                            LatencyTrace.Stage.ENCODE, 
+                            event, 
+                            System.nanoTime()
+                        );
+
+                if (this.sendCommandBytes(this.commandBytes, length) && traced)
+                    this.trace.record(
+                            LatencyTrace.Stage.SEND, 
+                            event, 
+                            System.nanoTime()
+                        );
+                this.updateFailsafe(failsafe, System.nanoTime());
+                this.sendPing(System.nanoTime());
+
+                // Keep ticking until the slew rates let the channels catch up
+                if (this.encoder.isLimiting())
+                    this.trigger.signal();
+
+                if (BuildConfig.DEBUG)
+                    this.countAllocation(
+                            Debug.getThreadAllocSize() - allocated
+                        );
             }
             catch (InterruptedException e) 
             {
@@ -128,86 +309,537 @@ public class SendCommands extends Thread
     }
 
     /**
-     * Variable reprsenting weathre or not we have ticked. If we have, reset the
-     * times and return true
+     * When paused, leave the server in failsafe and wait until we are 
+     * resumed.
      *
-     * @return boolean representing weather we have ticked or not
+     * @return true if the loop was paused
      */
-    private boolean haveWeTicked()    
+    private boolean awaitResume()
     {
-        // Only send a packet every Nth second
-        this.currentTime = System.currentTimeMillis();
-        if(this.currentTime - this.resetTime < TICK_PER_BYTE)
-            return false;
-        
-        this.resetTime = System.currentTimeMillis();
+        synchronized (lockPause)
+        {
+            if (!pause)
+                return false;
+
+            // Leave the server in failsafe while we are away
+            this.sendFailsafe();
+
+            // Nothing to count while we wait
+            if (BuildConfig.DEBUG)
+                Debug.stopAllocCounting();
+
+            while (pause)
+            {
+                try
+                {
+                    lockPause.wait();
+                }
+                catch(InterruptedException e)
+                {
+                }
+            }
+
+            if (BuildConfig.DEBUG)
+                Debug.startAllocCounting();
+
+            // Time spent paused is not a missed deadline
+            this.scheduler.reset();
+            this.trigger.reset();
+            this.rateControl.reset(System.nanoTime());
+        }
+
         return true;
     }
 
     /**
-     * Send a ping to the server and wait for a response.
+     * Wait until it is time to send the next packet. Pick up any change in 
+     * the settings first, so they apply from this packet on.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
      */
-    private void sendPing(){
-        try
+    private void awaitTick() throws InterruptedException
+    {
+        Config.SendMode mode = this.config.getSendMode();
+        if (mode != this.mode)
         {
-            byte[] ar = new byte[1];
-            ar[0] = 1;
-            DatagramPacket packet = new DatagramPacket(
-                    ar,
-                    ar.length,
-                    this.config.getIp(),
-                    this.config.getPort()
-            );
+            this.mode = mode;
+            this.scheduler.reset();
+            this.trigger.reset();
+        }
 
-            this.sockHandler.send(packet);
-
-            try {
-                byte[] lMsg = new byte[1000];
-                DatagramPacket dp = new DatagramPacket(lMsg, lMsg.length);
-                this.sockHandler.receive(dp);
-                String stringData = new String(lMsg, 0, dp.getLength());
-                android.util.Log.i("dashee", "Received: " + stringData);
-                this.hud.setConnection(Hud.CONNECTION_STATUS.CONNECTED);
-            } catch (SocketTimeoutException e) {
-                // resend
-                android.util.Log.e("dashee", "Received Timeout");
-                this.hud.setConnection(Hud.CONNECTION_STATUS.FAIL);
-            }
+        if (mode == Config.SendMode.ON_CHANGE)
+        {
+            this.trigger.setGap(this.config.getSendGap());
+            this.reportRate(this.config.getSendGap(), RateControl.Reason.NONE);
+            this.trigger.setHeartbeat(this.config.getHeartbeat());
+            this.watchdog.setTimeout(this.config.getFailsafeTimeout());
+            this.trigger.await();
+        }
+        else
+        {
+            this.scheduler.setPeriod(this.updateRate(System.nanoTime()));
+            this.scheduler.setPolicy(this.config.getSendPolicy());
+            this.watchdog.setTimeout(this.config.getFailsafeTimeout());
+            this.scheduler.await();
+        }
+    }
 
+    /**
+     * Work out the period of the next tick. With the adaptive rate off, or
+     * a transport which can not hear the pings answered, this is the period
+     * in the config. Otherwise the rate control adapts it to the link 
+     * between the bounds in the config. The HUD is told whenever the period
+     * or the reason for it changes.
+     *
+     * @param time The time now in nanoseconds
+     *
+     * @return The period in milliseconds
+     */
+    private int updateRate(long time)
+    {
+        RateControl.Reason reason = RateControl.Reason.NONE;
+
+        if (this.config.isAdaptiveRate() && this.canReceive())
+        {
+            this.rateControl.setBounds(
+                    Math.min(
+                        this.config.getSendPeriodMin(), 
+                        this.config.getSendPeriodMax()
+                    ),
+                    Math.max(
+                        this.config.getSendPeriodMin(), 
+                        this.config.getSendPeriodMax()
+                    )
+                );
+            this.rateControl.update(time);
+            reason = this.rateControl.getReason();
         }
-        catch (Exception e)
+        else
         {
-            e.printStackTrace();
+            // Follow the config, so adapting starts from it once enabled
+            this.rateControl.setPeriod(this.config.getSendPeriod());
+            this.rateControl.reset(time);
+        }
+
+        int period = this.rateControl.getPeriod();
+        this.reportRate(period, reason);
+        return period;
+    }
+
+    /**
+     * Tell the HUD the period we send at, if it or the reason for it 
+     * changed. In ON_CHANGE mode this is the gap, the shortest time between
+     * two packets.
+     *
+     * @param period The period in milliseconds
+     * @param reason Why the period last changed
+     */
+    private void reportRate(int period, RateControl.Reason reason)
+    {
+        if (period != this.shownPeriod || reason != this.shownReason)
+        {
+            this.shownPeriod = period;
+            this.shownReason = reason;
+            this.handler.post(this.showRate);
         }
     }
+
+    /**
+     * Get the encoder in use, which counts the bytes written and how many of
+     * them went on redundancy.
+     *
+     * @return The encoder
+     */
+    public Encoder getEncoder()
+    {
+        return this.encoder;
+    }
+
+    /**
+     * Get the rate control, which holds the adapted period and the reason
+     * for it.
+     *
+     * @return The rate control
+     */
+    public RateControl getRateControl()
+    {
+        return this.rateControl;
+    }
+
+    /**
+     * Wake the control loop when the vehicle changes, so the change goes out
+     * without waiting for the next tick. Called on the thread making the 
+     * change.
+     *
+     * @param vehicle The vehicle which changed
+     */
+    public void onVehicleChanged(Vehicle vehicle)
+    {
+        this.trigger.signal();
+    }
+
+    /**
+     * Wake the control loop when the input stalls, so failsafe goes out 
+     * without waiting for the heartbeat or the next deadline. Called on the
+     * watchdog thread.
+     *
+     * @param watchdog The watchdog which saw the stall
+     */
+    public void onStall(Watchdog watchdog)
+    {
+        this.trigger.signal();
+        this.scheduler.wake();
+    }
+
+    /**
+     * Keep count of the control loop going to failsafe, and measure how
+     * long after the input was due the first failsafe frame was sent.
+     *
+     * @param failsafe Whether the tick sent failsafe
+     * @param time The time the frame was sent in nanoseconds
+     */
+    private void updateFailsafe(boolean failsafe, long time)
+    {
+        if (failsafe && !this.failsafe)
+        {
+            this.failsafeLatency = time - this.watchdog.getDeadline();
+            this.maxFailsafeLatency = Math.max(
+                    this.maxFailsafeLatency, 
+                    this.failsafeLatency
+                );
+            this.failsafes++;
+            this.handler.post(this.reportFailsafe);
+        }
+
+        this.failsafe = failsafe;
+    }
+
+    /**
+     * Get the watchdog, which holds how late the input stalls were caught.
+     *
+     * @return The watchdog
+     */
+    public Watchdog getWatchdog()
+    {
+        return this.watchdog;
+    }
+
+    /**
+     * Get the number of times the control loop went to failsafe because the 
+     * input stalled.
+     *
+     * @return The failsafe count
+     */
+    public long getFailsafes()
+    {
+        return this.failsafes;
+    }
+
+    /**
+     * Get the time from when the input was due to when the first failsafe 
+     * frame was sent, for the last stall.
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getFailsafeLatency()
+    {
+        return this.failsafeLatency;
+    }
+
+    /**
+     * Get the worst time from when the input was due to when the first 
+     * failsafe frame was sent.
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getMaxFailsafeLatency()
+    {
+        return this.maxFailsafeLatency;
+    }
+
+    /**
+     * Get the number of heartbeats sent in ON_CHANGE mode.
+     *
+     * @return The heartbeat count
+     */
+    public long getHeartbeats()
+    {
+        return this.trigger.getHeartbeats();
+    }
+
+    /**
+     * Get the number of deadlines the control loop has missed.
+     *
+     * @return The missed deadline count
+     */
+    public long getMissedDeadlines()
+    {
+        return this.scheduler.getMissedDeadlines();
+    }
+
+    /**
+     * Keep the most bytes a tick allocated, until it is taken.
+     *
+     * @param bytes The bytes allocated by the tick just run
+     */
+    private void countAllocation(int bytes)
+    {
+        int max = this.tickAllocation.get();
+        while (bytes > max && !this.tickAllocation.compareAndSet(max, bytes))
+            max = this.tickAllocation.get();
+    }
+
+    /**
+     * Get the most bytes the control loop allocated in one tick since the 
+     * last call, and start counting again. This is only counted in debug 
+     * builds, release builds always return 0.
+     *
+     * @return The number of bytes allocated
+     */
+    public int takeTickAllocation()
+    {
+        return this.tickAllocation.getAndSet(0);
+    }
+
+    /**
+     * Write the current state of the vehicle into our command frame, in the
+     * packet format set in the config.
+     *
+     * @param command The frame to fill
+     * @param failsafe true to send the failsafe values instead
+     *
+     * @return The length of the frame
+     */
+    private int encodeCommandBytes(byte[] command, boolean failsafe)
+    {
+        if (this.encoder.getFormat() != this.config.getPacketFormat())
+            this.encoder = Encoder.create(this.config.getPacketFormat());
+
+        long time = System.nanoTime();
+        this.encoder.setRedundancy(this.config.getRedundancy());
+        this.encoder.setResolution(this.getResolution(time));
+        this.encoder.setFailsafe(failsafe);
+
+        return this.encoder.encode(this.vehicle, time, command);
+    }
+
+    /**
+     * Get the resolution to send channels at. The one set in the config, 
+     * but no higher than the server takes. Falls back to MIN_RESOLUTION as
+     * soon as the server stops answering, it may have been replaced by one
+     * which does not take high resolution. A transport which can not 
+     * receive never hears from the server, so it sends at the config.
+     *
+     * @param time The time now in nanoseconds
+     *
+     * @return The resolution in bits
+     */
+    private int getResolution(long time)
+    {
+        if (!this.canReceive())
+            return this.config.getResolution();
+
+        if (!this.ping.isAlive(time))
+            return Packet.MIN_RESOLUTION;
+
+        return Math.min(
+                this.config.getResolution(), 
+                this.ping.getResolution()
+            );
+    }
+
+    /**
+     * Send a ping to the server when one is due. The reply is picked up by 
+     * ReceiveReplies. Only servers which speak the sequenced format answer 
+     * pings, so a legacy server is never sent one, and neither is a server
+     * on a transport which can not receive the answer.
+     *
+     * @param time The time now in nanoseconds
+     */
+    private void sendPing(long time)
+    {
+        if (
+                this.config.getPacketFormat() == Encoder.Format.LEGACY ||
+                !this.canReceive()
+            )
+            return;
+
+        if (time - this.lastPing < Ping.PERIOD * 1000000L)
+            return;
+
+        this.lastPing = time;
+        int length = this.ping.encode(time, this.pingBytes);
+        this.sendCommandBytes(this.pingBytes, length);
+    }
+
+    /**
+     * Check if the transport in use can receive the replies of the server.
+     *
+     * @return true if replies can be received
+     */
+    private boolean canReceive()
+    {
+        Transport transport = this.transport;
+        return transport != null && transport.canReceive();
+    }
+
+    /**
+     * Get the transport currently in use.
+     *
+     * @return The transport, or null if it could not be opened
+     */
+    public Transport getTransport()
+    {
+        return this.transport;
+    }
+
+    /**
+     * Get our ping tracker, which holds the round trip estimates.
+     *
+     * @return The ping tracker
+     */
+    public Ping getPing()
+    {
+        return this.ping;
+    }
+
+    /**
+     * Get the traffic counters of our transport.
+     *
+     * @return The counters
+     */
+    public Counters getCounters()
+    {
+        return this.counters;
+    }
+
+    /**
+     * Get the latency trace, which the HUD adds the stages before ours to.
+     *
+     * @return The trace
+     */
+    public LatencyTrace getLatencyTrace()
+    {
+        return this.trace;
+    }
+
+    /**
+     * Get the latest telemetry from the server.
+     *
+     * @return The telemetry
+     */
+    public Telemetry getTelemetry()
+    {
+        return this.telemetry;
+    }
+
+    /**
+     * Make sure our transport is the type set in the config, and that it 
+     * points at the server in the config. Both can change at any time, so 
+     * this is checked before every send.
+     *
+     * @throws IOException if the transport could not be opened or connected
+     */
+    private void updateTransport() throws IOException
+    {
+        boolean replace = this.transport == null ||
+            this.transport.getType() != this.config.getTransport();
+
+        if (
+                !replace &&
+                this.transport.isConnectedTo(
+                    this.config.getIp(), 
+                    this.config.getPort()
+                )
+            )
+            return;
+
+        // Leave the server we talked to so far in failsafe, while the old
+        // transport is still open
+        this.sendFailsafe();
+
+        if (replace)
+        {
+            if (this.transport != null)
+                this.transport.close();
+
+            this.transport = Transport.create(this.config.getTransport());
+        }
+
+        this.transport.connect(this.config.getIp(), this.config.getPort());
+        this.ping.reset();
+        this.telemetry.reset();
+    }
     
     /**
-     * Send the bytes to the server. Each packet is sent after Nth milisecond 
-     * controlled by our static TICK_PER_BYTE
+     * Send the bytes to the server. Each packet is sent on a deadline of our
+     * scheduler, every config.getSendPeriod() milliseconds.
      *
-     * @param command the set of commands to send
+     * @param command the buffer holding the commands to send
+     * @param length the number of bytes to send
+     *
+     * @return true if the bytes were sent
      */
-    private void sendCommandBytes(byte[] command)
+    private boolean sendCommandBytes(byte[] command, int length)
     {
         try
         {
-            DatagramPacket packet = new DatagramPacket(
-                command,
-                command.length,
-                this.config.getIp(),
-                this.config.getPort()
-            );
+            this.updateTransport();
+            this.transmit(command, length);
+            return true;
+        }
+        catch (IOException e)
+        {
+            this.counters.sendFailed();
+            e.printStackTrace();
+            return false;
+        }
+    }
 
-            this.sockHandler.send(packet);
+    /**
+     * Send a burst of FAILSAFE_BURST failsafe frames to the server the 
+     * transport points at, if any. The frames are written to their own 
+     * buffer, so the command frame of the tick is left as it is.
+     */
+    private void sendFailsafe()
+    {
+        if (this.transport == null || !this.transport.isConnected())
+            return;
+
+        try
+        {
+            for (int x = 0; x < FAILSAFE_BURST; ++x)
+            {
+                int length 
+                    = this.encodeCommandBytes(this.failsafeBytes, true);
+                this.transmit(this.failsafeBytes, length);
+            }
         }
-        catch (Exception e)
+        catch (IOException e)
         {
+            this.counters.sendFailed();
             e.printStackTrace();
         }
     }
 
     /**
-     * Make sure when the phone is in background we stop sending the data.
+     * Send the bytes over the transport as it is, and count them.
+     *
+     * @param command the buffer holding the bytes to send
+     * @param length the number of bytes to send
+     *
+     * @throws IOException if the send failed
+     */
+    private void transmit(byte[] command, int length) throws IOException
+    {
+        long start = System.nanoTime();
+        this.transport.send(command, length);
+        this.counters.sent(length, System.nanoTime() - start);
+    }
+
+    /**
+     * Make sure when the phone is in background we stop sending the data,
+     * after a burst of failsafe frames.
      */
     public void onPause()
     {
@@ -215,10 +847,17 @@ public class SendCommands extends Thread
         {
             this.pause = true;
         }
+        this.watchdog.onPause();
+
+        // Wake the loop, so the failsafe burst goes out now rather than at
+        // the next deadline
+        this.trigger.signal();
+        this.scheduler.wake();
     }
 
     public void onResume()
     {
+        this.watchdog.onResume();
         synchronized (lockPause)
         {
             this.pause = false;
@@ -0,0 +1,218 @@
+package org.dashee.remote.thread;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.dashee.remote.exception.OutOfRange;
+
+/**
+ * Event driven alternative to the Scheduler.
+ *
+ * The control loop waits in await() until someone calls signal(), which
+ * happens when the vehicle changes. A change goes out as soon as the minimum
+ * gap since the last packet has passed. When nothing changes the loop still
+ * wakes up once every heartbeat, so the server knows we are alive.
+ *
+ * signal() can be called from any thread, it neither locks nor allocates.
+ */
+public class Trigger
+{
+    /**
+     * Limits of the minimum gap and the heartbeat in milliseconds.
+     */
+    public static final int MIN_GAP = 0;
+    public static final int MAX_GAP = 1000;
+    public static final int MIN_HEARTBEAT = 10;
+    public static final int MAX_HEARTBEAT = 5000;
+
+    /**
+     * Number of changes signalled so far, and the number we had seen when we
+     * last woke up.
+     */
+    private final AtomicInteger changes = new AtomicInteger(0);
+    private int seen = 0;
+
+    /**
+     * The thread waiting in await(), so signal() can wake it.
+     */
+    private volatile Thread waiter;
+
+    /**
+     * Minimum time between two packets, and the time between heartbeats, in
+     * nanoseconds.
+     */
+    private volatile long gap;
+    private volatile long heartbeat;
+
+    /**
+     * When we last woke up.
+     */
+    private long last;
+
+    /**
+     * Number of times we woke up because of the heartbeat.
+     */
+    private volatile long heartbeats = 0;
+
+    /**
+     * Create a trigger.
+     *
+     * @param gap The minimum gap in milliseconds
+     * @param heartbeat The heartbeat period in milliseconds
+     */
+    public Trigger(int gap, int heartbeat)
+    {
+        this.setGap(gap);
+        this.setHeartbeat(heartbeat);
+        this.reset();
+    }
+
+    /**
+     * Set the minimum time between two packets.
+     *
+     * @param gap The gap in milliseconds
+     *
+     * @throws OutOfRange if the gap is not valid
+     */
+    public void setGap(int gap)
+    {
+        if (gap < MIN_GAP || gap > MAX_GAP)
+            throw new OutOfRange(
+                    "Gap value must be between " + MIN_GAP + "-" + MAX_GAP
+                );
+
+        this.gap = gap * 1000000L;
+    }
+
+    /**
+     * Get the minimum time between two packets.
+     *
+     * @return The gap in milliseconds
+     */
+    public int getGap()
+    {
+        return (int)(this.gap / 1000000L);
+    }
+
+    /**
+     * Set the time between two heartbeats.
+     *
+     * @param heartbeat The heartbeat period in milliseconds
+     *
+     * @throws OutOfRange if the heartbeat is not valid
+     */
+    public void setHeartbeat(int heartbeat)
+    {
+        if (heartbeat < MIN_HEARTBEAT || heartbeat > MAX_HEARTBEAT)
+            throw new OutOfRange(
+                    "Heartbeat value must be between " + MIN_HEARTBEAT + "-" +
+                    MAX_HEARTBEAT
+                );
+
+        this.heartbeat = heartbeat * 1000000L;
+    }
+
+    /**
+     * Get the time between two heartbeats.
+     *
+     * @return The heartbeat period in milliseconds
+     */
+    public int getHeartbeat()
+    {
+        return (int)(this.heartbeat / 1000000L);
+    }
+
+    /**
+     * Get the number of times we woke up only because of the heartbeat.
+     *
+     * @return The heartbeat count
+     */
+    public long getHeartbeats()
+    {
+        return this.heartbeats;
+    }
+
+    /**
+     * Let the waiting thread know something changed.
+     */
+    public void signal()
+    {
+        this.changes.incrementAndGet();
+
+        Thread waiter = this.waiter;
+        if (waiter != null)
+            LockSupport.unpark(waiter);
+    }
+
+    /**
+     * Start counting from now, and treat the current state as changed so
+     * the next await() returns straight away.
+     */
+    public void reset()
+    {
+        this.seen = this.changes.get() - 1;
+        this.last = this.now() - this.heartbeat;
+    }
+
+    /**
+     * Block until there is a change to send and the gap has passed, or until
+     * the heartbeat is due.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void await() throws InterruptedException
+    {
+        this.waiter = Thread.currentThread();
+
+        try
+        {
+            while (true)
+            {
+                long elapsed = this.now() - this.last;
+                boolean changed = this.changes.get() != this.seen;
+
+                if (changed && elapsed >= this.gap)
+                    break;
+
+                if (elapsed >= this.heartbeat)
+                {
+                    this.heartbeats++;
+                    break;
+                }
+
+                this.park((changed ? this.gap : this.heartbeat) - elapsed);
+
+                if (Thread.interrupted())
+                    throw new InterruptedException();
+            }
+        }
+        finally
+        {
+            this.waiter = null;
+        }
+
+        // Any change signalled from here on is picked up by the next call
+        this.seen = this.changes.get();
+        this.last = this.now();
+    }
+
+    /**
+     * The current time of the clock used by the trigger.
+     *
+     * @return The time in nanoseconds
+     */
+    protected long now()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Park the current thread until it is signalled or the time is up.
+     *
+     * @param nanos The longest time to park for in nanoseconds
+     */
+    protected void park(long nanos)
+    {
+        LockSupport.parkNanos(this, nanos);
+    }
+}
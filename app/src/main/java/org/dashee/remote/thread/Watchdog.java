@@ -0,0 +1,320 @@
+package org.dashee.remote.thread;
+
+import java.util.concurrent.locks.LockSupport;
+
+import org.dashee.remote.exception.OutOfRange;
+import org.dashee.remote.model.Vehicle;
+
+/**
+ * Watches the input reaching the vehicle, and calls for failsafe when it
+ * stops for longer than the timeout.
+ *
+ * Every value set on the vehicle counts as input, changed or not, so the
+ * sensors feed the watchdog even while the phone is held still. It runs on
+ * its own thread and sleeps until the input is due, so a stall is caught
+ * when the timeout runs out rather than on the next tick of the control
+ * loop, which it then wakes to send failsafe straight away.
+ *
+ * The latency is the time from when the input was due to when the stall
+ * was caught. check() works on the times passed in, so it can be tested on
+ * a fake clock.
+ */
+public class Watchdog
+    extends Thread
+{
+    /**
+     * Limits of the timeout in milliseconds. A timeout of 0 turns the
+     * watchdog off.
+     */
+    public static final int MIN_TIMEOUT = 50;
+    public static final int MAX_TIMEOUT = 5000;
+
+    /**
+     * How often we look for the input to come back while stalled, in
+     * nanoseconds.
+     */
+    public static final long POLL = 10000000L;
+
+    /**
+     * Listener told when the input stalls. It is called on the watchdog
+     * thread.
+     */
+    public interface OnStallListener
+    {
+        public void onStall(Watchdog watchdog);
+    }
+
+    /**
+     * The vehicle the input is set on.
+     */
+    private final Vehicle vehicle;
+
+    /**
+     * The timeout in nanoseconds, 0 for off.
+     */
+    private volatile long timeout;
+
+    /**
+     * Input before this time does not count, so the input gets a whole
+     * timeout to start after a resume.
+     */
+    private volatile long start;
+
+    /**
+     * Whether the input is stalled, and when the input which stalled was
+     * due.
+     */
+    private volatile boolean stalled = false;
+    private volatile long deadline = 0;
+
+    /**
+     * The number of stalls, and the latency of the last and the worst one
+     * in nanoseconds.
+     */
+    private volatile long stalls = 0;
+    private volatile long latency = 0;
+    private volatile long maxLatency = 0;
+
+    private volatile OnStallListener stallListener;
+
+    private boolean pause = false;
+    private Object lockPause = new Object();
+
+    /**
+     * Create a watchdog, it does not watch until started.
+     *
+     * @param vehicle The vehicle the input is set on
+     * @param timeout The timeout in milliseconds, 0 for off
+     */
+    public Watchdog(Vehicle vehicle, int timeout)
+    {
+        super();
+        this.vehicle = vehicle;
+        this.setTimeout(timeout);
+        this.reset(this.now());
+        this.setDaemon(true);
+        this.setPriority(Thread.MAX_PRIORITY);
+    }
+
+    /**
+     * Set how long the input may stop before failsafe. A change wakes the
+     * watchdog, so it applies to the input already due.
+     *
+     * @param timeout The timeout in milliseconds, 0 for off
+     *
+     * @throws OutOfRange if the timeout is not valid
+     */
+    public void setTimeout(int timeout)
+    {
+        if (timeout != 0 && (timeout < MIN_TIMEOUT || timeout > MAX_TIMEOUT))
+            throw new OutOfRange(
+                    "Timeout must be 0 or between " + MIN_TIMEOUT + "-" +
+                    MAX_TIMEOUT
+                );
+
+        long nanos = timeout * 1000000L;
+        if (nanos == this.timeout)
+            return;
+
+        this.timeout = nanos;
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Get how long the input may stop before failsafe.
+     *
+     * @return The timeout in milliseconds, 0 for off
+     */
+    public int getTimeout()
+    {
+        return (int)(this.timeout / 1000000L);
+    }
+
+    /**
+     * Set the listener told when the input stalls.
+     *
+     * @param listener The listener, or null to remove it
+     */
+    public void setOnStallListener(OnStallListener listener)
+    {
+        this.stallListener = listener;
+    }
+
+    /**
+     * Forget the input so far, it has a whole timeout from now to arrive.
+     *
+     * @param time The time now in nanoseconds
+     */
+    public void reset(long time)
+    {
+        this.start = time;
+        this.stalled = false;
+    }
+
+    /**
+     * Check if the input is stalled.
+     *
+     * @return true while the input is stalled
+     */
+    public boolean isStalled()
+    {
+        return this.stalled;
+    }
+
+    /**
+     * Get when the input which stalled was due.
+     *
+     * @return The time in nanoseconds
+     */
+    public long getDeadline()
+    {
+        return this.deadline;
+    }
+
+    /**
+     * Get the number of times the input stalled.
+     *
+     * @return The stall count
+     */
+    public long getStalls()
+    {
+        return this.stalls;
+    }
+
+    /**
+     * Get how late the last stall was caught.
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getLatency()
+    {
+        return this.latency;
+    }
+
+    /**
+     * Get how late the worst stall was caught.
+     *
+     * @return The latency in nanoseconds
+     */
+    public long getMaxLatency()
+    {
+        return this.maxLatency;
+    }
+
+    /**
+     * Check the input, and tell the listener if it just stalled.
+     *
+     * @param input When the input was last set in nanoseconds
+     * @param time The time now in nanoseconds
+     *
+     * @return How long until the next check is due in nanoseconds
+     */
+    public long check(long input, long time)
+    {
+        long timeout = this.timeout;
+        if (timeout == 0)
+        {
+            this.stalled = false;
+            return MAX_TIMEOUT * 1000000L;
+        }
+
+        long due = Math.max(input, this.start) + timeout;
+        if (time < due)
+        {
+            this.stalled = false;
+            return due - time;
+        }
+
+        if (!this.stalled)
+        {
+            this.deadline = due;
+            this.latency = time - due;
+            this.maxLatency = Math.max(this.maxLatency, this.latency);
+            this.stalls++;
+            this.stalled = true;
+
+            OnStallListener listener = this.stallListener;
+            if (listener != null)
+                listener.onStall(this);
+        }
+
+        return POLL;
+    }
+
+    /**
+     * Check the input whenever it is due, until the thread is interrupted.
+     */
+    public void run()
+    {
+        while (!this.isInterrupted())
+        {
+            synchronized (lockPause)
+            {
+                if (pause)
+                {
+                    while (pause)
+                    {
+                        try
+                        {
+                            lockPause.wait();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            return;
+                        }
+                    }
+
+                    this.reset(this.now());
+                }
+            }
+
+            this.park(this.check(this.vehicle.getInputTime(), this.now()));
+        }
+    }
+
+    /**
+     * The current time of the clock used by the watchdog.
+     *
+     * @return The time in nanoseconds
+     */
+    protected long now()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Park the current thread until the next check is due.
+     *
+     * @param nanos The time to park for in nanoseconds
+     */
+    protected void park(long nanos)
+    {
+        LockSupport.parkNanos(this, nanos);
+    }
+
+    /**
+     * Stop watching while the app is in the background, the input stops
+     * then on purpose.
+     */
+    public void onPause()
+    {
+        synchronized (lockPause)
+        {
+            this.pause = true;
+            this.stalled = false;
+        }
+    }
+
+    /**
+     * Start watching again, the input has a whole timeout to come back.
+     */
+    public void onResume()
+    {
+        synchronized (lockPause)
+        {
+            this.pause = false;
+            lockPause.notifyAll();
+        }
+        LockSupport.unpark(this);
+    }
+}